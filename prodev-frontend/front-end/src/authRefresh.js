@@ -0,0 +1,82 @@
+// ต่ออายุ access token อัตโนมัติ: access token อายุสั้น (~15 นาที)
+// ถ้า request ที่แนบ token ของเราโดน 401/403 จะขอ token ใหม่ด้วย refresh token แล้วลองซ้ำครั้งเดียว
+
+// token ของฝั่ง user และ admin เก็บแยกกันใน localStorage
+const TOKEN_PAIRS = [
+    { token: "token", refreshToken: "refreshToken" },
+    { token: "admin_token", refreshToken: "admin_refreshToken" },
+];
+
+// refresh ที่กำลังทำอยู่ (ต่อ refresh token) ให้ request ที่ fail พร้อมกันรอผลเดียวกัน
+const pendingRefreshes = {};
+
+function getAuthorization(init) {
+    const headers = init && init.headers;
+    if (!headers) return null;
+    if (typeof headers.get === "function") return headers.get("Authorization");
+    return headers.Authorization || headers.authorization || null;
+}
+
+function withAuthorization(init, authorization) {
+    const headers = init.headers;
+    if (typeof headers.set === "function") {
+        const copy = new Headers(headers);
+        copy.set("Authorization", authorization);
+        return { ...init, headers: copy };
+    }
+    const copy = { ...headers };
+    delete copy.authorization;
+    copy.Authorization = authorization;
+    return { ...init, headers: copy };
+}
+
+function refreshTokens(originalFetch, backendUrl, pair) {
+    const refreshToken = localStorage.getItem(pair.refreshToken);
+    if (!refreshToken) return Promise.resolve(null);
+
+    if (!pendingRefreshes[refreshToken]) {
+        pendingRefreshes[refreshToken] = originalFetch(`${backendUrl}/api/auth/refresh`, {
+            method: "POST",
+            headers: { "Content-Type": "application/json" },
+            body: JSON.stringify({ refreshToken }),
+        })
+            .then(async (res) => {
+                if (!res.ok) {
+                    // refresh token หมดอายุ/ใช้ไม่ได้: ต้อง login ใหม่
+                    localStorage.removeItem(pair.token);
+                    localStorage.removeItem(pair.refreshToken);
+                    return null;
+                }
+                const data = await res.json();
+                localStorage.setItem(pair.token, data.token);
+                localStorage.setItem(pair.refreshToken, data.refreshToken);
+                return data.token;
+            })
+            .catch(() => null)
+            .finally(() => {
+                delete pendingRefreshes[refreshToken];
+            });
+    }
+    return pendingRefreshes[refreshToken];
+}
+
+export function installAuthRefresh(backendUrl = process.env.REACT_APP_BACKEND_URL) {
+    const originalFetch = window.fetch.bind(window);
+
+    window.fetch = async (input, init) => {
+        const res = await originalFetch(input, init);
+        if (res.status !== 401 && res.status !== 403) return res;
+
+        const authorization = getAuthorization(init);
+        if (!authorization || !authorization.startsWith("Bearer ")) return res;
+
+        const sentToken = authorization.substring(7);
+        const pair = TOKEN_PAIRS.find((p) => localStorage.getItem(p.token) === sentToken);
+        if (!pair) return res;
+
+        const newToken = await refreshTokens(originalFetch, backendUrl, pair);
+        if (!newToken) return res;
+
+        return originalFetch(input, withAuthorization(init, `Bearer ${newToken}`));
+    };
+}
@@ -9,6 +9,7 @@ export default function AdminNavbar() {
 
     const handleLogout = () => {
         localStorage.removeItem("admin_token");
+        localStorage.removeItem("admin_refreshToken");
         localStorage.removeItem("admin_email");
         localStorage.removeItem("admin_username");
         localStorage.removeItem("admin_role");
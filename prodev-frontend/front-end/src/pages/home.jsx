@@ -18,6 +18,7 @@ import "swiper/css/pagination";
 
 // Import context จาก AppLayout
 import { CartContext } from "../AppLayout";
+import { variantUrl, fallbackTo } from "../productImage";
 
 export default function HomePage() {
     const [user, setUser] = useState(null);
@@ -65,6 +66,7 @@ export default function HomePage() {
                         name: p.name,
                         price: p.price ? `฿${p.price}` : "฿0",
                         image: p.images?.[0] ? `${BACKEND_URL}${p.images[0]}` : "/images/no-image.png",
+                        imageCard: variantUrl(p, "card", BACKEND_URL),
                         category: p.category
                     }));
 
@@ -166,7 +168,7 @@ export default function HomePage() {
                                 className="border rounded-lg overflow-hidden flex flex-col transition hover:shadow-lg hover:border-green-600"
                                 onClick={() => navigate(`/product/detail/${p.id}`)}
                             >
-                                <img src={p.image} alt={p.name} className="w-full h-40 object-contain p-4" />
+                                <img src={p.imageCard || p.image} onError={fallbackTo(p.image)} alt={p.name} className="w-full h-40 object-contain p-4" />
                                 <div className="p-4 flex flex-col flex-grow">
                                     <h3 className="text-sm font-medium mb-2">{p.name}</h3>
                                     <p className="text-xs text-gray-500 mt-1">{p.category}</p>
@@ -218,7 +220,7 @@ export default function HomePage() {
                             className="border rounded-lg overflow-hidden flex flex-col transition hover:shadow-lg hover:border-green-600"
                             onClick={() => navigate(`/product/detail/${p.id}`)}
                         >
-                            <img src={p.image} alt={p.name} className="w-full h-40 object-contain p-4" />
+                            <img src={p.imageCard || p.image} onError={fallbackTo(p.image)} alt={p.name} className="w-full h-40 object-contain p-4" />
                             <div className="p-4 flex flex-col flex-grow">
                                 <h3 className="text-sm font-medium">{p.name}</h3>
                                 <p className="text-xs text-gray-500 mt-1">{p.category}</p>
@@ -32,6 +32,7 @@ export default function SignInPage() {
                 if (data.role === "USER") {
                     // เก็บทุกตัวลง localStorage
                     localStorage.setItem("token", data.token);
+                    if (data.refreshToken) localStorage.setItem("refreshToken", data.refreshToken);
                     localStorage.setItem("username", data.username);
                     localStorage.setItem("email", data.email);
                     localStorage.setItem("role", data.role);
@@ -41,6 +41,7 @@ export default function SignInAdmin() {
                 if (data.role === "ADMIN") {
                     // เก็บข้อมูล admin ใน localStorage
                     localStorage.setItem("admin_token", data.token);
+                    if (data.refreshToken) localStorage.setItem("admin_refreshToken", data.refreshToken);
                     localStorage.setItem("admin_email", data.email);
                     localStorage.setItem("admin_username", data.username);
                     localStorage.setItem("admin_role", data.role);
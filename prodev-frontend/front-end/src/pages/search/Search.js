@@ -4,6 +4,7 @@ import { useState, useEffect } from "react";
 import { useNavigate, useLocation } from "react-router-dom";
 import { Utensils, Smartphone, Sofa, ShowerHead, Shirt, Tv, Cookie } from "lucide-react";
 import Fuse from "fuse.js"; // นำเข้า Fuse.js สำหรับการค้นหาแบบ fuzzy
+import { variantUrl, fallbackTo } from "../../productImage";
 
 export default function SearchPage() {
     const navigate = useNavigate();
@@ -80,7 +81,8 @@ export default function SearchPage() {
                         .filter(p => p.quantity > 0) // กรองเฉพาะสินค้าที่มี stock
                         .map(p => ({
                             ...p,
-                            images: p.images.map(img => img.startsWith("http") ? img : `${BACKEND_URL}${img}`)
+                            images: p.images.map(img => img.startsWith("http") ? img : `${BACKEND_URL}${img}`),
+                            imageCard: variantUrl(p, "card", BACKEND_URL)
                         }))
                 );
 
@@ -176,7 +178,7 @@ export default function SearchPage() {
                                 className="border rounded-lg overflow-hidden flex flex-col transition hover:shadow-lg hover:border-green-600 cursor-pointer"
                                 onClick={() => navigate(`/product/detail/${p.id}`)}
                             >
-                                <img src={p.images?.[0] || "/images/no-image.png"} alt={p.name} className="w-full h-40 object-contain p-4" />
+                                <img src={p.imageCard || p.images?.[0] || "/images/no-image.png"} onError={fallbackTo(p.images?.[0] || "/images/no-image.png")} alt={p.name} className="w-full h-40 object-contain p-4" />
                                 <div className="p-4 flex flex-col flex-grow">
                                     <h3 className="text-sm font-medium mb-2">{p.name}</h3>
                                     <p className="text-xs text-gray-500 mt-1">{p.category}</p>
@@ -34,6 +34,31 @@ export default function CheckoutPage() {
 
     const selectedOption = deliveryOptions.find((opt) => opt.id === selectedDelivery);
 
+    // ถามซ้ำจนกว่า PDF จะพร้อม (backend ตอบ 202 ระหว่างกำลังสร้าง)
+    const downloadReceipt = async (receiptUrl, token, attempts = 20) => {
+        for (let i = 0; i < attempts; i++) {
+            const res = await fetch(`${BACKEND_URL}${receiptUrl}`, {
+                headers: { Authorization: `Bearer ${token}` },
+            });
+
+            if (res.status === 202) {
+                await new Promise((resolve) => setTimeout(resolve, 1000));
+                continue;
+            }
+            if (!res.ok) throw new Error("Receipt download failed");
+
+            const blob = await res.blob();
+            const url = window.URL.createObjectURL(blob);
+            const a = document.createElement("a");
+            a.href = url;
+            a.download = "order_summary.pdf";
+            a.click();
+            window.URL.revokeObjectURL(url);
+            return;
+        }
+        throw new Error("Receipt is not ready yet");
+    };
+
     const handlePayNow = async () => {
         if (loading) return;
         setLoading(true);
@@ -71,21 +96,9 @@ export default function CheckoutPage() {
             // แสดง modal success
             setShowModal(true);
 
-            // โหลด PDF ทันทีจาก backend
-            if (data.pdfBytes) {
-                const byteCharacters = atob(data.pdfBytes); // decode base64
-                const byteNumbers = new Array(byteCharacters.length);
-                for (let i = 0; i < byteCharacters.length; i++) {
-                    byteNumbers[i] = byteCharacters.charCodeAt(i);
-                }
-                const byteArray = new Uint8Array(byteNumbers);
-                const blob = new Blob([byteArray], { type: "application/pdf" });
-                const url = window.URL.createObjectURL(blob);
-                const a = document.createElement("a");
-                a.href = url;
-                a.download = "order_summary.pdf";
-                a.click();
-                window.URL.revokeObjectURL(url);
+            // โหลด PDF ใบเสร็จ: backend สร้างแบบ async หลัง checkout จึงต้องรอจนพร้อม
+            if (data.receiptUrl) {
+                downloadReceipt(data.receiptUrl, token).catch((err) => console.error(err));
             }
 
         } catch (error) {
@@ -0,0 +1,18 @@
+// รูปย่อที่ backend สร้างไว้ (thumbnail/card/detail) เล็กกว่ารูปต้นฉบับมาก ใช้ในหน้า listing
+// รูปที่ยังไม่มี variant (เช่นเพิ่ง upload/ไฟล์ไม่ใช่รูป) ให้ถอยกลับไปใช้รูปต้นฉบับ
+
+export function variantUrl(product, variant, backendUrl = "") {
+    const path = product.imageVariants?.[0]?.[variant];
+    if (!path) return null;
+    return path.startsWith("http") ? path : `${backendUrl}${path}`;
+}
+
+// ใช้เป็น onError ของ <img>: เปลี่ยนไปใช้ fallback ครั้งเดียว กันวนซ้ำถ้า fallback โหลดไม่ได้อีก
+export function fallbackTo(src) {
+    return (e) => {
+        const img = e.currentTarget;
+        if (img.dataset.fallback) return;
+        img.dataset.fallback = "1";
+        img.src = src;
+    };
+}
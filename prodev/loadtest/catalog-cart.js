@@ -0,0 +1,91 @@
+// k6 load test: เปรียบเทียบ throughput/p99 ระหว่าง Tomcat thread pool ปกติกับโปรไฟล์ virtual
+//   k6 run -e BASE_URL=http://localhost:8080 -e EMAIL=load@test.com -e PASSWORD=secret loadtest/catalog-cart.js
+// ตั้ง CHECKOUT=1 เพื่อรวม checkout ด้วย (ตัด stock จริง ใช้กับ DB ทดสอบเท่านั้น)
+import http from "k6/http";
+import { check, sleep } from "k6";
+
+const BASE_URL = __ENV.BASE_URL || "http://localhost:8080";
+const VUS = parseInt(__ENV.VUS || "200", 10);
+const DURATION = __ENV.DURATION || "2m";
+const CHECKOUT = __ENV.CHECKOUT === "1";
+
+const KEYWORDS = ["coffee", "milk", "tea", "snack", "rice", "fresh"];
+
+export const options = {
+    scenarios: {
+        catalog: {
+            executor: "constant-vus",
+            vus: Math.ceil(VUS * 0.7),
+            duration: DURATION,
+            exec: "browseCatalog",
+        },
+        cart: {
+            executor: "constant-vus",
+            vus: Math.floor(VUS * 0.3),
+            duration: DURATION,
+            exec: "useCart",
+        },
+    },
+    summaryTrendStats: ["avg", "p(50)", "p(95)", "p(99)", "max"],
+    thresholds: {
+        "http_req_duration{scenario:catalog}": ["p(99)<1000"],
+        "http_req_duration{scenario:cart}": ["p(99)<2000"],
+        http_req_failed: ["rate<0.01"],
+    },
+};
+
+export function setup() {
+    const res = http.post(`${BASE_URL}/api/auth/login`,
+        JSON.stringify({ email: __ENV.EMAIL, password: __ENV.PASSWORD }),
+        { headers: { "Content-Type": "application/json" } });
+    check(res, { "login ok": (r) => r.status === 200 });
+
+    const products = http.get(`${BASE_URL}/api/products/all?limit=50&view=summary&cursor=`).json("items") || [];
+    return {
+        token: res.json("token"),
+        productIds: products.filter((p) => p.quantity > 0).map((p) => p.id),
+    };
+}
+
+export function browseCatalog() {
+    const keyword = KEYWORDS[Math.floor(Math.random() * KEYWORDS.length)];
+    const page = 1 + Math.floor(Math.random() * 3);
+
+    const search = http.get(`${BASE_URL}/api/products/search?keyword=${keyword}&page=${page}&limit=8&view=summary`,
+        { tags: { name: "search" } });
+    check(search, { "search 200": (r) => r.status === 200 });
+
+    const list = http.get(`${BASE_URL}/api/products/all?limit=20&view=summary&cursor=`, { tags: { name: "list" } });
+    check(list, { "list 200": (r) => r.status === 200 });
+
+    sleep(0.5);
+}
+
+export function useCart(data) {
+    const headers = { Authorization: `Bearer ${data.token}`, "Content-Type": "application/json" };
+
+    if (data.productIds.length > 0) {
+        const productId = data.productIds[Math.floor(Math.random() * data.productIds.length)];
+        const add = http.post(`${BASE_URL}/api/cart/add`, JSON.stringify({ productId, qty: 1 }),
+            { headers, tags: { name: "cart-add" } });
+        check(add, { "cart add 200": (r) => r.status === 200 });
+    }
+
+    const cart = http.get(`${BASE_URL}/api/cart/list`, { headers, tags: { name: "cart-get" } });
+    check(cart, { "cart 200": (r) => r.status === 200 });
+
+    const orders = http.get(`${BASE_URL}/api/orders/my`, { headers, tags: { name: "orders-my" } });
+    check(orders, { "orders 200": (r) => r.status === 200 });
+
+    if (CHECKOUT) {
+        const checkout = http.post(`${BASE_URL}/api/orders/checkout`, JSON.stringify({}),
+            { headers, tags: { name: "checkout" } });
+        check(checkout, { "checkout 200/400": (r) => r.status === 200 || r.status === 400 });
+    } else {
+        // ล้าง cart ทุกรอบ ไม่ให้จำนวนเกิน stock
+        const clear = http.del(`${BASE_URL}/api/cart/clear`, null, { headers, tags: { name: "cart-clear" } });
+        check(clear, { "cart clear 200": (r) => r.status === 200 });
+    }
+
+    sleep(0.5);
+}
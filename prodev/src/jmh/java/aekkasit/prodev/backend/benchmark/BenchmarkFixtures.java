@@ -0,0 +1,101 @@
+package aekkasit.prodev.backend.benchmark;
+
+import aekkasit.prodev.backend.cart.model.CartItem;
+import aekkasit.prodev.backend.product.model.Product;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Synthetic data and repository stubs shared by the benchmarks.
+ * Data is generated from a fixed seed so runs are comparable.
+ */
+public final class BenchmarkFixtures {
+
+    public static final String[] CATEGORIES = {"Fruits", "Vegetables", "Drinks", "Snacks", "Dairy", "Bakery"};
+
+    private static final String[] VOCABULARY = {"apple", "banana", "carrot", "milk", "organic", "fresh", "tea",
+            "green", "juice", "bread", "butter", "cheese", "coffee", "rice", "noodle", "snack", "chips", "mango",
+            "yogurt", "spicy", "crispy", "sweet", "roasted", "premium", "local", "thai", "jasmine", "coconut",
+            "chocolate", "vanilla", "honey", "lemon", "orange", "pepper", "garlic", "onion", "tomato", "potato"};
+
+    private BenchmarkFixtures() {
+    }
+
+    public static List<Product> catalog(int size) {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            Product p = new Product();
+            p.setId((long) i);
+            // เติมเลขท้ายชื่อให้ vocabulary โตตามขนาด catalog เหมือนข้อมูลจริง
+            p.setName(words(random, 2) + " " + VOCABULARY[random.nextInt(VOCABULARY.length)] + (i % 500));
+            p.setDescription(words(random, 8));
+            p.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            p.setPrice(Math.round(random.nextDouble() * 100000) / 100.0);
+            int quantity = random.nextInt(50);
+            p.setQuantity(quantity);
+            p.setStatusStock(quantity > 0 ? "In stock" : "Out of stock");
+            p.setImages(new ArrayList<>(List.of("/uploads/products/" + i + ".jpg")));
+            p.setCreatedAt(start.plusMinutes(i));
+            products.add(p);
+        }
+        return products;
+    }
+
+    public static List<CartItem> cartItems(int lines) {
+        List<Product> products = catalog(lines);
+        List<CartItem> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(CartItem.builder()
+                    .id((long) i + 1)
+                    .quantity(i % 5 + 1)
+                    .product(products.get(i))
+                    .build());
+        }
+        return items;
+    }
+
+    /**
+     * Creates a repository stub that answers calls by method name; any other call fails fast so a
+     * benchmark never silently measures an unexpected code path.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T stub(Class<T> type, Map<String, BiFunction<String, Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            BiFunction<String, Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(method.getName(), args);
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + " stub";
+                };
+            }
+            throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+        });
+    }
+
+    /**
+     * A collaborator the benchmarked path must never use: every call fails fast. Concrete beans are
+     * built on top of these (e.g. a {@code JdbcTemplate} over {@code unused(DataSource.class)}) so no
+     * constructor argument is left {@code null}.
+     */
+    public static <T> T unused(Class<T> type) {
+        return stub(type, Map.of());
+    }
+
+    private static String words(Random random, int count) {
+        StringJoiner joiner = new StringJoiner(" ");
+        for (int i = 0; i < count; i++) {
+            joiner.add(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package aekkasit.prodev.backend.cart.service;
+
+import aekkasit.prodev.backend.benchmark.BenchmarkFixtures;
+import aekkasit.prodev.backend.cart.dto.CartItemResponse;
+import aekkasit.prodev.backend.cart.dto.CartResponse;
+import aekkasit.prodev.backend.cart.repository.CartItemBatchRepository;
+import aekkasit.prodev.backend.cart.repository.CartItemRepository;
+import aekkasit.prodev.backend.cart.repository.CartRepository;
+import aekkasit.prodev.backend.product.repository.ProductRepository;
+import aekkasit.prodev.backend.user.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart response total computation over the rows of the cart projection query, with an in-memory
+ * repository, i.e. the per-request CPU cost on top of the single database round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CartResponseBenchmark {
+
+    @Param({"1", "20", "200"})
+    public int lines;
+
+    private CartService cartService;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        user = User.builder().id(1L).username("benchmark").build();
+        List<CartItemResponse> rows = BenchmarkFixtures.cartItems(lines).stream()
+                .map(i -> new CartItemResponse(i.getId(), i.getProduct().getName(), i.getQuantity(),
+                        i.getProduct().getPrice(), i.getProduct().getImages().get(0),
+                        i.getProduct().getQuantity(), i.getProduct().getCategory()))
+                .toList();
+
+        CartItemRepository cartItemRepository = BenchmarkFixtures.stub(CartItemRepository.class, Map.of(
+                "findCartView", (name, args) -> rows));
+
+        // ไม่มี write-behind store (cart.write-behind.enabled=false) อ่านผ่าน projection query
+        cartService = new CartService(
+                BenchmarkFixtures.unused(CartRepository.class),
+                cartItemRepository,
+                BenchmarkFixtures.unused(ProductRepository.class),
+                new CartItemBatchRepository(new JdbcTemplate(BenchmarkFixtures.unused(DataSource.class))),
+                null);
+    }
+
+    @Benchmark
+    public CartResponse getCartResponse() {
+        return cartService.getCartResponse(user);
+    }
+}
@@ -0,0 +1,38 @@
+package aekkasit.prodev.backend.order.service;
+
+import aekkasit.prodev.backend.benchmark.BenchmarkFixtures;
+import aekkasit.prodev.backend.order.dto.ReceiptLine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receipt PDF rendering for small, typical and large carts, measured on {@link ReceiptPdfTemplate}
+ * directly with the same buffer pool size {@link OrderService} uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReceiptPdfBenchmark {
+
+    @Param({"1", "20", "200"})
+    public int lines;
+
+    private ReceiptPdfTemplate template;
+    private List<ReceiptLine> receiptLines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        template = new ReceiptPdfTemplate(4);
+        receiptLines = BenchmarkFixtures.cartItems(lines).stream()
+                .map(item -> new ReceiptLine(item.getProduct().getName(), item.getProduct().getCategory(),
+                        item.getQuantity(), item.getProduct().getPrice()))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] generateOrderPdf() {
+        return template.render(receiptLines, "benchmark", 10, "SAVE10");
+    }
+}
@@ -0,0 +1,112 @@
+package aekkasit.prodev.backend.product.controller;
+
+import aekkasit.prodev.backend.benchmark.BenchmarkFixtures;
+import aekkasit.prodev.backend.cache.service.CacheInvalidationBus;
+import aekkasit.prodev.backend.product.model.Product;
+import aekkasit.prodev.backend.product.repository.ProductRepository;
+import aekkasit.prodev.backend.product.service.CatalogVersion;
+import aekkasit.prodev.backend.product.service.ProductImageService;
+import aekkasit.prodev.backend.product.service.ProductImageStorage;
+import aekkasit.prodev.backend.product.service.ProductSearchIndex;
+import aekkasit.prodev.backend.product.service.StockReportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.xdrop.fuzzywuzzy.FuzzySearch;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyword search over synthetic catalogs.
+ * <p>
+ * {@code searchProducts} runs the controller with a stub repository, so it measures the fuzzy
+ * index lookup, specification building and response mapping; the SQL filtering itself is not
+ * part of this benchmark. {@code fullScanBaseline} is the previous in-memory scan that scored
+ * every word of every product, kept as a reference point.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductSearchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    @Param({"coffe", "organik milk", "fresh grean tea"})
+    public String keyword;
+
+    private List<Product> catalog;
+    private ProductSearchIndex productSearchIndex;
+    private ProductController productController;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = BenchmarkFixtures.catalog(catalogSize);
+
+        ProductRepository productRepository = BenchmarkFixtures.stub(ProductRepository.class, Map.of(
+                "findAll", (name, args) -> {
+                    if (args == null) {
+                        return catalog;
+                    }
+                    Pageable pageable = (Pageable) args[1];
+                    List<Product> content = catalog.subList(0, Math.min(pageable.getPageSize(), catalog.size()));
+                    return new PageImpl<>(content, pageable, catalog.size());
+                },
+                "count", (name, args) -> (long) catalog.size()
+        ));
+
+        productSearchIndex = new ProductSearchIndex(productRepository);
+        productSearchIndex.rebuild();
+        // search ไม่แตะรูปหรือ report: ส่วนนั้นล้มทันทีถ้าถูกเรียก
+        Executor executor = BenchmarkFixtures.unused(Executor.class);
+        ProductImageService productImageService = new ProductImageService("uploads/products", 0.8f, executor, 500);
+        productController = new ProductController(
+                productRepository,
+                productSearchIndex,
+                new StockReportService(productRepository, new ObjectMapper(), BenchmarkFixtures.unused(DataSource.class)),
+                BenchmarkFixtures.unused(CacheInvalidationBus.class),
+                new CatalogVersion(),
+                new ProductImageStorage("uploads/products", productImageService, productRepository, executor,
+                        Duration.ofHours(1)));
+    }
+
+    @Benchmark
+    public SortedSet<Long> indexSearch() {
+        return productSearchIndex.search(keyword);
+    }
+
+    @Benchmark
+    public Object searchProducts() {
+        return productController.searchProducts("Drinks", 10.0, 800.0, keyword, 1, 8, "summary").getBody();
+    }
+
+    @Benchmark
+    public List<Product> fullScanBaseline() {
+        String[] terms = keyword.toLowerCase().split("\\s+");
+        List<Product> result = new ArrayList<>();
+        for (Product p : catalog) {
+            String name = p.getName() != null ? p.getName().toLowerCase() : "";
+            String desc = p.getDescription() != null ? p.getDescription().toLowerCase() : "";
+            List<String> words = new ArrayList<>();
+            words.addAll(Arrays.asList(name.split("\\W+")));
+            words.addAll(Arrays.asList(desc.split("\\W+")));
+
+            boolean allMatch = true;
+            for (String term : terms) {
+                if (!words.contains(term) && words.stream().noneMatch(w -> FuzzySearch.ratio(term, w) >= 70)) {
+                    allMatch = false;
+                    break;
+                }
+            }
+            if (allMatch) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+}
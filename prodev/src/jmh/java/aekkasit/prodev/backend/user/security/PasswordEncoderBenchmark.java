@@ -0,0 +1,40 @@
+package aekkasit.prodev.backend.user.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one login (matches) and one register (encode) per bcrypt strength, used to pick
+ * {@code security.password.bcrypt-strength} and size {@code security.password.hashing.pool-size}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class PasswordEncoderBenchmark {
+
+    @Param({"10", "11", "12"})
+    public int strength;
+
+    private PasswordEncoder passwordEncoder;
+    private String encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        passwordEncoder = new SecurityConfig(null).passwordEncoder(strength);
+        encoded = passwordEncoder.encode("benchmark-password");
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode("benchmark-password");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches("benchmark-password", encoded);
+    }
+}
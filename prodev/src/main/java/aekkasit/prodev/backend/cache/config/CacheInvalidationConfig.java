@@ -0,0 +1,41 @@
+package aekkasit.prodev.backend.cache.config;
+
+import aekkasit.prodev.backend.cache.repository.CacheInvalidationBatchRepository;
+import aekkasit.prodev.backend.cache.repository.CacheInvalidationRecordRepository;
+import aekkasit.prodev.backend.cache.service.CacheInvalidationBus;
+import aekkasit.prodev.backend.cache.service.DatabaseCacheInvalidationBus;
+import aekkasit.prodev.backend.cache.service.InJvmCacheInvalidationBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+public class CacheInvalidationConfig {
+
+    // pod เดียว (ค่าเริ่มต้น): ไม่มี pod อื่นให้แจ้ง
+    @Bean
+    @ConditionalOnProperty(name = "cache.invalidation.mode", havingValue = "local", matchIfMissing = true)
+    public CacheInvalidationBus inJvmCacheInvalidationBus() {
+        return new InJvmCacheInvalidationBus();
+    }
+
+    // หลาย pod: แจ้งผ่านตาราง cache_invalidations แล้วแต่ละ pod poll เอา
+    @Configuration
+    @ConditionalOnProperty(name = "cache.invalidation.mode", havingValue = "database")
+    static class DatabaseBusConfig {
+
+        @Bean
+        public CacheInvalidationBus databaseCacheInvalidationBus(
+                CacheInvalidationRecordRepository repository,
+                CacheInvalidationBatchRepository batchRepository,
+                @Value("${cache.invalidation.lookback:10s}") Duration lookback,
+                @Value("${cache.invalidation.retention:1h}") Duration retention
+        ) {
+            return new DatabaseCacheInvalidationBus(repository, batchRepository, lookback, retention, Clock.systemUTC());
+        }
+    }
+}
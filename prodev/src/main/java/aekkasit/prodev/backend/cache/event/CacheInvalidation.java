@@ -0,0 +1,35 @@
+package aekkasit.prodev.backend.cache.event;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+// ส่งไปยัง pod อื่นเมื่อข้อมูลที่ถูก cache ไว้ในหน่วยความจำเปลี่ยน
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class CacheInvalidation {
+
+    public enum Kind {
+        PRODUCT,        // เพิ่ม/แก้/ลบสินค้า: cache entity + search index
+        PRODUCT_STOCK,  // stock เปลี่ยนตอน checkout: cache entity อย่างเดียว
+        USER            // ลบ user: cache entity + query cache + principal cache
+    }
+
+    private final Kind kind;
+    private final Long id;
+
+    public static CacheInvalidation product(Long id) {
+        return new CacheInvalidation(Kind.PRODUCT, id);
+    }
+
+    public static CacheInvalidation productStock(Long id) {
+        return new CacheInvalidation(Kind.PRODUCT_STOCK, id);
+    }
+
+    public static CacheInvalidation user(Long id) {
+        return new CacheInvalidation(Kind.USER, id);
+    }
+}
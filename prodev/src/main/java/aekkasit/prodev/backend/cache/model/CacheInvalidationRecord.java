@@ -0,0 +1,37 @@
+package aekkasit.prodev.backend.cache.model;
+
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// แถวใน outbox ที่ pod อื่น poll ไปล้าง cache ของตัวเอง (ลบทิ้งเมื่อเก่ากว่า retention)
+@Entity
+@Table(name = "cache_invalidations", indexes = {
+        @Index(name = "idx_cache_invalidations_created_at", columnList = "createdAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CacheInvalidationRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private CacheInvalidation.Kind kind;
+
+    @Column(nullable = false)
+    private Long entityId;
+
+    // instance ที่ส่ง (ไม่ต้องส่งกลับหาตัวเอง)
+    @Column(nullable = false, length = 36)
+    private String origin;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,54 @@
+package aekkasit.prodev.backend.cache.repository;
+
+import aekkasit.prodev.backend.cache.model.CacheInvalidationRecord;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Writes {@code cache_invalidations} rows in one JDBC batch. The table uses IDENTITY ids, which stops
+ * Hibernate from batching inserts, and a checkout publishes one row per product.
+ */
+@Repository
+public class CacheInvalidationBatchRepository {
+
+    static final String INSERT_SQL =
+            "INSERT INTO cache_invalidations (kind, entity_id, origin, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CacheInvalidationBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertAll(List<CacheInvalidationRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                CacheInvalidationRecord record = records.get(i);
+                ps.setString(1, record.getKind().name());
+                ps.setLong(2, record.getEntityId());
+                ps.setString(3, record.getOrigin());
+                // Hibernate เก็บ Instant เป็นเวลา UTC: bind แบบเดียวกัน ไม่งั้น poll อ่าน createdAt เพี้ยนตาม timezone ของ JVM
+                ps.setTimestamp(4, Timestamp.from(record.getCreatedAt()),
+                        Calendar.getInstance(TimeZone.getTimeZone("UTC")));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return records.size();
+            }
+        });
+    }
+}
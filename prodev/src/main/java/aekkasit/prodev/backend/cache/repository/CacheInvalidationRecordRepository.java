@@ -0,0 +1,15 @@
+package aekkasit.prodev.backend.cache.repository;
+
+import aekkasit.prodev.backend.cache.model.CacheInvalidationRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface CacheInvalidationRecordRepository extends JpaRepository<CacheInvalidationRecord, Long> {
+    List<CacheInvalidationRecord> findByCreatedAtAfterOrderByIdAsc(Instant since);
+
+    @Transactional
+    long deleteByCreatedAtBefore(Instant cutoff);
+}
@@ -0,0 +1,24 @@
+package aekkasit.prodev.backend.cache.service;
+
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidations to the other instances of the application.
+ * <p>
+ * The publishing instance updates its own caches in-line, so listeners only receive invalidations
+ * published by other instances. When published inside a transaction, delivery only happens if it commits.
+ */
+public interface CacheInvalidationBus {
+
+    void publish(CacheInvalidation invalidation);
+
+    /**
+     * Publishes several invalidations at once (e.g. every product of a checkout) with a single write.
+     */
+    void publishAll(Collection<CacheInvalidation> invalidations);
+
+    void subscribe(Consumer<CacheInvalidation> listener);
+}
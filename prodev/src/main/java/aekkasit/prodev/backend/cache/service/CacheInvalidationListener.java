@@ -0,0 +1,81 @@
+package aekkasit.prodev.backend.cache.service;
+
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import aekkasit.prodev.backend.product.model.Product;
+import aekkasit.prodev.backend.product.repository.ProductRepository;
+import aekkasit.prodev.backend.product.service.CatalogVersion;
+import aekkasit.prodev.backend.product.service.ProductSearchIndex;
+import aekkasit.prodev.backend.user.model.User;
+import aekkasit.prodev.backend.user.security.JwtPrincipalCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies invalidations published by other pods to this pod's caches: the Hibernate second-level
+ * cache, the product search index, the catalog version (HTTP ETags) and the JWT principal cache.
+ */
+@Component
+@Slf4j
+public class CacheInvalidationListener {
+
+    static final String PRODUCT_IMAGES_ROLE = Product.class.getName() + ".images";
+
+    private final CacheInvalidationBus bus;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ProductRepository productRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final JwtPrincipalCache principalCache;
+    private final CatalogVersion catalogVersion;
+
+    public CacheInvalidationListener(CacheInvalidationBus bus,
+                                     EntityManagerFactory entityManagerFactory,
+                                     ProductRepository productRepository,
+                                     ProductSearchIndex productSearchIndex,
+                                     JwtPrincipalCache principalCache,
+                                     CatalogVersion catalogVersion) {
+        this.bus = bus;
+        this.entityManagerFactory = entityManagerFactory;
+        this.productRepository = productRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.principalCache = principalCache;
+        this.catalogVersion = catalogVersion;
+    }
+
+    @PostConstruct
+    public void register() {
+        bus.subscribe(this::onInvalidation);
+    }
+
+    void onInvalidation(CacheInvalidation invalidation) {
+        Long id = invalidation.getId();
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+
+        switch (invalidation.getKind()) {
+            case PRODUCT -> {
+                cache.evictEntityData(Product.class, id);
+                cache.evictCollectionData(PRODUCT_IMAGES_ROLE, id);
+                // อ่านใหม่หลัง evict แล้ว index ตามค่าล่าสุด (ไม่เจอ = ถูกลบ)
+                productRepository.findById(id).ifPresentOrElse(
+                        productSearchIndex::index,
+                        () -> productSearchIndex.remove(id));
+                catalogVersion.bump();
+            }
+            case PRODUCT_STOCK -> {
+                cache.evictEntityData(Product.class, id);
+                catalogVersion.bump();
+            }
+            case USER -> {
+                cache.evictEntityData(User.class, id);
+                // findByUsername/findByEmail อาจยังชี้ไปที่ user นี้
+                cache.evictQueryRegions();
+                // USER ส่งเมื่อ user ถูกลบ: token ของ user นี้บน pod นี้ต้องใช้ไม่ได้ด้วย
+                principalCache.revokeUser(id);
+            }
+        }
+        log.debug("Applied {}", invalidation);
+    }
+}
@@ -0,0 +1,119 @@
+package aekkasit.prodev.backend.cache.service;
+
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import aekkasit.prodev.backend.cache.model.CacheInvalidationRecord;
+import aekkasit.prodev.backend.cache.repository.CacheInvalidationBatchRepository;
+import aekkasit.prodev.backend.cache.repository.CacheInvalidationRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Bus for several pods sharing one database: invalidations are written to {@code cache_invalidations}
+ * in the publisher's transaction (one JDBC batch per publish call) and every pod polls for rows
+ * written by the others.
+ * <p>
+ * Rows are read back from {@code lastPoll - lookback}, because an IDENTITY id or timestamp taken
+ * before commit can become visible after a later row. The lookback must cover the longest
+ * publishing transaction plus clock skew between pods; rows seen twice are only delivered once.
+ * A pod therefore drops stale entries within roughly one poll interval of the commit.
+ */
+@Slf4j
+public class DatabaseCacheInvalidationBus implements CacheInvalidationBus {
+
+    private final CacheInvalidationRecordRepository repository;
+    private final CacheInvalidationBatchRepository batchRepository;
+    private final Duration lookback;
+    private final Duration retention;
+    private final Clock clock;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    // ใช้จาก thread ของ scheduler เท่านั้น
+    private Instant lastPoll;
+    private final Map<Long, Instant> delivered = new HashMap<>();
+
+    public DatabaseCacheInvalidationBus(CacheInvalidationRecordRepository repository,
+                                        CacheInvalidationBatchRepository batchRepository,
+                                        Duration lookback,
+                                        Duration retention,
+                                        Clock clock) {
+        this.repository = repository;
+        this.batchRepository = batchRepository;
+        this.lookback = lookback;
+        this.retention = retention;
+        this.clock = clock;
+        // cache ของ pod ที่เพิ่ง start ยังว่าง ไม่ต้องอ่านแถวเก่า
+        this.lastPoll = clock.instant();
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        publishAll(List.of(invalidation));
+    }
+
+    @Override
+    public void publishAll(Collection<CacheInvalidation> invalidations) {
+        Instant now = clock.instant();
+        List<CacheInvalidationRecord> records = new ArrayList<>(invalidations.size());
+        for (CacheInvalidation invalidation : invalidations) {
+            records.add(CacheInvalidationRecord.builder()
+                    .kind(invalidation.getKind())
+                    .entityId(invalidation.getId())
+                    .origin(nodeId)
+                    .createdAt(now)
+                    .build());
+        }
+        batchRepository.insertAll(records);
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.poll-interval-ms:1000}")
+    public void poll() {
+        Instant now = clock.instant();
+        Instant since = lastPoll.minus(lookback);
+
+        for (CacheInvalidationRecord record : repository.findByCreatedAtAfterOrderByIdAsc(since)) {
+            if (delivered.putIfAbsent(record.getId(), record.getCreatedAt()) != null
+                    || nodeId.equals(record.getOrigin())) {
+                continue;
+            }
+            deliver(new CacheInvalidation(record.getKind(), record.getEntityId()));
+        }
+
+        delivered.values().removeIf(createdAt -> !createdAt.isAfter(since));
+        lastPoll = now;
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.purge-interval-ms:600000}")
+    public void purge() {
+        long deleted = repository.deleteByCreatedAtBefore(clock.instant().minus(retention));
+        if (deleted > 0) {
+            log.debug("Purged {} cache invalidation rows", deleted);
+        }
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    private void deliver(CacheInvalidation invalidation) {
+        for (Consumer<CacheInvalidation> listener : listeners) {
+            try {
+                listener.accept(invalidation);
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation listener failed for {}", invalidation, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package aekkasit.prodev.backend.cache.service;
+
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Bus between instances living in the same JVM. A single instance has no peers, so this is the
+ * single-pod default; {@link #join()} adds a peer on the same channel (used by tests).
+ */
+@Slf4j
+public class InJvmCacheInvalidationBus implements CacheInvalidationBus {
+
+    private final List<InJvmCacheInvalidationBus> channel;
+    private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    public InJvmCacheInvalidationBus() {
+        this(new CopyOnWriteArrayList<>());
+    }
+
+    private InJvmCacheInvalidationBus(List<InJvmCacheInvalidationBus> channel) {
+        this.channel = channel;
+        channel.add(this);
+    }
+
+    public InJvmCacheInvalidationBus join() {
+        return new InJvmCacheInvalidationBus(channel);
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        publishAll(List.of(invalidation));
+    }
+
+    @Override
+    public void publishAll(Collection<CacheInvalidation> invalidations) {
+        List<CacheInvalidation> batch = List.copyOf(invalidations);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    batch.forEach(InJvmCacheInvalidationBus.this::send);
+                }
+            });
+        } else {
+            batch.forEach(this::send);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+
+    private void send(CacheInvalidation invalidation) {
+        for (InJvmCacheInvalidationBus peer : channel) {
+            if (peer != this) {
+                peer.deliver(invalidation);
+            }
+        }
+    }
+
+    private void deliver(CacheInvalidation invalidation) {
+        for (Consumer<CacheInvalidation> listener : listeners) {
+            try {
+                listener.accept(invalidation);
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation listener failed for {}", invalidation, e);
+            }
+        }
+    }
+}
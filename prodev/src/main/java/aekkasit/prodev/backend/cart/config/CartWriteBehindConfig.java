@@ -0,0 +1,37 @@
+package aekkasit.prodev.backend.cart.config;
+
+import aekkasit.prodev.backend.cart.repository.CartRepository;
+import aekkasit.prodev.backend.cart.service.CartWriteBehindStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+
+// เปิดเมื่อ cart.write-behind.enabled=true: cart อยู่ใน memory แล้วค่อยเขียนลง cart_items เป็น batch
+@Configuration
+@ConditionalOnProperty(name = "cart.write-behind.enabled", havingValue = "true")
+public class CartWriteBehindConfig {
+
+    @Bean
+    public CartWriteBehindStore cartWriteBehindStore(
+            CartRepository cartRepository,
+            JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${cart.write-behind.idle-timeout:30m}") Duration idleTimeout
+    ) {
+        // flush commit เองเสมอ (ผู้เรียกต้อง flush ก่อนเข้า transaction ของตัวเอง เช่น OrderController.checkout)
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return new CartWriteBehindStore(cartRepository, jdbcTemplate, namedParameterJdbcTemplate,
+                transactionTemplate, idleTimeout, Clock.systemUTC());
+    }
+}
@@ -1,5 +1,6 @@
 package aekkasit.prodev.backend.cart.controller;
 
+import aekkasit.prodev.backend.cart.dto.CartItemOperation;
 import aekkasit.prodev.backend.cart.dto.CartResponse;
 import aekkasit.prodev.backend.cart.service.CartService;
 import aekkasit.prodev.backend.user.model.User;
@@ -7,6 +8,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -42,6 +44,13 @@ public class CartController {
         return ResponseEntity.ok(cartService.updateQty(getCurrentUser(auth), itemId, qty));
     }
 
+    // หลายรายการใน request เดียว (เช่น merge guest cart, สั่งซ้ำทั้งออเดอร์)
+    @PatchMapping("/items")
+    public ResponseEntity<CartResponse> applyOperations(@RequestBody List<CartItemOperation> operations,
+                                                        Authentication auth) {
+        return ResponseEntity.ok(cartService.applyOperations(getCurrentUser(auth), operations));
+    }
+
     @DeleteMapping("/clear")
     public ResponseEntity<String> clearCart(Authentication auth) {
         cartService.clearCart(getCurrentUser(auth));
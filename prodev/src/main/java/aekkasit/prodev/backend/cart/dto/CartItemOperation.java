@@ -0,0 +1,21 @@
+package aekkasit.prodev.backend.cart.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// หนึ่งคำสั่งของ PATCH /api/cart/items: ADD เพิ่มจำนวน, SET ตั้งจำนวน, REMOVE เอาออก
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartItemOperation {
+
+    public enum Type {
+        ADD, SET, REMOVE
+    }
+
+    private Type op;
+    private Long productId;
+    private Long itemId; // ใช้แทน productId ได้ (id จาก CartItemResponse)
+    private int qty;
+}
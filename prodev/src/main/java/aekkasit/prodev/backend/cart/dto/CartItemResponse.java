@@ -1,11 +1,9 @@
 // CartItemResponse.java
 package aekkasit.prodev.backend.cart.dto;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 
 @Data
-@AllArgsConstructor
 public class CartItemResponse {
     private Long id;
     private String productName;
@@ -14,4 +12,16 @@ public class CartItemResponse {
     private String image;
     private int stock;
     private String category;
-}
\ No newline at end of file
+
+    // ใช้กับ JPQL constructor expression ของ CartItemRepository.findCartView: สินค้าไม่มีรูป/ไม่มี stock จะได้ null
+    public CartItemResponse(Long id, String productName, Integer quantity, Double price,
+                            String image, Integer stock, String category) {
+        this.id = id;
+        this.productName = productName;
+        this.quantity = quantity != null ? quantity : 0;
+        this.price = price != null ? price : 0;
+        this.image = image != null ? image : "";
+        this.stock = stock != null ? stock : 0;
+        this.category = category;
+    }
+}
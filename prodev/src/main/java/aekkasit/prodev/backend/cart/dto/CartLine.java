@@ -0,0 +1,13 @@
+package aekkasit.prodev.backend.cart.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// รายการใน cart แบบไม่โหลด Product: id ของแถว cart_items (write-behind ที่ยังไม่ insert ใช้ -productId)
+@Getter
+@AllArgsConstructor
+public class CartLine {
+    private final Long id;
+    private final Long productId;
+    private final int quantity;
+}
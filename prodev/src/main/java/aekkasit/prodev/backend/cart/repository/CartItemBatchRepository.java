@@ -0,0 +1,60 @@
+package aekkasit.prodev.backend.cart.repository;
+
+import aekkasit.prodev.backend.cart.dto.CartLine;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Cart line reads and writes in plain JDBC. {@code cart_items} uses IDENTITY ids, which stops
+ * Hibernate from batching inserts, so several lines are written here in one JDBC batch per statement.
+ */
+@Repository
+public class CartItemBatchRepository {
+
+    static final String SELECT_LINES_SQL =
+            "SELECT id, product_id, quantity FROM cart_items WHERE cart_id = ? ORDER BY id";
+    static final String INSERT_SQL = "INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?)";
+    static final String UPDATE_SQL = "UPDATE cart_items SET quantity = ? WHERE id = ?";
+    static final String DELETE_SQL = "DELETE FROM cart_items WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CartItemBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Lines of a cart without loading their products.
+     */
+    public List<CartLine> findLines(Long cartId) {
+        return jdbcTemplate.query(SELECT_LINES_SQL, (rs, rowNum) ->
+                new CartLine(rs.getLong("id"), rs.getLong("product_id"), rs.getInt("quantity")), cartId);
+    }
+
+    public void insert(Long cartId, Map<Long, Integer> quantitiesByProductId) {
+        if (quantitiesByProductId.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        quantitiesByProductId.forEach((productId, qty) -> rows.add(new Object[]{cartId, productId, qty}));
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    public void updateQuantities(Map<Long, Integer> quantitiesByItemId) {
+        if (quantitiesByItemId.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        quantitiesByItemId.forEach((itemId, qty) -> rows.add(new Object[]{qty, itemId}));
+        jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+    }
+
+    public void delete(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(DELETE_SQL, itemIds.stream().map(id -> new Object[]{id}).toList());
+    }
+}
@@ -1,10 +1,29 @@
 package aekkasit.prodev.backend.cart.repository;
 
+import aekkasit.prodev.backend.cart.dto.CartItemResponse;
 import aekkasit.prodev.backend.cart.model.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.List;
+import java.util.Optional;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByCartId(Long cartId);
-}
 
+    Optional<CartItem> findByCartIdAndProductId(Long cartId, Long productId);
+
+    // item ต้องอยู่ใน cart ของ user คนนี้เท่านั้น
+    Optional<CartItem> findByIdAndCartUserId(Long id, Long userId);
+
+    // หน้า cart ใน query เดียว: ไม่โหลด entity Product/รูปทั้งหมด, รูปแรกของสินค้าจาก subquery
+    @Query("SELECT new aekkasit.prodev.backend.cart.dto.CartItemResponse(" +
+            "i.id, p.name, i.quantity, p.price, " +
+            "(SELECT img FROM Product p2 JOIN p2.images img WHERE p2.id = p.id LIMIT 1), " +
+            "p.quantity, p.category) " +
+            "FROM CartItem i JOIN i.product p " +
+            "WHERE i.cart.user.id = :userId " +
+            "ORDER BY i.id")
+    List<CartItemResponse> findCartView(@Param("userId") Long userId);
+}
@@ -1,18 +1,24 @@
 package aekkasit.prodev.backend.cart.service;
 
+import aekkasit.prodev.backend.cart.dto.CartLine;
+import aekkasit.prodev.backend.cart.dto.CartItemOperation;
 import aekkasit.prodev.backend.cart.dto.CartItemResponse;
 import aekkasit.prodev.backend.cart.dto.CartResponse;
 import aekkasit.prodev.backend.cart.model.Cart;
 import aekkasit.prodev.backend.cart.model.CartItem;
+import aekkasit.prodev.backend.cart.repository.CartItemBatchRepository;
 import aekkasit.prodev.backend.cart.repository.CartRepository;
 import aekkasit.prodev.backend.cart.repository.CartItemRepository;
 import aekkasit.prodev.backend.product.model.Product;
 import aekkasit.prodev.backend.product.repository.ProductRepository;
 import aekkasit.prodev.backend.user.model.User;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class CartService {
@@ -20,13 +26,20 @@ public class CartService {
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
+    private final CartItemBatchRepository cartItemBatchRepository;
+    // มีเมื่อ cart.write-behind.enabled=true
+    private final CartWriteBehindStore writeBehindStore;
 
     public CartService(CartRepository cartRepository,
                        CartItemRepository cartItemRepository,
-                       ProductRepository productRepository) {
+                       ProductRepository productRepository,
+                       CartItemBatchRepository cartItemBatchRepository,
+                       @Nullable CartWriteBehindStore writeBehindStore) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.productRepository = productRepository;
+        this.cartItemBatchRepository = cartItemBatchRepository;
+        this.writeBehindStore = writeBehindStore;
     }
 
     public Cart getCart(User user) {
@@ -37,37 +50,30 @@ public class CartService {
         });
     }
 
+    // อ่าน cart ด้วย projection query เดียว ไม่ว่าจะมีกี่รายการ
     public CartResponse getCartResponse(User user) {
-        Cart cart = getCart(user);
-        // ดึงรายการล่าสุดจาก DB
-        List<CartItem> cartItems = cartItemRepository.findByCartId(cart.getId());
+        List<CartItemResponse> items = writeBehindStore != null
+                ? inMemoryCartView(user)
+                : cartItemRepository.findCartView(user.getId());
 
-        List<CartItemResponse> items = cartItems.stream()
-                .map(i -> new CartItemResponse(
-                        i.getId(),
-                        i.getProduct().getName(),
-                        i.getQuantity(),
-                        i.getProduct().getPrice(),
-                        i.getProduct().getImages().isEmpty() ? "" : i.getProduct().getImages().get(0),
-                        i.getProduct().getQuantity(),
-                        i.getProduct().getCategory()
-                ))
-                .toList();
-
-        double total = items.stream().mapToDouble(i -> i.getQuantity() * i.getPrice()).sum();
+        double total = 0;
+        for (CartItemResponse item : items) {
+            total += item.getQuantity() * item.getPrice();
+        }
         return new CartResponse(items, total);
     }
 
     public CartResponse addToCart(User user, Long productId, int qty) {
-        Cart cart = getCart(user);
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
-        // ดึง cart items ล่าสุดจาก DB
-        List<CartItem> cartItems = cartItemRepository.findByCartId(cart.getId());
-        Optional<CartItem> existingItem = cartItems.stream()
-                .filter(i -> i.getProduct().getId().equals(productId))
-                .findFirst();
+        if (writeBehindStore != null) {
+            writeBehindStore.add(user, product, qty);
+            return getCartResponse(user);
+        }
+
+        Cart cart = getCart(user);
+        Optional<CartItem> existingItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), productId);
 
         int totalQty = qty + existingItem.map(CartItem::getQuantity).orElse(0);
         if (totalQty > product.getQuantity()) {
@@ -91,8 +97,19 @@ public class CartService {
     }
 
     public CartResponse updateQty(User user, Long itemId, int qty) {
-        Cart cart = getCart(user);
-        CartItem item = cartItemRepository.findById(itemId)
+        if (writeBehindStore != null) {
+            Long productId = writeBehindStore.productIdOf(user, itemId)
+                    .orElseThrow(() -> new RuntimeException("Item not found"));
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            if (qty > product.getQuantity()) {
+                throw new RuntimeException("Cannot set quantity higher than available stock");
+            }
+            writeBehindStore.setQuantity(user, productId, qty);
+            return getCartResponse(user);
+        }
+
+        CartItem item = cartItemRepository.findByIdAndCartUserId(itemId, user.getId())
                 .orElseThrow(() -> new RuntimeException("Item not found"));
 
         if (qty > item.getProduct().getQuantity()) {
@@ -109,10 +126,150 @@ public class CartService {
         return getCartResponse(user);
     }
 
+    /**
+     * Applies a list of add/set/remove operations in one transaction, in order. Stock of every product
+     * touched is checked with one query and the changed lines are written in JDBC batches. With the
+     * write-behind cart, stock is fetched first and the lines are then read, changed and written in one
+     * critical section of the user's cart, so a concurrent add is never overwritten.
+     */
+    @Transactional
+    public CartResponse applyOperations(User user, List<CartItemOperation> operations) {
+        if (writeBehindStore != null) {
+            // สินค้าที่แตะดูจาก snapshot; query stock ก่อนเข้า lock ของ cart เพราะใน lock ห้ามมี I/O
+            List<Long> touched = List.copyOf(quantitiesAfter(operations, writeBehindStore.lines(user)).keySet());
+            Map<Long, Product> products = findProducts(touched);
+            writeBehindStore.updateLines(user, lines -> {
+                Map<Long, Integer> quantities = quantitiesAfter(operations, lines);
+                checkStock(quantities, products);
+                return quantities;
+            });
+            return getCartResponse(user);
+        }
+
+        Long cartId = getCart(user).getId();
+        List<CartLine> lines = cartItemBatchRepository.findLines(cartId);
+        Map<Long, Integer> quantities = quantitiesAfter(operations, lines);
+
+        // ตรวจ stock ของทุกสินค้าที่จะมีในตะกร้าใน query เดียว
+        List<Long> kept = quantities.entrySet().stream()
+                .filter(e -> e.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .toList();
+        checkStock(quantities, findProducts(kept));
+
+        Map<Long, CartLine> lineByProductId = lines.stream()
+                .collect(Collectors.toMap(CartLine::getProductId, Function.identity(), (a, b) -> b));
+        Map<Long, Integer> inserts = new LinkedHashMap<>();
+        Map<Long, Integer> updates = new LinkedHashMap<>();
+        List<Long> deletes = new ArrayList<>();
+        quantities.forEach((productId, qty) -> {
+            CartLine line = lineByProductId.get(productId);
+            if (line == null) {
+                if (qty > 0) {
+                    inserts.put(productId, qty);
+                }
+            } else if (qty == 0) {
+                deletes.add(line.getId());
+            } else if (qty != line.getQuantity()) {
+                updates.put(line.getId(), qty);
+            }
+        });
+        cartItemBatchRepository.insert(cartId, inserts);
+        cartItemBatchRepository.updateQuantities(updates);
+        cartItemBatchRepository.delete(deletes);
+
+        return getCartResponse(user);
+    }
+
+    // จำนวนสุดท้ายของแต่ละสินค้าหลังทำทุกคำสั่งกับ lines ที่ให้มา (0 = เอาออก)
+    private static Map<Long, Integer> quantitiesAfter(List<CartItemOperation> operations, List<CartLine> lines) {
+        Map<Long, CartLine> lineByProductId = new HashMap<>();
+        Map<Long, Long> productIdByItemId = new HashMap<>();
+        for (CartLine line : lines) {
+            lineByProductId.put(line.getProductId(), line);
+            productIdByItemId.put(line.getId(), line.getProductId());
+        }
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartItemOperation operation : operations) {
+            Long productId = productIdOf(operation, productIdByItemId);
+            CartLine line = lineByProductId.get(productId);
+            int qty = quantities.getOrDefault(productId, line != null ? line.getQuantity() : 0);
+            switch (operation.getOp()) {
+                case ADD -> qty += operation.getQty();
+                case SET -> qty = operation.getQty();
+                case REMOVE -> qty = 0;
+            }
+            quantities.put(productId, Math.max(qty, 0));
+        }
+        return quantities;
+    }
+
+    private Map<Long, Product> findProducts(List<Long> productIds) {
+        return productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private static void checkStock(Map<Long, Integer> quantities, Map<Long, Product> products) {
+        quantities.forEach((productId, qty) -> {
+            if (qty == 0) {
+                return;
+            }
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new RuntimeException("Product not found");
+            }
+            if (product.getQuantity() == null || qty > product.getQuantity()) {
+                throw new RuntimeException("Not enough stock for product: " + product.getName());
+            }
+        });
+    }
+
+    private static Long productIdOf(CartItemOperation operation, Map<Long, Long> productIdByItemId) {
+        if (operation.getOp() == null || operation.getQty() < 0) {
+            throw new RuntimeException("Invalid cart operation");
+        }
+        if (operation.getProductId() != null) {
+            return operation.getProductId();
+        }
+        if (operation.getItemId() != null && productIdByItemId.containsKey(operation.getItemId())) {
+            return productIdByItemId.get(operation.getItemId());
+        }
+        throw new RuntimeException("Item not found");
+    }
+
     public void clearCart(User user) {
+        if (writeBehindStore != null) {
+            writeBehindStore.clear(user);
+            return;
+        }
         Cart cart = getCart(user);
         // ดึงรายการล่าสุดจาก DB
         List<CartItem> cartItems = cartItemRepository.findByCartId(cart.getId());
         cartItemRepository.deleteAll(cartItems);
     }
+
+    // ให้ cart_items ใน DB ตรงกับ cart ใน memory (เช่นก่อน checkout); เรียกนอก transaction เท่านั้น
+    public void flush(User user) {
+        if (writeBehindStore != null) {
+            writeBehindStore.flush(user);
+        }
+    }
+
+    // write-behind: ข้อมูลสินค้ามาจาก second-level cache ของ Product ไม่ต้องอ่าน cart_items
+    private List<CartItemResponse> inMemoryCartView(User user) {
+        List<CartItemResponse> items = new ArrayList<>();
+        for (CartLine line : writeBehindStore.lines(user)) {
+            productRepository.findById(line.getProductId()).ifPresent(p -> items.add(new CartItemResponse(
+                    line.getId(),
+                    p.getName(),
+                    line.getQuantity(),
+                    p.getPrice(),
+                    p.getImages() == null || p.getImages().isEmpty() ? "" : p.getImages().get(0),
+                    p.getQuantity(),
+                    p.getCategory()
+            )));
+        }
+        return items;
+    }
 }
@@ -0,0 +1,535 @@
+package aekkasit.prodev.backend.cart.service;
+
+import aekkasit.prodev.backend.cart.dto.CartLine;
+import aekkasit.prodev.backend.cart.model.Cart;
+import aekkasit.prodev.backend.cart.repository.CartRepository;
+import aekkasit.prodev.backend.product.model.Product;
+import aekkasit.prodev.backend.user.model.User;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Optional write-behind store for carts ({@code cart.write-behind.enabled=true}).
+ * <p>
+ * Active carts are kept in memory, one monitor per user, so concurrent requests of different users
+ * never contend; loading a cart and writing its rows lock only that cart. Changes to a line are
+ * coalesced (only its latest quantity is kept) and written to {@code cart_items} in JDBC batches
+ * every flush interval, before checkout and on shutdown. A change reaches the database at most one
+ * flush interval after it is made, which bounds what a crash can lose.
+ * <p>
+ * Carts live only on the pod that served the user, so with several pods a user must be routed to
+ * the same pod (sticky sessions).
+ */
+@Slf4j
+public class CartWriteBehindStore {
+
+    static final String LOAD_SQL = "SELECT id, product_id, quantity FROM cart_items WHERE cart_id = ? ORDER BY id";
+    static final String INSERT_SQL =
+            "INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (:cartId, :productId, :quantity)";
+    static final String UPDATE_SQL = "UPDATE cart_items SET quantity = ? WHERE id = ?";
+    static final String DELETE_SQL = "DELETE FROM cart_items WHERE id = ?";
+    static final String CLEAR_SQL = "DELETE FROM cart_items WHERE cart_id = ?";
+
+    private static final class Line {
+        final long productId;
+        Long itemId;        // null = ยังไม่ได้ insert
+        int quantity;       // 0 = ถูกลบ รอ flush
+        int version;        // เพิ่มทุกครั้งที่แก้
+        int flushedVersion; // version ล่าสุดที่ลง DB แล้ว
+
+        Line(long productId, Long itemId, int quantity) {
+            this.productId = productId;
+            this.itemId = itemId;
+            this.quantity = quantity;
+        }
+
+        boolean dirty() {
+            return version != flushedVersion;
+        }
+    }
+
+    // field ทั้งหมดแก้ภายใต้ monitor ของ cart; writeLock กันไม่ให้เขียนแถวของ cart เดียวกันซ้อนกัน
+    private static final class UserCart {
+        final Map<Long, Line> lines = new LinkedHashMap<>();
+        final ReentrantLock writeLock = new ReentrantLock();
+        Long cartId;        // null = ยังไม่ได้โหลดจาก DB
+        Instant lastAccess;
+        boolean detached;   // ถูก evict/clear ไปแล้ว ต้องโหลดใหม่
+        boolean evictAfterFlush;     // clear จบแล้วแต่มีของค้าง: เขียนก่อนแล้วค่อยเอาออก
+        List<CartLine> deletedRows;  // แถวที่ clear ลบใน transaction ที่ยังไม่จบ (null = ไม่มี)
+
+        UserCart(Instant lastAccess) {
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class PendingWrite {
+        final UserCart cart;
+        final Line line;
+        final Long itemId;
+        final int quantity;
+        final int version;
+
+        PendingWrite(UserCart cart, Line line) {
+            this.cart = cart;
+            this.line = line;
+            this.itemId = line.itemId;
+            this.quantity = line.quantity;
+            this.version = line.version;
+        }
+    }
+
+    private final CartRepository cartRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration idleTimeout;
+    private final Clock clock;
+
+    // map ไม่ทำ I/O ใน compute: cart ใหม่ใส่เป็นช่องว่างก่อน แล้วค่อยโหลดใต้ monitor ของ cart นั้น
+    private final ConcurrentHashMap<Long, UserCart> carts = new ConcurrentHashMap<>();
+
+    /**
+     * @param transactionTemplate should use {@code REQUIRES_NEW}, so a flush always commits on its own;
+     *                            callers still flush outside their transaction, or it needs a second
+     *                            connection
+     */
+    public CartWriteBehindStore(CartRepository cartRepository,
+                                JdbcTemplate jdbcTemplate,
+                                NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                Duration idleTimeout,
+                                Clock clock) {
+        this.cartRepository = cartRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.idleTimeout = idleTimeout;
+        this.clock = clock;
+    }
+
+    /**
+     * Lines with a quantity. Lines not written yet have no row id; they use {@code -productId} as id
+     * so the client can still address them.
+     */
+    public List<CartLine> lines(User user) {
+        return withCart(user, CartWriteBehindStore::snapshot);
+    }
+
+    /**
+     * Adds {@code qty} to the product's line, checked against the product's stock.
+     */
+    public void add(User user, Product product, int qty) {
+        withCart(user, cart -> {
+            Line line = cart.lines.get(product.getId());
+            int totalQty = qty + (line != null ? line.quantity : 0);
+            if (totalQty > product.getQuantity()) {
+                throw new RuntimeException("Cannot add more than available stock");
+            }
+            set(cart, product.getId(), totalQty);
+            return null;
+        });
+    }
+
+    /**
+     * Sets the quantity of a product's line; 0 or less removes it.
+     */
+    public void setQuantity(User user, Long productId, int qty) {
+        withCart(user, cart -> {
+            set(cart, productId, Math.max(qty, 0));
+            return null;
+        });
+    }
+
+    /**
+     * Reads the lines, computes new quantities by product id from them and writes those back, all
+     * while holding this user's cart, so no other change to the cart can land in between; 0 removes
+     * a line. {@code change} runs under the cart's monitor and must not do I/O; if it throws, nothing
+     * is written.
+     */
+    public void updateLines(User user, Function<List<CartLine>, Map<Long, Integer>> change) {
+        withCart(user, cart -> {
+            Map<Long, Integer> quantities = change.apply(snapshot(cart));
+            quantities.forEach((productId, qty) -> set(cart, productId, Math.max(qty, 0)));
+            return null;
+        });
+    }
+
+    /**
+     * Resolves an item id shown to the client (row id or {@code -productId}) within the user's cart.
+     */
+    public Optional<Long> productIdOf(User user, Long itemId) {
+        return withCart(user, cart -> {
+            for (Line line : cart.lines.values()) {
+                if (line.quantity > 0 && (itemId.equals(line.itemId) || itemId == -line.productId)) {
+                    return Optional.of(line.productId);
+                }
+            }
+            return Optional.empty();
+        });
+    }
+
+    /**
+     * Drops the user's cart from memory and deletes its rows. Requests for the same user wait until
+     * the rows are gone, then see the empty cart. Only this user's cart is locked.
+     * <p>
+     * Inside a transaction the cart is dropped again once it completes, on commit and on rollback, so
+     * the next request reloads what the database holds. Changes made in between are written first:
+     * on rollback they are applied on top of the rows that came back.
+     */
+    public void clear(User user) {
+        Long cartId = cartRepository.findByUser(user).map(Cart::getId).orElse(null);
+        if (cartId == null) {
+            return;
+        }
+
+        UserCart cleared = new UserCart(clock.instant());
+        while (true) {
+            UserCart current = carts.get(user.getId());
+            if (current == null) {
+                synchronized (cleared) {
+                    if (carts.putIfAbsent(user.getId(), cleared) == null) {
+                        deleteRows(user.getId(), cleared, cartId);
+                        break;
+                    }
+                }
+                continue;
+            }
+
+            // รอให้ flush ที่กำลังเขียน cart นี้อยู่เสร็จก่อน ไม่งั้นแถวที่ insert ทีหลังจะรอดการลบ
+            current.writeLock.lock();
+            try {
+                synchronized (cleared) {
+                    if (!carts.replace(user.getId(), current, cleared)) {
+                        continue;
+                    }
+                    synchronized (current) {
+                        // ของที่ค้างก่อน clear ไม่ถูกเขียนทีหลัง
+                        current.detached = true;
+                        current.lines.clear();
+                    }
+                    deleteRows(user.getId(), cleared, cartId);
+                    break;
+                }
+            } finally {
+                current.writeLock.unlock();
+            }
+        }
+
+        // ใน transaction ของ checkout: commit แล้ว request อื่นอาจโหลดแถวเดิมไปก่อน, rollback แล้วแถวกลับมา
+        // แต่ memory ยังว่าง ทั้งสองกรณีต้องทำให้ตรงกับ DB หลังจบ transaction
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    completeClear(user.getId(), cleared, status == STATUS_ROLLED_BACK);
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes pending changes of one user, e.g. before checkout reads {@code cart_items}. Call it outside
+     * a transaction: the write runs in its own one and would otherwise hold a second pooled connection.
+     * Only this user's cart is locked, so it never waits for the periodic flush of other carts.
+     */
+    public void flush(User user) {
+        UserCart cart = carts.get(user.getId());
+        if (cart == null) {
+            return;
+        }
+        cart.writeLock.lock();
+        try {
+            List<PendingWrite> pending = new ArrayList<>();
+            collect(cart, pending);
+            if (write(pending) && cart.evictAfterFlush) {
+                evictIfClean(user.getId(), cart);
+            }
+        } finally {
+            cart.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes pending changes of all carts in one transaction. Carts that their user is flushing or
+     * clearing right now are skipped; the user's own call writes them.
+     */
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-interval-ms:2000}")
+    public void flush() {
+        List<UserCart> locked = new ArrayList<>();
+        boolean written;
+        try {
+            List<PendingWrite> pending = new ArrayList<>();
+            for (UserCart cart : carts.values()) {
+                if (!cart.writeLock.tryLock()) {
+                    continue;
+                }
+                int before = pending.size();
+                collect(cart, pending);
+                // ถือ lock ไว้เฉพาะ cart ที่มีของต้องเขียน
+                if (pending.size() > before) {
+                    locked.add(cart);
+                } else {
+                    cart.writeLock.unlock();
+                }
+            }
+            written = write(pending);
+        } finally {
+            locked.forEach(cart -> cart.writeLock.unlock());
+        }
+        if (written) {
+            evictIdle();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        long dirty = carts.values().stream().filter(CartWriteBehindStore::hasDirtyLines).count();
+        if (dirty > 0) {
+            log.error("{} carts still had unsaved changes at shutdown", dirty);
+        }
+    }
+
+    int size() {
+        return carts.size();
+    }
+
+    private <T> T withCart(User user, Function<UserCart, T> action) {
+        while (true) {
+            UserCart cart = carts.computeIfAbsent(user.getId(), userId -> new UserCart(clock.instant()));
+            synchronized (cart) {
+                if (!cart.detached) {
+                    if (cart.cartId == null) {
+                        // I/O ใต้ monitor ของ cart นี้เท่านั้น user อื่นไม่ต้องรอ
+                        load(user, cart);
+                    }
+                    cart.lastAccess = clock.instant();
+                    return action.apply(cart);
+                }
+            }
+        }
+    }
+
+    private void load(User user, UserCart userCart) {
+        Cart cart = cartRepository.findByUser(user).orElseGet(() ->
+                cartRepository.save(Cart.builder().user(user).items(new ArrayList<>()).build()));
+
+        for (CartLine row : loadRows(cart.getId())) {
+            userCart.lines.put(row.getProductId(), new Line(row.getProductId(), row.getId(), row.getQuantity()));
+        }
+        userCart.cartId = cart.getId();
+    }
+
+    private List<CartLine> loadRows(long cartId) {
+        return jdbcTemplate.query(LOAD_SQL, (rs, rowNum) ->
+                new CartLine(rs.getLong("id"), rs.getLong("product_id"), rs.getInt("quantity")), cartId);
+    }
+
+    // เรียกขณะถือ monitor ของ cleared: request ของ user นี้รอจนแถวถูกลบ แล้วเห็น cart ว่าง
+    private void deleteRows(Long userId, UserCart cleared, long cartId) {
+        try {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                // จำแถวที่ลบไว้: ถ้า transaction rollback แถวพวกนี้กลับมา
+                cleared.deletedRows = loadRows(cartId);
+            }
+            jdbcTemplate.update(CLEAR_SQL, cartId);
+        } catch (RuntimeException e) {
+            // ลบไม่สำเร็จ: ให้โหลดจาก DB ใหม่
+            cleared.detached = true;
+            carts.remove(userId, cleared);
+            throw e;
+        }
+        cleared.cartId = cartId;
+    }
+
+    private static List<CartLine> snapshot(UserCart cart) {
+        List<CartLine> lines = new ArrayList<>(cart.lines.size());
+        for (Line line : cart.lines.values()) {
+            if (line.quantity > 0) {
+                lines.add(new CartLine(line.itemId != null ? line.itemId : -line.productId,
+                        line.productId, line.quantity));
+            }
+        }
+        return lines;
+    }
+
+    private static void set(UserCart cart, long productId, int qty) {
+        Line line = cart.lines.computeIfAbsent(productId, id -> new Line(id, null, 0));
+        if (line.quantity != qty) {
+            line.quantity = qty;
+            line.version++;
+        }
+    }
+
+    private static void collect(UserCart cart, List<PendingWrite> pending) {
+        synchronized (cart) {
+            if (cart.deletedRows != null) {
+                // transaction ที่ clear ยังไม่จบ: ถ้าเขียนตอนนี้แล้ว rollback จะได้แถวซ้ำกับแถวที่กลับมา
+                return;
+            }
+            Iterator<Line> lines = cart.lines.values().iterator();
+            while (lines.hasNext()) {
+                Line line = lines.next();
+                if (!line.dirty()) {
+                    continue;
+                }
+                if (line.itemId == null && line.quantity == 0) {
+                    // เพิ่มแล้วลบก่อน flush: ไม่ต้องแตะ DB
+                    lines.remove();
+                } else {
+                    pending.add(new PendingWrite(cart, line));
+                }
+            }
+        }
+    }
+
+    // เขียนทั้งหมดใน transaction เดียว: พลาดก็ยังค้าง dirty ไว้ลองใหม่รอบหน้า
+    private boolean write(List<PendingWrite> pending) {
+        if (pending.isEmpty()) {
+            return true;
+        }
+
+        List<PendingWrite> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (PendingWrite write : pending) {
+            if (write.itemId == null) {
+                inserts.add(write);
+            } else if (write.quantity > 0) {
+                updates.add(new Object[]{write.quantity, write.itemId});
+            } else {
+                deletes.add(new Object[]{write.itemId});
+            }
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!inserts.isEmpty()) {
+                    SqlParameterSource[] params = inserts.stream()
+                            .map(w -> new MapSqlParameterSource()
+                                    .addValue("cartId", w.cart.cartId)
+                                    .addValue("productId", w.line.productId)
+                                    .addValue("quantity", w.quantity))
+                            .toArray(SqlParameterSource[]::new);
+                    namedParameterJdbcTemplate.batchUpdate(INSERT_SQL, params, keyHolder, new String[]{"id"});
+                }
+                if (!updates.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+                }
+                if (!deletes.isEmpty()) {
+                    jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Cart flush of {} lines failed, retrying next interval", pending.size(), e);
+            return false;
+        }
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < inserts.size(); i++) {
+            PendingWrite write = inserts.get(i);
+            synchronized (write.cart) {
+                write.line.itemId = ((Number) keys.get(i).values().iterator().next()).longValue();
+            }
+        }
+        for (PendingWrite write : pending) {
+            synchronized (write.cart) {
+                // ถ้าแก้อีกระหว่างเขียน ยัง dirty อยู่ รอรอบหน้า
+                if (write.line.version == write.version) {
+                    write.line.flushedVersion = write.version;
+                    if (write.quantity == 0) {
+                        write.cart.lines.remove(write.line.productId);
+                    }
+                }
+            }
+        }
+        log.debug("Flushed {} cart lines ({} inserts, {} updates, {} deletes)",
+                pending.size(), inserts.size(), updates.size(), deletes.size());
+        return true;
+    }
+
+    // cart ที่ไม่มีอะไรค้างและไม่ได้ใช้นานเกิน idle-timeout (หรือรอเอาออกหลัง clear) เอาออกจาก memory
+    private void evictIdle() {
+        Instant cutoff = clock.instant().minus(idleTimeout);
+        carts.forEach((userId, cart) -> {
+            synchronized (cart) {
+                if (cart.evictAfterFlush || !cart.lastAccess.isAfter(cutoff)) {
+                    evictIfClean(userId, cart);
+                }
+            }
+        });
+    }
+
+    // ไม่เอา cart ที่มีของค้างออก: การแก้ที่ยังไม่ลง DB จะหาย
+    private boolean evictIfClean(Long userId, UserCart cart) {
+        synchronized (cart) {
+            if (hasDirtyLines(cart)) {
+                return false;
+            }
+            cart.detached = true;
+            carts.remove(userId, cart);
+            return true;
+        }
+    }
+
+    // transaction ที่ clear จบแล้ว: cart ที่ไม่มีของค้างเอาออกให้โหลดจาก DB ใหม่ ส่วนที่ user แก้ระหว่างนั้น
+    // รอ flush รอบถัดไปเขียนก่อนแล้วค่อยเอาออก (ไม่ flush ที่นี่: connection ของ transaction เดิมยังไม่คืน)
+    private void completeClear(Long userId, UserCart cleared, boolean rolledBack) {
+        // รอ flush ที่กำลังเขียน cart นี้อยู่ ไม่ให้ itemId เปลี่ยนระหว่างเขียน
+        cleared.writeLock.lock();
+        try {
+            synchronized (cleared) {
+                List<CartLine> deletedRows = cleared.deletedRows;
+                cleared.deletedRows = null;
+                if (cleared.detached) {
+                    return;
+                }
+                if (rolledBack && deletedRows != null) {
+                    // แถวที่ลบกลับมาแล้ว: line ที่แก้ใหม่ของสินค้าเดิมเขียนลงแถวนั้น (ไม่ insert ซ้ำ)
+                    // ที่เหลือใส่คืน
+                    for (CartLine row : deletedRows) {
+                        Line line = cleared.lines.get(row.getProductId());
+                        if (line == null || (line.itemId == null && !line.dirty())) {
+                            cleared.lines.put(row.getProductId(),
+                                    new Line(row.getProductId(), row.getId(), row.getQuantity()));
+                        } else if (line.itemId == null) {
+                            line.itemId = row.getId();
+                        }
+                    }
+                }
+                if (!evictIfClean(userId, cleared)) {
+                    cleared.evictAfterFlush = true;
+                }
+            }
+        } finally {
+            cleared.writeLock.unlock();
+        }
+    }
+
+    private static boolean hasDirtyLines(UserCart cart) {
+        synchronized (cart) {
+            return cart.lines.values().stream().anyMatch(Line::dirty);
+        }
+    }
+}
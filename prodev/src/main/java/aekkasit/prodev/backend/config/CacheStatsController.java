@@ -0,0 +1,74 @@
+package aekkasit.prodev.backend.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hit/miss counters of the Hibernate second-level and query caches, for checking that the
+ * cached entities are actually served from memory. Hibernate only counts them while
+ * {@code hibernate.generate_statistics} is on ({@code HIBERNATE_STATISTICS=true}), which is off by default.
+ */
+@RestController
+@RequestMapping("/api/admin/cache")
+public class CacheStatsController {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CacheStatsController(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", statistics.isStatisticsEnabled());
+        if (!statistics.isStatisticsEnabled()) {
+            // ตัวเลขเป็น 0 ทั้งหมด อย่าส่งไปให้ดูเหมือน cache ไม่ทำงาน
+            body.put("message", "Hibernate statistics are disabled; set HIBERNATE_STATISTICS=true to collect them");
+            return ResponseEntity.ok(body);
+        }
+        body.put("secondLevel", counters(statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount()));
+        body.put("query", counters(statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount()));
+
+        // แยกตาม region (Product, Product.images, Coupon, User, query results)
+        Map<String, Object> regions = new TreeMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Object> counters = counters(region.getHitCount(), region.getMissCount(), region.getPutCount());
+            counters.put("size", region.getElementCountInMemory());
+            regions.put(regionName, counters);
+        }
+        body.put("regions", regions);
+
+        return ResponseEntity.ok(body);
+    }
+
+    static Map<String, Object> counters(long hits, long misses, long puts) {
+        Map<String, Object> counters = new LinkedHashMap<>();
+        counters.put("hits", hits);
+        counters.put("misses", misses);
+        counters.put("puts", puts);
+        long lookups = hits + misses;
+        counters.put("hitRatio", lookups == 0 ? 0.0 : (double) hits / lookups);
+        return counters;
+    }
+}
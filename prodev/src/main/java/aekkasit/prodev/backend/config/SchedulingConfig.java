@@ -0,0 +1,10 @@
+package aekkasit.prodev.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// เปิด @Scheduled ที่เดียวทั้งแอป (poll cache invalidation, retry ใบเสร็จ, flush cart, ลบรูปที่ไม่ใช้)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
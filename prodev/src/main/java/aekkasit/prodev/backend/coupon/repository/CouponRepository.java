@@ -1,10 +1,14 @@
 package aekkasit.prodev.backend.coupon.repository;
 
 import aekkasit.prodev.backend.coupon.model.Coupon;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
 public interface CouponRepository extends JpaRepository<Coupon, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Coupon> findByCode(String code); // ค้นหาคูปองจากรหัส
 }
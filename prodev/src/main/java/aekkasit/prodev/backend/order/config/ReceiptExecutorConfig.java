@@ -0,0 +1,63 @@
+package aekkasit.prodev.backend.order.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ReceiptExecutorConfig {
+
+    // pool แยกสำหรับสร้าง PDF ใบเสร็จ ไม่ใช้ thread ของ request
+    @Bean(name = "receiptExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor receiptExecutor(
+            @Value("${receipt.executor.pool-size:2}") int poolSize,
+            @Value("${receipt.executor.queue-capacity:200}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("receipt-");
+        // คิวเต็ม: reject (ไม่ render บน thread ของ checkout) ใบเสร็จยัง PENDING ให้ ReceiptService.retryPending ทำทีหลัง
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // โหมด virtual threads: virtual thread ต่อใบเสร็จ แต่ render พร้อมกันได้ไม่เกิน pool-size (งาน CPU)
+    // จำกัดด้วย semaphore ใน virtual thread เอง: setConcurrencyLimit จะ block thread ที่ส่งงาน (thread ของ checkout)
+    @Bean(name = "receiptExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor virtualReceiptExecutor(
+            @Value("${receipt.executor.pool-size:2}") int poolSize
+    ) {
+        Semaphore permits = new Semaphore(poolSize);
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("receipt-");
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(task -> () -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
+}
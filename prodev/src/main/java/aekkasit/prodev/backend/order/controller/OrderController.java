@@ -1,11 +1,17 @@
 package aekkasit.prodev.backend.order.controller;
 
+import aekkasit.prodev.backend.order.dto.CheckoutSummary;
 import aekkasit.prodev.backend.order.model.Order;
+import aekkasit.prodev.backend.order.model.OrderReceipt;
 import aekkasit.prodev.backend.order.service.OrderService;
+import aekkasit.prodev.backend.order.service.ReceiptService;
 import aekkasit.prodev.backend.cart.dto.CartResponse;
+import aekkasit.prodev.backend.cart.service.CartService;
 import aekkasit.prodev.backend.user.model.User;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -13,6 +19,7 @@ import org.springframework.security.core.Authentication;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -20,6 +27,8 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
+    private final ReceiptService receiptService;
+    private final CartService cartService;
 
     @PostMapping("/checkout")
     public ResponseEntity<?> checkout(@RequestBody Map<String, Object> request, Authentication authentication) {
@@ -29,6 +38,10 @@ public class OrderController {
         String couponCode = (String) request.get("couponCode");
 
         try {
+            // cart แบบ write-behind: เขียนรายการที่ค้างลง cart_items ก่อนเข้า transaction ของ checkout
+            // (flush ใช้ transaction/connection ของตัวเอง ถ้าทำข้างในจะกิน connection สองเส้นต่อ checkout)
+            cartService.flush(user);
+
             // ส่ง couponCode ไปให้ service
             Map<String, Object> result = orderService.checkout(user, couponCode);
             return ResponseEntity.ok(result);
@@ -74,6 +87,22 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrderHistory(user));
     }
 
+    // Order History แยกตาม checkout
+    @GetMapping("/history/checkouts")
+    public ResponseEntity<List<CheckoutSummary>> getCheckoutHistory(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(orderService.getCheckoutHistory(user));
+    }
+
+    // Reorder ทั้ง checkout ใน request เดียว
+    @PostMapping("/checkouts/{checkoutId}/reorder")
+    public ResponseEntity<?> reorderCheckout(@PathVariable Long checkoutId, @AuthenticationPrincipal User user) {
+        try {
+            return ResponseEntity.ok(orderService.reorderCheckout(user, checkoutId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     // Reorder
     @PostMapping("/{id}/reorder")
     public ResponseEntity<CartResponse> reorder(@PathVariable Long id, @AuthenticationPrincipal User user) {
@@ -84,4 +113,28 @@ public class OrderController {
             return ResponseEntity.badRequest().body(null);
         }
     }
+
+    // ดาวน์โหลดใบเสร็จ PDF ของ checkout: 202 ระหว่างที่ยังสร้างไม่เสร็จ
+    @GetMapping("/pdf/{receiptId}")
+    public ResponseEntity<?> downloadReceipt(@PathVariable Long receiptId, @AuthenticationPrincipal User user) {
+        Optional<OrderReceipt> receipt = receiptService.getReceipt(receiptId, user);
+        if (receipt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        OrderReceipt r = receipt.get();
+        if (r.getStatus() == OrderReceipt.Status.PENDING) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Receipt is being generated");
+        }
+        if (r.getStatus() == OrderReceipt.Status.FAILED) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Receipt generation failed");
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"order_summary.pdf\"")
+                .body(r.getPdf());
+    }
 }
@@ -0,0 +1,36 @@
+package aekkasit.prodev.backend.order.dto;
+
+import aekkasit.prodev.backend.order.model.Order;
+import aekkasit.prodev.backend.order.model.OrderCheckout;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// checkout หนึ่งครั้งสำหรับหน้า history: ยอดรวม/คูปองจากหัว checkout ที่บันทึกไว้ ไม่คำนวณใหม่
+@Data
+@AllArgsConstructor
+public class CheckoutSummary {
+    private Long checkoutId; // null = order เก่าก่อนมีหัว checkout (หนึ่ง order ต่อกลุ่ม)
+    private Long receiptId;
+    private LocalDateTime createdAt;
+    private List<Order> orders;
+    private double subtotal;
+    private String couponCode;
+    private double couponDiscount;
+    private double total;
+
+    public static CheckoutSummary of(OrderCheckout checkout) {
+        return new CheckoutSummary(checkout.getId(), checkout.getReceiptId(), checkout.getCreatedAt(),
+                List.copyOf(checkout.getLines()), checkout.getSubtotal(), checkout.getCouponCode(),
+                checkout.getCouponDiscount(), checkout.getTotal());
+    }
+
+    // order เก่าไม่มียอดที่บันทึกไว้ ใช้ราคาคูณจำนวนของบรรทัดเดียว
+    public static CheckoutSummary ofLegacy(Order order) {
+        double total = order.getQuantity() * order.getPrice();
+        return new CheckoutSummary(null, order.getReceiptId(), order.getCreatedAt(), List.of(order),
+                total, null, 0, total);
+    }
+}
@@ -0,0 +1,23 @@
+package aekkasit.prodev.backend.order.dto;
+
+import aekkasit.prodev.backend.order.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+// บรรทัดของใบเสร็จ: copy ค่าที่ใช้ render ออกมาจาก entity เพราะ PDF สร้างบน thread อื่นหลัง commit
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class ReceiptLine {
+    private final String name;
+    private final String category;
+    private final int quantity;
+    private final double price;
+
+    public static ReceiptLine of(Order order) {
+        return new ReceiptLine(order.getName(), order.getCategory(), order.getQuantity(), order.getPrice());
+    }
+}
@@ -0,0 +1,18 @@
+package aekkasit.prodev.backend.order.event;
+
+import aekkasit.prodev.backend.order.dto.ReceiptLine;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// ส่งออกจาก checkout เพื่อให้สร้าง PDF หลัง transaction commit แล้ว (ค่าที่ copy มาล้วน ไม่มี entity)
+@Getter
+@AllArgsConstructor
+public class ReceiptRequestedEvent {
+    private final Long receiptId;
+    private final String username;
+    private final List<ReceiptLine> lines;
+    private final double couponDiscount;
+    private final String couponCode;
+}
@@ -2,6 +2,7 @@ package aekkasit.prodev.backend.order.model;
 
 import aekkasit.prodev.backend.user.model.User;
 import aekkasit.prodev.backend.product.model.Product;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
 @Builder
 public class Order {
 
+    // checkout insert หลายบรรทัดเป็น JDBC batch ผ่าน OrderLineBatchRepository (Hibernate batch IDENTITY ไม่ได้)
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -35,6 +37,19 @@ public class Order {
     @JoinColumn(name = "product_id")
     private Product product;
 
+    // ใบเสร็จของ checkout ที่สร้าง order นี้
+    @Column(name = "receipt_id")
+    private Long receiptId;
+
+    // หัวของ checkout ที่ order นี้เป็นบรรทัดหนึ่ง (null = order เก่าก่อนมี OrderCheckout)
+    // ไม่ส่งออกใน JSON และไม่อยู่ใน equals/toString: หัวมี lines ชี้กลับมาที่ order
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "checkout_id")
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private OrderCheckout checkout;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -0,0 +1,59 @@
+package aekkasit.prodev.backend.order.model;
+
+import aekkasit.prodev.backend.user.model.User;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// หัวของการ checkout หนึ่งครั้ง: ยอดรวม/คูปองเก็บที่นี่ที่เดียว แต่ละ Order ใน lines เป็นบรรทัดสินค้า
+@Entity
+@Table(name = "order_checkouts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderCheckout {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "receipt_id")
+    private Long receiptId;
+
+    @Column(name = "item_count")
+    private int itemCount;
+
+    private double subtotal;
+
+    @Column(name = "coupon_code")
+    private String couponCode;
+
+    @Column(name = "coupon_discount")
+    private double couponDiscount; // เปอร์เซ็นต์ เหมือนในใบเสร็จ
+
+    private double total;
+
+    // บรรทัดสินค้า (orders.checkout_id) เขียนเป็น batch ผ่าน OrderLineBatchRepository จึงไม่ cascade
+    @OneToMany(mappedBy = "checkout")
+    @OrderBy("id")
+    @Builder.Default
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<Order> lines = new ArrayList<>();
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
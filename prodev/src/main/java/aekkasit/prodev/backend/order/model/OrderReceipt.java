@@ -0,0 +1,51 @@
+package aekkasit.prodev.backend.order.model;
+
+import aekkasit.prodev.backend.user.model.User;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// PDF ใบเสร็จของการ checkout หนึ่งครั้ง สร้างแบบ async หลัง commit
+@Entity
+@Table(name = "order_receipts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderReceipt {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    private Status status; // PENDING, READY, FAILED
+
+    @Lob
+    @Column(columnDefinition = "LONGBLOB")
+    private byte[] pdf;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // retryPending ส่งเข้าคิวครั้งล่าสุดเมื่อไร (claim กันหลาย pod/หลายรอบส่งซ้ำ)
+    @Column(name = "retried_at")
+    private LocalDateTime retriedAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public enum Status {
+        PENDING, READY, FAILED
+    }
+}
@@ -0,0 +1,19 @@
+package aekkasit.prodev.backend.order.repository;
+
+import aekkasit.prodev.backend.order.model.OrderCheckout;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface OrderCheckoutRepository extends JpaRepository<OrderCheckout, Long> {
+    Optional<OrderCheckout> findByReceiptId(Long receiptId);
+
+    // history: หัว checkout พร้อมบรรทัดใน query เดียว
+    @EntityGraph(attributePaths = "lines")
+    List<OrderCheckout> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    @EntityGraph(attributePaths = "lines")
+    Optional<OrderCheckout> findByIdAndUserId(Long id, Long userId);
+}
@@ -0,0 +1,74 @@
+package aekkasit.prodev.backend.order.repository;
+
+import aekkasit.prodev.backend.order.model.Order;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts the order lines of a checkout in plain JDBC. {@code orders} uses IDENTITY ids, which stops
+ * Hibernate from batching inserts, so all lines go out in one JDBC batch (one multi-row INSERT with
+ * {@code rewriteBatchedStatements}) and take their generated ids from the key holder.
+ */
+@Repository
+public class OrderLineBatchRepository {
+
+    static final String INSERT_SQL =
+            "INSERT INTO orders (name, category, image, quantity, price, status, user_id, product_id, " +
+            "receipt_id, checkout_id, created_at) " +
+            "VALUES (:name, :category, :image, :quantity, :price, :status, :userId, :productId, " +
+            ":receiptId, :checkoutId, :createdAt)";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public OrderLineBatchRepository(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    /**
+     * Writes the given orders and sets their ids and creation time. Runs on the caller's transaction,
+     * so the lines commit or roll back with the rest of the checkout.
+     */
+    public List<Order> insert(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        SqlParameterSource[] params = new SqlParameterSource[orders.size()];
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            if (order.getCreatedAt() == null) {
+                order.setCreatedAt(now);
+            }
+            params[i] = new MapSqlParameterSource()
+                    .addValue("name", order.getName())
+                    .addValue("category", order.getCategory())
+                    .addValue("image", order.getImage())
+                    .addValue("quantity", order.getQuantity())
+                    .addValue("price", order.getPrice())
+                    .addValue("status", order.getStatus() != null ? order.getStatus().name() : null)
+                    .addValue("userId", order.getUser() != null ? order.getUser().getId() : null)
+                    .addValue("productId", order.getProduct() != null ? order.getProduct().getId() : null)
+                    .addValue("receiptId", order.getReceiptId())
+                    .addValue("checkoutId", order.getCheckout() != null ? order.getCheckout().getId() : null)
+                    .addValue("createdAt", order.getCreatedAt());
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        namedParameterJdbcTemplate.batchUpdate(INSERT_SQL, params, keyHolder, new String[]{"id"});
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < orders.size(); i++) {
+            // MySQL คืน key ชื่อ GENERATED_KEY ไม่ใช่ id
+            orders.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,34 @@
+package aekkasit.prodev.backend.order.repository;
+
+import aekkasit.prodev.backend.order.model.OrderReceipt;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface OrderReceiptRepository extends JpaRepository<OrderReceipt, Long> {
+    Optional<OrderReceipt> findByIdAndUserId(Long id, Long userId);
+
+    // ค้างเกิน cutoff และไม่ได้ถูก retry ภายใน cutoff
+    @Query("SELECT r FROM OrderReceipt r WHERE r.status = :status AND r.createdAt < :cutoff " +
+            "AND (r.retriedAt IS NULL OR r.retriedAt < :cutoff) ORDER BY r.id")
+    List<OrderReceipt> findRetryCandidates(@Param("status") OrderReceipt.Status status,
+                                           @Param("cutoff") LocalDateTime cutoff,
+                                           Pageable pageable);
+
+    // UPDATE แบบมีเงื่อนไข: มีแค่คนเดียวที่ได้ 1 แถว ที่เหลือได้ 0
+    @Modifying
+    @Transactional
+    @Query("UPDATE OrderReceipt r SET r.retriedAt = :now WHERE r.id = :id AND r.status = :status " +
+            "AND (r.retriedAt IS NULL OR r.retriedAt < :cutoff)")
+    int claimForRetry(@Param("id") Long id,
+                      @Param("status") OrderReceipt.Status status,
+                      @Param("now") LocalDateTime now,
+                      @Param("cutoff") LocalDateTime cutoff);
+}
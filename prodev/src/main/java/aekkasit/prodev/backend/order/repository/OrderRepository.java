@@ -9,4 +9,7 @@ import java.util.List;
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUser(User user);
     List<Order> findByUserOrderByCreatedAtDesc(User user);
+    List<Order> findByUserIdAndReceiptId(Long userId, Long receiptId);
+    // order เก่าที่ไม่มีหัว checkout
+    List<Order> findByUserAndCheckoutIsNullOrderByCreatedAtDesc(User user);
 }
@@ -1,17 +1,31 @@
 package aekkasit.prodev.backend.order.service;
 
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import aekkasit.prodev.backend.cache.service.CacheInvalidationBus;
+import aekkasit.prodev.backend.cart.dto.CartItemOperation;
 import aekkasit.prodev.backend.cart.model.Cart;
 import aekkasit.prodev.backend.coupon.service.CouponService;
+import aekkasit.prodev.backend.order.dto.CheckoutSummary;
+import aekkasit.prodev.backend.order.dto.ReceiptLine;
+import aekkasit.prodev.backend.order.event.ReceiptRequestedEvent;
 import aekkasit.prodev.backend.order.model.Order;
+import aekkasit.prodev.backend.order.model.OrderCheckout;
+import aekkasit.prodev.backend.order.model.OrderReceipt;
+import aekkasit.prodev.backend.order.repository.OrderCheckoutRepository;
+import aekkasit.prodev.backend.order.repository.OrderLineBatchRepository;
+import aekkasit.prodev.backend.order.repository.OrderReceiptRepository;
 import aekkasit.prodev.backend.order.repository.OrderRepository;
 import aekkasit.prodev.backend.cart.service.CartService;
 import aekkasit.prodev.backend.cart.dto.CartResponse;
 import aekkasit.prodev.backend.cart.repository.CartItemRepository;
 import aekkasit.prodev.backend.product.repository.ProductRepository;
+import aekkasit.prodev.backend.product.repository.ProductStockRepository;
+import aekkasit.prodev.backend.product.service.CatalogVersion;
 import aekkasit.prodev.backend.product.model.Product;
 import aekkasit.prodev.backend.cart.model.CartItem;
 import aekkasit.prodev.backend.user.model.User;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -19,10 +33,6 @@ import java.util.*;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
 
-import com.lowagie.text.*;
-import com.lowagie.text.pdf.*;
-import java.io.ByteArrayOutputStream;
-import java.awt.Color;
 import java.util.List;
 
 @Service
@@ -33,8 +43,18 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final CartService cartService;
     private final ProductRepository productRepository;
+    private final ProductStockRepository productStockRepository;
     private final CartItemRepository cartItemRepository;
     private final CouponService couponService;
+    private final OrderReceiptRepository orderReceiptRepository;
+    private final OrderCheckoutRepository orderCheckoutRepository;
+    private final OrderLineBatchRepository orderLineBatchRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final CatalogVersion catalogVersion;
+
+    // fonts/header ของใบเสร็จสร้างครั้งเดียว และเก็บ buffer ไว้ใช้ซ้ำไม่เกิน 4 ก้อน
+    private final ReceiptPdfTemplate receiptPdfTemplate = new ReceiptPdfTemplate(4);
 
     @Transactional
     public Order createOrder(Order order) {
@@ -64,7 +84,9 @@ public class OrderService {
 
     public Optional<Order> receiveOrder(Long id, User user) {
         return orderRepository.findById(id)
-                .filter(o -> o.getUser().equals(user) && o.getStatus() == Order.Status.FULFILLED)
+                // เทียบด้วย id: principal จาก JWT มีแค่ id/username/role ไม่ใช่ entity เต็ม
+                .filter(o -> o.getUser() != null && Objects.equals(o.getUser().getId(), user.getId())
+                        && o.getStatus() == Order.Status.FULFILLED)
                 .map(order -> {
                     // ลบ order จากฐานข้อมูล
                     order.setStatus(Order.Status.RECEIVED);
@@ -92,11 +114,33 @@ public class OrderService {
             couponService.markCouponAsUsed(couponCode, user.getId());
         }
 
-        // สร้าง order
-        List<Order> orders = createOrders(user, cartItems);
+        // ใบเสร็จ: บันทึกสถานะ PENDING ไว้ก่อน แล้วค่อยสร้าง PDF หลัง commit (ReceiptService)
+        OrderReceipt receipt = orderReceiptRepository.save(OrderReceipt.builder()
+                .user(user)
+                .status(OrderReceipt.Status.PENDING)
+                .build());
 
-        // สร้าง PDF จาก cartItems
-        byte[] pdfBytes = generateOrderPdfFromCartItems(cartItems, user, couponDiscount, couponCode);
+        // หัว checkout: ยอดรวม/คูปองเก็บครั้งเดียว
+        double subtotal = 0;
+        for (CartItem cartItem : cartItems) {
+            subtotal += cartItem.getQuantity() * cartItem.getProduct().getPrice();
+        }
+        OrderCheckout checkout = orderCheckoutRepository.save(OrderCheckout.builder()
+                .user(user)
+                .receiptId(receipt.getId())
+                .itemCount(cartItems.size())
+                .subtotal(subtotal)
+                .couponCode(couponDiscount > 0 ? couponCode : null)
+                .couponDiscount(couponDiscount)
+                .total(subtotal - subtotal * (couponDiscount / 100))
+                .build());
+
+        // สร้าง order (บรรทัดของ checkout)
+        List<Order> orders = createOrders(user, cartItems, checkout);
+
+        // ส่งแค่ค่าที่ copy ไว้: cart_items ถูกลบด้านล่าง และ entity ใช้ข้าม thread ไม่ได้
+        eventPublisher.publishEvent(new ReceiptRequestedEvent(receipt.getId(), user.getUsername(),
+                orders.stream().map(ReceiptLine::of).toList(), couponDiscount, couponCode));
 
         // เคลียร์ cart
         cartService.clearCart(user);
@@ -104,38 +148,59 @@ public class OrderService {
         return Map.of(
                 "orders", orders,
                 "updatedProducts", updatedProducts,
-                "pdfBytes", Base64.getEncoder().encodeToString(pdfBytes)
+                "receiptId", receipt.getId(),
+                "checkoutId", checkout.getId(),
+                "receiptUrl", "/api/orders/pdf/" + receipt.getId()
         );
     }
 
     @Transactional
     public List<Product> reduceStock(List<CartItem> cartItems) {
-        List<Product> updatedProducts = new ArrayList<>();
-
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        Map<Long, Product> products = new LinkedHashMap<>();
         for (CartItem cartItem : cartItems) {
-            Product product = productRepository.findById(cartItem.getProduct().getId())
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
-
-            int qtyToReduce = cartItem.getQuantity();
-            if (qtyToReduce > product.getQuantity()) {
-                throw new RuntimeException("Not enough stock for product: " + product.getName());
-            }
+            Product product = cartItem.getProduct();
+            quantities.merge(product.getId(), cartItem.getQuantity(), Integer::sum);
+            products.putIfAbsent(product.getId(), product);
+        }
 
-            product.setQuantity(product.getQuantity() - qtyToReduce);
-            if (product.getQuantity() <= 0) {
-                product.setStatusStock("Out of stock");
-            }
+        // ล็อกแถวสินค้า ตรวจ stock แล้วลดเป็น JDBC batch เดียว; ถ้าตัวไหนไม่พอ -> rollback ทั้ง checkout
+        List<Long> insufficient = productStockRepository.decrementStock(quantities);
+        if (!insufficient.isEmpty()) {
+            Product product = products.get(insufficient.get(0));
+            throw new RuntimeException("Not enough stock for product: " + product.getName());
+        }
+        // pod อื่นต้องทิ้ง Product ใน second-level cache ของตัวเอง (ส่งจริงเมื่อ checkout commit); เขียนครั้งเดียวทั้ง checkout
+        cacheInvalidationBus.publishAll(products.keySet().stream().map(CacheInvalidation::productStock).toList());
+        // quantity/statusStock อยู่ใน response ของ catalog: ETag ต้องเปลี่ยน (หลัง commit)
+        catalogVersion.bump();
 
-            productRepository.save(product);
-            updatedProducts.add(product);
+        // อ่าน stock ล่าสุดจาก DB แล้วส่งกลับเป็น copy (ไม่แก้ entity ที่ถูก manage อยู่ จะได้ไม่ flush ค่าเก่าทับ)
+        Map<Long, ProductStockRepository.StockLevel> levels = productStockRepository.findStockLevels(products.keySet());
+        List<Product> updatedProducts = new ArrayList<>();
+        for (Product product : products.values()) {
+            ProductStockRepository.StockLevel level = levels.get(product.getId());
+            Product updated = new Product(
+                    product.getId(),
+                    product.getName(),
+                    level != null ? level.getStatusStock() : product.getStatusStock(),
+                    level != null ? level.getQuantity() : product.getQuantity(),
+                    product.getPrice(),
+                    product.getDescription(),
+                    product.getImages(),
+                    product.getCategory(),
+                    product.getCreatedAt()
+            );
+            updatedProducts.add(updated);
         }
 
         return updatedProducts;
     }
 
+    // insert ทุกบรรทัดเป็น JDBC batch เดียว (multi-row INSERT) ไม่ใช่ทีละแถว
     @Transactional
-    public List<Order> createOrders(User user, List<CartItem> cartItems) {
-        List<Order> orders = new ArrayList<>();
+    public List<Order> createOrders(User user, List<CartItem> cartItems, OrderCheckout checkout) {
+        List<Order> orders = new ArrayList<>(cartItems.size());
 
         for (CartItem cartItem : cartItems) {
             Product product = cartItem.getProduct();
@@ -148,10 +213,14 @@ public class OrderService {
                     .status(Order.Status.PENDING)
                     .user(user)
                     .product(product)
+                    .receiptId(checkout.getReceiptId())
+                    .checkout(checkout)
                     .build();
-            orders.add(orderRepository.save(order));
+            orders.add(order);
         }
 
+        orderLineBatchRepository.insert(orders);
+        checkout.getLines().addAll(orders);
         return orders;
     }
 
@@ -160,6 +229,43 @@ public class OrderService {
         return orderRepository.findByUserOrderByCreatedAtDesc(user);
     }
 
+    // history ตามหัว checkout เรียงล่าสุดก่อน ใช้ยอดที่บันทึกไว้ตอน checkout; order เก่าที่ไม่มีหัวแสดงทีละ order
+    @Transactional(readOnly = true)
+    public List<CheckoutSummary> getCheckoutHistory(User user) {
+        List<CheckoutSummary> checkouts = new ArrayList<>();
+        for (OrderCheckout checkout : orderCheckoutRepository.findByUserIdOrderByCreatedAtDesc(user.getId())) {
+            checkouts.add(CheckoutSummary.of(checkout));
+        }
+        for (Order order : orderRepository.findByUserAndCheckoutIsNullOrderByCreatedAtDesc(user)) {
+            checkouts.add(CheckoutSummary.ofLegacy(order));
+        }
+        checkouts.sort(Comparator.comparing(CheckoutSummary::getCreatedAt,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return checkouts;
+    }
+
+    // Reorder ทั้ง checkout: ตรวจ stock ทุกสินค้าในครั้งเดียวแล้วเขียนลง cart เป็น batch (ผ่านได้ทั้งหมดหรือไม่เพิ่มเลย)
+    @Transactional
+    public CartResponse reorderCheckout(User user, Long checkoutId) {
+        OrderCheckout checkout = orderCheckoutRepository.findByIdAndUserId(checkoutId, user.getId())
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (Order order : checkout.getLines()) {
+            if (order.getProduct() != null) {
+                quantities.merge(order.getProduct().getId(), order.getQuantity(), Integer::sum);
+            }
+        }
+        if (quantities.isEmpty()) {
+            throw new RuntimeException("Product not available for reorder");
+        }
+
+        List<CartItemOperation> operations = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, qty) ->
+                operations.add(new CartItemOperation(CartItemOperation.Type.ADD, productId, null, qty)));
+        return cartService.applyOperations(user, operations);
+    }
+
     // Reorder -> เพิ่มกลับ Cart
     @Transactional
     public CartResponse reorder(User user, Long orderId) {
@@ -175,126 +281,7 @@ public class OrderService {
         return cartService.addToCart(user, product.getId(), qty);
     }
 
-    public byte[] generateOrderPdfFromCartItems(List<CartItem> cartItems, User user, double couponDiscount, String couponCode) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            Document document = new Document(PageSize.A4, 36, 36, 54, 36);
-            PdfWriter.getInstance(document, baos);
-            document.open();
-
-            // Fonts
-            Font titleFont = new Font(Font.HELVETICA, 20, Font.BOLD, new Color(0, 128, 0));
-            Font headerFont = new Font(Font.HELVETICA, 12, Font.BOLD, Color.WHITE);
-            Font rowFont = new Font(Font.HELVETICA, 12);
-            Font totalFont = new Font(Font.HELVETICA, 14, Font.BOLD);
-            Font userInfoFont = new Font(Font.HELVETICA, 10, Font.ITALIC, Color.DARK_GRAY);
-            Font discountFont = new Font(Font.HELVETICA, 12, Font.BOLD, Color.RED); // สีแดงสำหรับส่วนลด
-
-            // Title
-            Paragraph title = new Paragraph("Order Summary", titleFont);
-            title.setAlignment(Element.ALIGN_CENTER);
-            title.setSpacingAfter(20);
-            document.add(title);
-
-            // User info (username)
-            Paragraph userInfo = new Paragraph("Username: " + user.getUsername(), userInfoFont);
-            userInfo.setAlignment(Element.ALIGN_LEFT);
-            userInfo.setSpacingAfter(10);
-            document.add(userInfo);
-
-            // Table
-            PdfPTable table = new PdfPTable(4);  // Image column removed
-            table.setWidthPercentage(100);
-
-            // Set the column widths
-            table.setWidths(new float[]{3, 4, 2, 3});  // Adjusted for fewer columns
-
-            // Header
-            String[] headers = {"Product", "Quantity", "Price", "Total"};
-            for (String h : headers) {
-                PdfPCell cell = new PdfPCell(new Phrase(h, headerFont));
-                cell.setBackgroundColor(new Color(0, 128, 0));
-                cell.setHorizontalAlignment(Element.ALIGN_CENTER);
-                cell.setPadding(5);
-                table.addCell(cell);
-            }
-
-            double totalAmount = 0;
-            for (CartItem item : cartItems) {
-                // Product name
-                table.addCell(new PdfPCell(new Phrase(item.getProduct().getName(), rowFont)));
-
-                // Quantity
-                PdfPCell qtyCell = new PdfPCell(new Phrase(String.valueOf(item.getQuantity()), rowFont));
-                qtyCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-                table.addCell(qtyCell);
-
-                // Price
-                PdfPCell priceCell = new PdfPCell(new Phrase(String.format("฿%.2f", item.getProduct().getPrice()), rowFont));
-                priceCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-                table.addCell(priceCell);
-
-                // Total
-                double total = item.getQuantity() * item.getProduct().getPrice();
-                PdfPCell totalCell = new PdfPCell(new Phrase(String.format("฿%.2f", total), rowFont));
-                totalCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-                table.addCell(totalCell);
-
-                totalAmount += total;
-            }
-
-            document.add(table);
-
-            // Displaying Total before discount
-            Paragraph totalBeforeDiscountPara = new Paragraph(
-                    "Total (before discount): ฿" + String.format("%.2f", totalAmount),
-                    totalFont
-            );
-            totalBeforeDiscountPara.setAlignment(Element.ALIGN_LEFT);
-            totalBeforeDiscountPara.setSpacingBefore(10);
-            document.add(totalBeforeDiscountPara);
-
-            // Coupon Discount
-            if (couponDiscount > 0) {
-                // Display Coupon in one line and Discount in the next with red color
-                Paragraph couponPara = new Paragraph("Coupon (" + couponCode + ")", rowFont);
-                couponPara.setAlignment(Element.ALIGN_LEFT);
-                document.add(couponPara);
-
-                Paragraph discountPara = new Paragraph(
-                        "Discount: ฿" + String.format("%.2f", totalAmount * (couponDiscount / 100)),
-                        discountFont  // Set red color for the discount
-                );
-                discountPara.setAlignment(Element.ALIGN_LEFT);
-                discountPara.setSpacingBefore(5);
-                document.add(discountPara);
-            } else {
-                // If no coupon is used, display "-".
-                Paragraph couponPara = new Paragraph("Coupon: -", rowFont);
-                couponPara.setAlignment(Element.ALIGN_LEFT);
-                document.add(couponPara);
-
-                Paragraph discountPara = new Paragraph("Discount: -", rowFont);
-                discountPara.setAlignment(Element.ALIGN_LEFT);
-                discountPara.setSpacingBefore(5);
-                document.add(discountPara);
-            }
-
-            // Total after discount - Align right
-            double totalAfterDiscount = totalAmount - (totalAmount * (couponDiscount / 100));
-            Paragraph totalAfterDiscountPara = new Paragraph(
-                    "Total after discount: ฿" + String.format("%.2f", totalAfterDiscount),
-                    totalFont
-            );
-            totalAfterDiscountPara.setAlignment(Element.ALIGN_RIGHT);  // Align right for total
-            totalAfterDiscountPara.setSpacingBefore(10);
-            document.add(totalAfterDiscountPara);
-
-            // Closing the document
-            document.close();
-            return baos.toByteArray();
-
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to generate PDF", e);
-        }
+    public byte[] generateReceiptPdf(List<ReceiptLine> lines, String username, double couponDiscount, String couponCode) {
+        return receiptPdfTemplate.render(lines, username, couponDiscount, couponCode);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,193 @@
+package aekkasit.prodev.backend.order.service;
+
+import aekkasit.prodev.backend.order.dto.ReceiptLine;
+import com.lowagie.text.*;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pre-built pieces of the order summary PDF.
+ * <p>
+ * Fonts, header cells and column widths are created once and shared; {@code PdfPTable.addCell}
+ * copies a cell, so the shared header cells are never mutated. Money cells are formatted
+ * without {@code String.format}, and output buffers sized from the line count are taken from
+ * a small pool.
+ */
+class ReceiptPdfTemplate {
+
+    private static final Color GREEN = new Color(0, 128, 0);
+
+    private static final Font TITLE_FONT = new Font(Font.HELVETICA, 20, Font.BOLD, GREEN);
+    private static final Font HEADER_FONT = new Font(Font.HELVETICA, 12, Font.BOLD, Color.WHITE);
+    private static final Font ROW_FONT = new Font(Font.HELVETICA, 12);
+    private static final Font TOTAL_FONT = new Font(Font.HELVETICA, 14, Font.BOLD);
+    private static final Font USER_INFO_FONT = new Font(Font.HELVETICA, 10, Font.ITALIC, Color.DARK_GRAY);
+    private static final Font DISCOUNT_FONT = new Font(Font.HELVETICA, 12, Font.BOLD, Color.RED); // สีแดงสำหรับส่วนลด
+
+    private static final float[] COLUMN_WIDTHS = {3, 4, 2, 3};
+    private static final PdfPCell[] HEADER_CELLS = buildHeaderCells();
+
+    // ขนาด PDF โดยประมาณ: ส่วนหัว/ท้ายคงที่ + ต่อบรรทัดสินค้า
+    private static final int BASE_BUFFER_SIZE = 4 * 1024;
+    private static final int BYTES_PER_LINE = 256;
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+    private final BlockingQueue<ReceiptBuffer> bufferPool;
+
+    ReceiptPdfTemplate(int pooledBuffers) {
+        this.bufferPool = new ArrayBlockingQueue<>(pooledBuffers);
+    }
+
+    byte[] render(List<ReceiptLine> lines, String username, double couponDiscount, String couponCode) {
+        ReceiptBuffer buffer = borrowBuffer(BASE_BUFFER_SIZE + BYTES_PER_LINE * lines.size());
+        try {
+            Document document = new Document(PageSize.A4, 36, 36, 54, 36);
+            PdfWriter.getInstance(document, buffer);
+            document.open();
+
+            // Title
+            Paragraph title = new Paragraph("Order Summary", TITLE_FONT);
+            title.setAlignment(Element.ALIGN_CENTER);
+            title.setSpacingAfter(20);
+            document.add(title);
+
+            // User info (username)
+            Paragraph userInfo = new Paragraph("Username: " + username, USER_INFO_FONT);
+            userInfo.setAlignment(Element.ALIGN_LEFT);
+            userInfo.setSpacingAfter(10);
+            document.add(userInfo);
+
+            // Table
+            PdfPTable table = new PdfPTable(COLUMN_WIDTHS.length);
+            table.setWidthPercentage(100);
+            table.setWidths(COLUMN_WIDTHS);
+
+            for (PdfPCell headerCell : HEADER_CELLS) {
+                table.addCell(headerCell);
+            }
+
+            double totalAmount = 0;
+            for (ReceiptLine line : lines) {
+                double price = line.getPrice();
+                double total = line.getQuantity() * price;
+
+                table.addCell(new PdfPCell(new Phrase(line.getName(), ROW_FONT)));
+                table.addCell(cell(String.valueOf(line.getQuantity()), Element.ALIGN_CENTER));
+                table.addCell(cell("฿" + formatMoney(price), Element.ALIGN_RIGHT));
+                table.addCell(cell("฿" + formatMoney(total), Element.ALIGN_RIGHT));
+
+                totalAmount += total;
+            }
+
+            document.add(table);
+
+            // Displaying Total before discount
+            Paragraph totalBeforeDiscountPara = new Paragraph(
+                    "Total (before discount): ฿" + formatMoney(totalAmount), TOTAL_FONT);
+            totalBeforeDiscountPara.setAlignment(Element.ALIGN_LEFT);
+            totalBeforeDiscountPara.setSpacingBefore(10);
+            document.add(totalBeforeDiscountPara);
+
+            // Coupon Discount
+            Paragraph couponPara;
+            Paragraph discountPara;
+            if (couponDiscount > 0) {
+                couponPara = new Paragraph("Coupon (" + couponCode + ")", ROW_FONT);
+                discountPara = new Paragraph(
+                        "Discount: ฿" + formatMoney(totalAmount * (couponDiscount / 100)), DISCOUNT_FONT);
+            } else {
+                // If no coupon is used, display "-".
+                couponPara = new Paragraph("Coupon: -", ROW_FONT);
+                discountPara = new Paragraph("Discount: -", ROW_FONT);
+            }
+            couponPara.setAlignment(Element.ALIGN_LEFT);
+            document.add(couponPara);
+            discountPara.setAlignment(Element.ALIGN_LEFT);
+            discountPara.setSpacingBefore(5);
+            document.add(discountPara);
+
+            // Total after discount - Align right
+            double totalAfterDiscount = totalAmount - (totalAmount * (couponDiscount / 100));
+            Paragraph totalAfterDiscountPara = new Paragraph(
+                    "Total after discount: ฿" + formatMoney(totalAfterDiscount), TOTAL_FONT);
+            totalAfterDiscountPara.setAlignment(Element.ALIGN_RIGHT);
+            totalAfterDiscountPara.setSpacingBefore(10);
+            document.add(totalAfterDiscountPara);
+
+            document.close();
+            return buffer.toByteArray();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to generate PDF", e);
+        } finally {
+            returnBuffer(buffer);
+        }
+    }
+
+    // ปัดแบบเดียวกับ String.format("%.2f") (HALF_UP บนเลขทศนิยมที่สั้นที่สุด) แต่ไม่ต้อง parse format string
+    static String formatMoney(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static PdfPCell cell(String text, int alignment) {
+        PdfPCell cell = new PdfPCell(new Phrase(text, ROW_FONT));
+        cell.setHorizontalAlignment(alignment);
+        return cell;
+    }
+
+    private static PdfPCell[] buildHeaderCells() {
+        String[] headers = {"Product", "Quantity", "Price", "Total"};
+        PdfPCell[] cells = new PdfPCell[headers.length];
+        for (int i = 0; i < headers.length; i++) {
+            PdfPCell cell = new PdfPCell(new Phrase(headers[i], HEADER_FONT));
+            cell.setBackgroundColor(GREEN);
+            cell.setHorizontalAlignment(Element.ALIGN_CENTER);
+            cell.setPadding(5);
+            cells[i] = cell;
+        }
+        return cells;
+    }
+
+    private ReceiptBuffer borrowBuffer(int expectedSize) {
+        ReceiptBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            return new ReceiptBuffer(expectedSize);
+        }
+        buffer.ensureCapacity(expectedSize);
+        return buffer;
+    }
+
+    private void returnBuffer(ReceiptBuffer buffer) {
+        // buffer ใหญ่เกินไม่เก็บไว้ จะได้ไม่ค้าง heap
+        if (buffer.capacity() <= MAX_POOLED_BUFFER_SIZE) {
+            buffer.reset();
+            bufferPool.offer(buffer);
+        }
+    }
+
+    static class ReceiptBuffer extends ByteArrayOutputStream {
+
+        ReceiptBuffer(int size) {
+            super(size);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        void ensureCapacity(int size) {
+            if (buf.length < size) {
+                buf = Arrays.copyOf(buf, size);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package aekkasit.prodev.backend.order.service;
+
+import aekkasit.prodev.backend.order.dto.ReceiptLine;
+import aekkasit.prodev.backend.order.event.ReceiptRequestedEvent;
+import aekkasit.prodev.backend.order.model.OrderCheckout;
+import aekkasit.prodev.backend.order.model.OrderReceipt;
+import aekkasit.prodev.backend.order.repository.OrderCheckoutRepository;
+import aekkasit.prodev.backend.order.repository.OrderReceiptRepository;
+import aekkasit.prodev.backend.order.repository.OrderRepository;
+import aekkasit.prodev.backend.user.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Slf4j
+public class ReceiptService {
+
+    private static final PageRequest RETRY_BATCH = PageRequest.of(0, 50);
+
+    private final OrderReceiptRepository orderReceiptRepository;
+    private final OrderRepository orderRepository;
+    private final OrderCheckoutRepository orderCheckoutRepository;
+    private final OrderService orderService;
+    private final TaskExecutor receiptExecutor;
+    private final Duration retryAfter;
+
+    public ReceiptService(OrderReceiptRepository orderReceiptRepository,
+                          OrderRepository orderRepository,
+                          OrderCheckoutRepository orderCheckoutRepository,
+                          OrderService orderService,
+                          @Qualifier("receiptExecutor") TaskExecutor receiptExecutor,
+                          @Value("${receipt.retry.after:1m}") Duration retryAfter) {
+        this.orderReceiptRepository = orderReceiptRepository;
+        this.orderRepository = orderRepository;
+        this.orderCheckoutRepository = orderCheckoutRepository;
+        this.orderService = orderService;
+        this.receiptExecutor = receiptExecutor;
+        this.retryAfter = retryAfter;
+    }
+
+    // สร้าง PDF หลัง checkout commit แล้วบน receiptExecutor: checkout ไม่ต้องรอ render และไม่ถือ connection ไว้
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReceiptRequested(ReceiptRequestedEvent event) {
+        submit(event);
+    }
+
+    /**
+     * Re-submits receipts still {@code PENDING} after {@code receipt.retry.after}: ones rejected because
+     * the executor queue was full, or lost with a pod that stopped before rendering them. Lines are
+     * rebuilt from the saved orders of the checkout.
+     * <p>
+     * Each receipt is claimed first by a conditional update of {@code retried_at}, so it is submitted
+     * once per {@code receipt.retry.after} however many pods run this. A claim that was lost (queue
+     * full, pod gone) becomes claimable again after that interval.
+     */
+    @Scheduled(fixedDelayString = "${receipt.retry.interval-ms:30000}")
+    public void retryPending() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(retryAfter);
+        for (OrderReceipt receipt : orderReceiptRepository
+                .findRetryCandidates(OrderReceipt.Status.PENDING, cutoff, RETRY_BATCH)) {
+            if (orderReceiptRepository.claimForRetry(receipt.getId(), OrderReceipt.Status.PENDING, now, cutoff) == 0) {
+                // pod อื่นเพิ่ง claim ไป หรือเสร็จไปแล้ว
+                continue;
+            }
+            User user = receipt.getUser();
+            List<ReceiptLine> lines = orderRepository.findByUserIdAndReceiptId(user.getId(), receipt.getId()).stream()
+                    .map(ReceiptLine::of)
+                    .toList();
+            Optional<OrderCheckout> checkout = orderCheckoutRepository.findByReceiptId(receipt.getId());
+            ReceiptRequestedEvent event = new ReceiptRequestedEvent(receipt.getId(), user.getUsername(), lines,
+                    checkout.map(OrderCheckout::getCouponDiscount).orElse(0.0),
+                    checkout.map(OrderCheckout::getCouponCode).orElse(null));
+            if (!submit(event)) {
+                // คิวยังเต็ม: ตัวนี้ claim แล้วรอ retry.after, ตัวที่เหลือรอบหน้าค่อยลองต่อ
+                return;
+            }
+        }
+    }
+
+    public Optional<OrderReceipt> getReceipt(Long receiptId, User user) {
+        return orderReceiptRepository.findByIdAndUserId(receiptId, user.getId());
+    }
+
+    // คิวเต็มไม่ render บน thread ที่ส่งงานมา (thread ของ checkout): ปล่อย PENDING ไว้ให้ retryPending ทำ
+    private boolean submit(ReceiptRequestedEvent event) {
+        try {
+            receiptExecutor.execute(() -> generate(event));
+            return true;
+        } catch (TaskRejectedException e) {
+            log.warn("Receipt executor is full, receipt {} stays pending for retry", event.getReceiptId());
+            return false;
+        }
+    }
+
+    void generate(ReceiptRequestedEvent event) {
+        OrderReceipt receipt = orderReceiptRepository.findById(event.getReceiptId())
+                .orElseThrow(() -> new RuntimeException("Receipt not found"));
+        if (receipt.getStatus() != OrderReceipt.Status.PENDING) {
+            // retry กับงานเดิมในคิวชนกัน: อันแรกทำไปแล้ว
+            return;
+        }
+
+        try {
+            byte[] pdf = orderService.generateReceiptPdf(
+                    event.getLines(), event.getUsername(), event.getCouponDiscount(), event.getCouponCode());
+            receipt.setPdf(pdf);
+            receipt.setStatus(OrderReceipt.Status.READY);
+        } catch (RuntimeException e) {
+            log.error("Failed to generate receipt {}", receipt.getId(), e);
+            receipt.setStatus(OrderReceipt.Status.FAILED);
+        }
+
+        receipt.setCompletedAt(LocalDateTime.now());
+        orderReceiptRepository.save(receipt);
+    }
+}
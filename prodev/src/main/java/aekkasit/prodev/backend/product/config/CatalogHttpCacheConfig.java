@@ -0,0 +1,32 @@
+package aekkasit.prodev.backend.product.config;
+
+import aekkasit.prodev.backend.product.service.CatalogVersion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class CatalogHttpCacheConfig implements WebMvcConfigurer {
+
+    private final CatalogVersion catalogVersion;
+    private final Duration maxAge;
+
+    public CatalogHttpCacheConfig(CatalogVersion catalogVersion,
+                                  @Value("${catalog.http-cache.max-age:10s}") Duration maxAge) {
+        this.catalogVersion = catalogVersion;
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // browser/CDN ใช้ของที่ cache ไว้ได้ max-age แล้วต้อง revalidate (ส่วนใหญ่ได้ 304)
+        CacheControl cacheControl = CacheControl.maxAge(maxAge).cachePublic().mustRevalidate();
+
+        registry.addInterceptor(new CatalogHttpCacheInterceptor(catalogVersion, cacheControl))
+                .addPathPatterns("/api/products/all", "/api/products/search", "/api/products/{id}");
+    }
+}
@@ -0,0 +1,41 @@
+package aekkasit.prodev.backend.product.config;
+
+import aekkasit.prodev.backend.product.service.CatalogVersion;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Conditional GET for the public catalog endpoints. The validators come from {@link CatalogVersion},
+ * so a matching {@code If-None-Match}/{@code If-Modified-Since} is answered with 304 before the
+ * controller (and the database) is reached.
+ */
+public class CatalogHttpCacheInterceptor implements HandlerInterceptor {
+
+    private final CatalogVersion catalogVersion;
+    private final CacheControl cacheControl;
+
+    public CatalogHttpCacheInterceptor(CatalogVersion catalogVersion, CacheControl cacheControl) {
+        this.catalogVersion = catalogVersion;
+        this.cacheControl = cacheControl;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return true;
+        }
+
+        // อ่าน version ก่อนสร้าง response: ถ้ามีการแก้ระหว่างนี้ client จะได้ ETag เก่าและโหลดใหม่รอบหน้า
+        CatalogVersion.Snapshot snapshot = catalogVersion.snapshot();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+
+        // ตั้ง ETag/Last-Modified ให้ response และตอบ 304 ถ้า validator ของ client ยังตรง
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        return !webRequest.checkNotModified(snapshot.getEtag(), snapshot.getLastModified().toEpochMilli());
+    }
+}
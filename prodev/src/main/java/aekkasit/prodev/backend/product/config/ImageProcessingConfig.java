@@ -0,0 +1,50 @@
+package aekkasit.prodev.backend.product.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ImageProcessingConfig {
+
+    // pool สำหรับงานย่อรูปเบื้องหลัง (เช่น backfill variant ตอน start) แยกจาก thread ของ request
+    @Bean(name = "imageProcessingExecutor")
+    public ThreadPoolTaskExecutor imageProcessingExecutor(
+            @Value("${product.images.processing.pool-size:2}") int poolSize,
+            @Value("${product.images.processing.queue-capacity:500}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-");
+        // คิวเต็มปฏิเสธงาน (ไม่ให้ thread ที่ส่งมาทำเอง): backfill ส่งไม่เกินคิวอยู่แล้ว ที่ถูกปฏิเสธทำรอบถัดไป
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // pool ของ upload แยกจาก imageProcessingExecutor: backfill หลายร้อยรูปตอน start ไม่ทำให้ upload ต้องรอคิว
+    @Bean(name = "imageUploadExecutor")
+    public ThreadPoolTaskExecutor imageUploadExecutor(
+            @Value("${product.images.upload.pool-size:4}") int poolSize,
+            @Value("${product.images.upload.queue-capacity:50}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-upload-");
+        // คิวเต็มให้ request thread ทำเอง (request รอผลอยู่แล้ว)
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,38 +1,64 @@
 package aekkasit.prodev.backend.product.controller;
 
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import aekkasit.prodev.backend.cache.service.CacheInvalidationBus;
+import aekkasit.prodev.backend.product.dto.ProductCursor;
+import aekkasit.prodev.backend.product.dto.ProductPageResponse;
+import aekkasit.prodev.backend.product.dto.ProductSummary;
 import aekkasit.prodev.backend.product.model.Product;
 import aekkasit.prodev.backend.product.repository.ProductRepository;
-import org.springframework.beans.factory.annotation.Value;
+import aekkasit.prodev.backend.product.repository.ProductSpecifications;
+import aekkasit.prodev.backend.product.service.CatalogVersion;
+import aekkasit.prodev.backend.product.service.ProductImageStorage;
+import aekkasit.prodev.backend.product.service.ProductSearchIndex;
+import aekkasit.prodev.backend.product.service.StockReportService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.security.access.prepost.PreAuthorize;
-import me.xdrop.fuzzywuzzy.FuzzySearch;
 
 import java.util.Map;
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Arrays;  // เพิ่มการ import นี้
-import java.util.stream.Collectors;
+import java.util.SortedSet;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
+    private static final int MAX_PAGE_SIZE = 100;
 
     private final ProductRepository productRepository;
-
-    @Value("${upload.dir}")
-    private String uploadDir; // เช่น "uploads/products"
-
-    public ProductController(ProductRepository productRepository) {
+    private final ProductSearchIndex productSearchIndex;
+    private final StockReportService stockReportService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final CatalogVersion catalogVersion;
+    private final ProductImageStorage productImageStorage;
+
+    public ProductController(ProductRepository productRepository,
+                             ProductSearchIndex productSearchIndex,
+                             StockReportService stockReportService,
+                             CacheInvalidationBus cacheInvalidationBus,
+                             CatalogVersion catalogVersion,
+                             ProductImageStorage productImageStorage) {
         this.productRepository = productRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.stockReportService = stockReportService;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.catalogVersion = catalogVersion;
+        this.productImageStorage = productImageStorage;
     }
 
     @PostMapping("/add")
@@ -46,23 +72,8 @@ public class ProductController {
             @RequestParam("images") MultipartFile[] images
     ) {
         try {
-            List<String> imagePaths = new ArrayList<>();
-            String projectRoot = System.getProperty("user.dir");
-
-            for (MultipartFile file : images) {
-                if (!file.isEmpty()) {
-                    String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-                    File dest = new File(projectRoot + File.separator + uploadDir + File.separator + fileName);
-                    File parentDir = dest.getParentFile();
-
-                    if (!parentDir.exists() && !parentDir.mkdirs()) {
-                        throw new IOException("Failed to create directory: " + parentDir.getAbsolutePath());
-                    }
-
-                    file.transferTo(dest);
-                    imagePaths.add("/uploads/products/" + fileName); // ✅ Path สำหรับ frontend
-                }
-            }
+            // stream ลงไฟล์ชื่อ content hash (รูปซ้ำใช้ไฟล์เดิม) + สร้าง thumbnail/card/detail, หลายรูปทำพร้อมกัน
+            List<String> imagePaths = productImageStorage.store(images);
 
             Product product = new Product();
             product.setName(name);
@@ -76,6 +87,9 @@ public class ProductController {
             product.setImages(imagePaths);
 
             productRepository.save(product);
+            productSearchIndex.index(product);
+            cacheInvalidationBus.publish(CacheInvalidation.product(product.getId()));
+            catalogVersion.bump();
 
             return ResponseEntity.ok(product);
         } catch (IOException e) {
@@ -89,6 +103,16 @@ public class ProductController {
         return ResponseEntity.ok(productRepository.findAll());
     }
 
+    // Keyset pagination: ส่ง limit (และ cursor จากหน้าก่อน) เพื่อรับทีละหน้าแทนทั้ง catalog
+    @GetMapping(value = "/all", params = "limit")
+    public ResponseEntity<?> getAllProductsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam int limit,
+            @RequestParam(defaultValue = "full") String view
+    ) {
+        return keysetPage(ProductSpecifications.all(), cursor, limit, view);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Long id) {
         return productRepository.findById(id)
@@ -136,46 +160,34 @@ public class ProductController {
                     existingImages = new ObjectMapper().readValue(existingImagesJson, List.class);
                 }
 
-                String projectRoot = System.getProperty("user.dir");
                 List<String> updatedImages = new ArrayList<>();
+                List<String> removedImages = new ArrayList<>();
 
-                // ลบรูปเก่าที่ผู้ใช้กดลบ
+                // รูปเก่าที่ผู้ใช้กดลบ
                 for (String imgPath : product.getImages()) {
                     if (existingImages.contains(imgPath)) {
                         updatedImages.add(imgPath);
                     } else {
-                        File fileToDelete = new File(projectRoot + File.separator + imgPath.replace("/", File.separator));
-                        if (fileToDelete.exists()) {
-                            fileToDelete.delete();
-                        }
+                        removedImages.add(imgPath);
                     }
                 }
 
                 // เพิ่มรูปใหม่
-                if (images != null && images.length > 0) {
-                    for (MultipartFile file : images) {
-                        if (!file.isEmpty()) {
-                            String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-                            String destPath = projectRoot + File.separator + uploadDir;
-
-                            if (!destPath.endsWith(File.separator)) {
-                                destPath += File.separator;
-                            }
-
-                            File dest = new File(destPath + fileName);
-                            File parentDir = dest.getParentFile();
-                            if (!parentDir.exists() && !parentDir.mkdirs()) {
-                                throw new IOException("Failed to create directory: " + parentDir.getAbsolutePath());
-                            }
-                            file.transferTo(dest);
-                            updatedImages.add("/" + uploadDir + "/" + fileName);
-                        }
-                    }
-                }
+                updatedImages.addAll(productImageStorage.store(images));
 
                 product.setImages(updatedImages);
                 productRepository.save(product);
 
+                // ไฟล์ที่ไม่มีสินค้าไหนใช้อยู่ (ไฟล์เดียวกันใช้ร่วมกันได้) ถูกลบทีหลังโดย deleteOrphans
+                for (String imgPath : removedImages) {
+                    if (!updatedImages.contains(imgPath)) {
+                        productImageStorage.deleteIfUnused(imgPath, product.getId());
+                    }
+                }
+                productSearchIndex.index(product);
+                cacheInvalidationBus.publish(CacheInvalidation.product(product.getId()));
+                catalogVersion.bump();
+
                 return ResponseEntity.ok(product);
             } catch (IOException e) {
                 logger.error("Error updating images", e);
@@ -184,10 +196,20 @@ public class ProductController {
         }).orElse(ResponseEntity.status(404).body("Product not found"));
     }
 
+    // multipart resolve แบบ lazy เลยมาถึง controller นี้ได้
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<?> handleUploadTooLarge(MaxUploadSizeExceededException e) {
+        logger.warn("Rejected product upload: {}", e.getMessage());
+        return ResponseEntity.status(413).body("Images are too large");
+    }
+
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
         return productRepository.findById(id).map(product -> {
             productRepository.delete(product);
+            productSearchIndex.remove(id);
+            cacheInvalidationBus.publish(CacheInvalidation.product(id));
+            catalogVersion.bump();
             return ResponseEntity.ok("Product deleted successfully");
         }).orElse(ResponseEntity.status(404).body("Product not found"));
     }
@@ -199,107 +221,103 @@ public class ProductController {
             @RequestParam(required = false) Double maxPrice,
             @RequestParam(required = false) String keyword,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "8") int limit
+            @RequestParam(defaultValue = "8") int limit,
+            @RequestParam(defaultValue = "full") String view
     ) {
-        List<Product> all = productRepository.findAll();
+        Specification<Product> spec = ProductSpecifications.searchFilter(category, minPrice, maxPrice);
 
-        // Filter ตาม category
-        if (category != null && !category.equalsIgnoreCase("All")) {
-            all = all.stream()
-                    .filter(p -> p.getCategory().equalsIgnoreCase(category))
-                    .collect(Collectors.toList());
+        // 🔍 Fuzzy Search รองรับคำผิดเล็กน้อยในแต่ละคำ: ใช้ index หา id ที่ match แล้วให้ DB กรองต่อ
+        // (ไม่เกิน ProductSearchIndex.MAX_MATCHES id ที่คะแนนดีสุด: IN list ไม่โตตาม catalog และ total ไม่เกินค่านี้)
+        if (keyword != null && !keyword.isEmpty()) {
+            SortedSet<Long> matchedIds = productSearchIndex.search(keyword);
+            if (matchedIds.isEmpty()) {
+                return ResponseEntity.ok(Map.of("total", 0L, "items", List.of()));
+            }
+            spec = spec.and(ProductSpecifications.idIn(matchedIds));
         }
 
-        // Filter ตาม price
-        if (minPrice != null) {
-            all = all.stream().filter(p -> p.getPrice() >= minPrice).collect(Collectors.toList());
-        }
-        if (maxPrice != null) {
-            all = all.stream().filter(p -> p.getPrice() <= maxPrice).collect(Collectors.toList());
+        // page/limit ที่ไม่ถูกต้องไม่มี item แต่ยังคืน total เหมือนเดิม
+        if (page < 1 || limit < 1) {
+            return ResponseEntity.ok(Map.of("total", productRepository.count(spec), "items", List.of()));
         }
 
-        // 🔍 Fuzzy Search รองรับคำผิดเล็กน้อยในแต่ละคำ
+        // Pagination: LIMIT/OFFSET + COUNT ที่ฝั่ง MySQL
+        Page<Product> result = productRepository.findAll(spec, PageRequest.of(page - 1, limit, Sort.by("id")));
+
+        return ResponseEntity.ok(Map.of(
+                "total", result.getTotalElements(),
+                "items", toView(result.getContent(), view)
+        ));
+    }
+
+
+    // Keyset pagination ของ search: ส่ง cursor (ว่างได้สำหรับหน้าแรก) แทน page
+    @GetMapping(value = "/search", params = "cursor")
+    public ResponseEntity<?> searchProductsByCursor(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String keyword,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "8") int limit,
+            @RequestParam(defaultValue = "full") String view
+    ) {
+        Specification<Product> spec = ProductSpecifications.searchFilter(category, minPrice, maxPrice);
+
+        // id ที่ match จำกัดไว้ไม่เกิน ProductSearchIndex.MAX_MATCHES เหมือน /search แบบ page
         if (keyword != null && !keyword.isEmpty()) {
-            String search = keyword.toLowerCase();
-            String[] searchTerms = search.split("\\s+");
-
-            all = all.stream()
-                    .filter(p -> {
-                        String name = p.getName() != null ? p.getName().toLowerCase() : "";
-                        String desc = p.getDescription() != null ? p.getDescription().toLowerCase() : "";
-
-                        // แยกคำในชื่อและคำอธิบาย
-                        List<String> nameWords = Arrays.asList(name.split("\\W+"));
-                        List<String> descWords = Arrays.asList(desc.split("\\W+"));
-
-                        // ให้ผ่านถ้าทุกคำใน searchTerms เจอ match อย่างน้อย 1 ที่
-                        return Arrays.stream(searchTerms)
-                                .allMatch(term -> {
-                                    // 1️⃣ ตรวจคำตรง
-                                    boolean exact = nameWords.contains(term) || descWords.contains(term);
-
-                                    // 2️⃣ ตรวจ fuzzy ทีละคำ (ระยะห่างไม่เกิน 1-2 ตัวอักษร)
-                                    boolean fuzzyMatch = nameWords.stream()
-                                            .anyMatch(w -> FuzzySearch.ratio(term, w) >= 70)
-                                            || descWords.stream()
-                                            .anyMatch(w -> FuzzySearch.ratio(term, w) >= 70);
-
-                                    return exact || fuzzyMatch;
-                                });
-                    })
-                    .collect(Collectors.toList());
+            SortedSet<Long> matchedIds = productSearchIndex.search(keyword);
+            if (matchedIds.isEmpty()) {
+                return ResponseEntity.ok(new ProductPageResponse<>(List.of(), null));
+            }
+            spec = spec.and(ProductSpecifications.idIn(matchedIds));
         }
 
-        // เฉพาะสินค้าที่มีของใน stock
-        all = all.stream().filter(p -> p.getQuantity() > 0).collect(Collectors.toList());
+        return keysetPage(spec, cursor, limit, view);
+    }
 
-        int total = all.size();
+    private ResponseEntity<?> keysetPage(Specification<Product> spec, String cursor, int limit, String view) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
 
-        // Pagination
-        int start = (page - 1) * limit;
-        int end = Math.min(start + limit, total);
-        List<Product> items = start < end ? all.subList(start, end) : new ArrayList<>();
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                spec = spec.and(ProductSpecifications.after(ProductCursor.decode(cursor)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body("Invalid cursor");
+            }
+        }
 
-        return ResponseEntity.ok(Map.of(
-                "total", total,
-                "items", items
-        ));
+        // ดึงเกินมา 1 แถวเพื่อรู้ว่ามีหน้าถัดไปไหม โดยไม่ต้อง COUNT
+        List<Product> rows = productRepository.findBy(spec, q -> q.sortBy(ProductSpecifications.KEYSET_SORT)
+                .limit(limit + 1)
+                .all());
+
+        if (rows.size() <= limit) {
+            return ResponseEntity.ok(new ProductPageResponse<>(toView(rows, view), null));
+        }
+
+        List<Product> items = rows.subList(0, limit);
+        String nextCursor = ProductCursor.of(items.get(limit - 1)).encode();
+        return ResponseEntity.ok(new ProductPageResponse<>(toView(items, view), nextCursor));
     }
 
+    // view=summary ส่งเฉพาะข้อมูลที่หน้า listing ใช้ (รูปแรกรูปเดียว)
+    private List<?> toView(List<Product> products, String view) {
+        if ("summary".equalsIgnoreCase(view)) {
+            return products.stream().map(ProductSummary::from).toList();
+        }
+        return products;
+    }
 
-    //week report
+    //week report: ตัวเลขสรุปจาก aggregate query + รายการสินค้าแบบ stream ไม่ต้องโหลดทั้ง catalog
     @GetMapping("/reports/weekly-stock")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> getWeeklyStockReport() {
-        List<Product> allProducts = productRepository.findAll();
-
-        int totalProducts = allProducts.size();
-        int outOfStock = (int) allProducts.stream()
-                .filter(p -> p.getQuantity() == 0 || "Out of stock".equalsIgnoreCase(p.getStatusStock()))
-                .count();
-        int lowStock = (int) allProducts.stream()
-                .filter(p -> p.getQuantity() > 0 && p.getQuantity() <= 10)
-                .count();
-
-        // map ผลลัพธ์เป็น JSON-friendly
-        List<Map<String, Object>> productList = allProducts.stream().map(p -> Map.of(
-                "id", p.getId(),
-                "name", p.getName(),
-                "category", p.getCategory(),
-                "quantity", p.getQuantity(),
-                "statusStock", p.getStatusStock(),
-                "price", p.getPrice(),
-                "images", p.getImages(),        // ส่ง path รูป
-                "createdAt", p.getCreatedAt()   // ส่งวันที่สร้าง
-        )).toList();
-
-        Map<String, Object> report = Map.of(
-                "totalProducts", totalProducts,
-                "outOfStock", outOfStock,
-                "lowStock", lowStock,
-                "products", productList
-        );
-
-        return ResponseEntity.ok(report);
+    public ResponseEntity<StreamingResponseBody> getWeeklyStockReport() {
+        StreamingResponseBody body = stockReportService::writeWeeklyReport;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 }
@@ -0,0 +1,195 @@
+package aekkasit.prodev.backend.product.controller;
+
+import aekkasit.prodev.backend.product.service.ImageFileIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Serves uploaded product images (originals and their resized variants).
+ * <p>
+ * Small files come from an in-memory hot cache. Larger ones are handed to Tomcat's sendfile, so
+ * the kernel copies the file and the request thread is released right away; without sendfile
+ * support they are copied with {@link FileChannel#transferTo}. Single byte ranges are supported.
+ * Content-hash file names never change content and are cached as immutable.
+ */
+@RestController
+public class ProductImageController {
+
+    // attribute ของ Tomcat (เหมือนที่ DefaultServlet ใช้)
+    static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // ชื่อไฟล์ที่ขึ้นต้นด้วย SHA-256 ของเนื้อไฟล์ (และ variant ของมัน)
+    private static final Pattern CONTENT_HASH_NAME = Pattern.compile("^[0-9a-f]{64}([._].*)?$");
+
+    private static final String IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().getHeaderValue() + ", immutable";
+
+    private final ImageFileIndex imageFileIndex;
+    private final String defaultCacheControl;
+    private final long hotFileMaxBytes;
+    private final long sendfileThreshold;
+    private final Cache<Path, HotFile> hotFiles;
+
+    public ProductImageController(ImageFileIndex imageFileIndex,
+                                  @Value("${product.images.max-age:1d}") Duration maxAge,
+                                  @Value("${product.images.hot-cache.max-size:32MB}") DataSize hotCacheSize,
+                                  @Value("${product.images.hot-cache.max-file-size:64KB}") DataSize hotFileMaxSize,
+                                  @Value("${product.images.sendfile-threshold:48KB}") DataSize sendfileThreshold) {
+        this.imageFileIndex = imageFileIndex;
+        this.defaultCacheControl = CacheControl.maxAge(maxAge).cachePublic().getHeaderValue();
+        this.hotFileMaxBytes = hotFileMaxSize.toBytes();
+        this.sendfileThreshold = sendfileThreshold.toBytes();
+        this.hotFiles = Caffeine.newBuilder()
+                .maximumWeight(hotCacheSize.toBytes())
+                .weigher((Path path, HotFile file) -> file.bytes.length)
+                .build();
+    }
+
+    @GetMapping("/uploads/products/{fileName:.+}")
+    public void serveImage(@PathVariable String fileName,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        Path file = imageFileIndex.locate(fileName).orElse(null);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            // ไฟล์ถูกลบหลังจาก index จำไว้
+            imageFileIndex.forget(fileName);
+            hotFiles.invalidate(file);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CONTENT_HASH_NAME.matcher(fileName).matches() ? IMMUTABLE : defaultCacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        // Range: รองรับช่วงเดียว; หลายช่วงหรือ If-Range ไม่ตรงให้ส่งทั้งไฟล์
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (ranges.size() == 1) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (length <= hotFileMaxBytes) {
+            HotFile hot = hotFile(file, length, lastModified);
+            response.getOutputStream().write(hot.bytes, (int) start, (int) count);
+            return;
+        }
+
+        if (count >= sendfileThreshold && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            // Tomcat ส่งไฟล์เองหลัง method นี้ return (ไม่ใช้ thread ของ request ระหว่างส่ง)
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break; // ไฟล์สั้นลงระหว่างส่ง
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+        out.flush();
+    }
+
+    // อ่านใหม่ถ้าไฟล์บน disk เปลี่ยนไปจากที่ cache ไว้
+    private HotFile hotFile(Path file, long length, long lastModified) throws IOException {
+        HotFile hot = hotFiles.getIfPresent(file);
+        if (hot == null || hot.lastModified != lastModified || hot.bytes.length != length) {
+            hot = new HotFile(Files.readAllBytes(file), lastModified);
+            if (hot.bytes.length != length) {
+                // ถูกเขียนทับระหว่างอ่าน (Content-Length ตั้งไปแล้ว) ให้ client ขอใหม่
+                throw new IOException("Image changed while reading: " + file);
+            }
+            hotFiles.put(file, hot);
+        }
+        return hot;
+    }
+
+    private static class HotFile {
+        private final byte[] bytes;
+        private final long lastModified;
+
+        HotFile(byte[] bytes, long lastModified) {
+            this.bytes = bytes;
+            this.lastModified = lastModified;
+        }
+    }
+}
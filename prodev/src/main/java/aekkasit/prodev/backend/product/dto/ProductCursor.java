@@ -0,0 +1,47 @@
+package aekkasit.prodev.backend.product.dto;
+
+import aekkasit.prodev.backend.product.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in the (createdAt, id) ordering, sent to clients as an opaque Base64 token.
+ * A product without {@code created_at} encodes an empty timestamp ({@code "|id"}).
+ */
+@Data
+@AllArgsConstructor
+public class ProductCursor {
+    private LocalDateTime createdAt;
+    private Long id;
+
+    public static ProductCursor of(Product product) {
+        return new ProductCursor(product.getCreatedAt(), product.getId());
+    }
+
+    public String encode() {
+        String raw = (createdAt == null ? "" : createdAt.toString()) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String createdAt = raw.substring(0, separator);
+            return new ProductCursor(
+                    createdAt.isEmpty() ? null : LocalDateTime.parse(createdAt),
+                    Long.valueOf(raw.substring(separator + 1))
+            );
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
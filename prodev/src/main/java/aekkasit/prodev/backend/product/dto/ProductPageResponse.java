@@ -0,0 +1,13 @@
+package aekkasit.prodev.backend.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ProductPageResponse<T> {
+    private List<T> items;
+    private String nextCursor; // null = หน้าสุดท้าย
+}
@@ -0,0 +1,34 @@
+package aekkasit.prodev.backend.product.dto;
+
+import aekkasit.prodev.backend.product.model.ImageVariant;
+import aekkasit.prodev.backend.product.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// ข้อมูลสินค้าแบบย่อสำหรับหน้า listing: ส่งแค่รูปแรก ไม่ต้องส่ง description และรูปทั้งหมด
+@Data
+@AllArgsConstructor
+public class ProductSummary {
+    private Long id;
+    private String name;
+    private Double price;
+    private String category;
+    private Integer quantity;
+    private String statusStock;
+    private String image;
+    private String imageCard; // รูปย่อขนาดการ์ด (ImageVariant.CARD) ของรูปแรก
+
+    public static ProductSummary from(Product product) {
+        String image = product.getImages() == null || product.getImages().isEmpty() ? "" : product.getImages().get(0);
+        return new ProductSummary(
+                product.getId(),
+                product.getName(),
+                product.getPrice(),
+                product.getCategory(),
+                product.getQuantity(),
+                product.getStatusStock(),
+                image,
+                image.isEmpty() ? "" : ImageVariant.CARD.of(image)
+        );
+    }
+}
@@ -0,0 +1,17 @@
+package aekkasit.prodev.backend.product.dto;
+
+import lombok.Data;
+
+@Data
+public class StockCounts {
+    private long totalProducts;
+    private long outOfStock;
+    private long lowStock;
+
+    // ใช้กับ JPQL constructor expression: SUM บนตารางว่างจะได้ null
+    public StockCounts(Long totalProducts, Long outOfStock, Long lowStock) {
+        this.totalProducts = totalProducts != null ? totalProducts : 0;
+        this.outOfStock = outOfStock != null ? outOfStock : 0;
+        this.lowStock = lowStock != null ? lowStock : 0;
+    }
+}
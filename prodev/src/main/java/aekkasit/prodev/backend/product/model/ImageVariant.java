@@ -0,0 +1,45 @@
+package aekkasit.prodev.backend.product.model;
+
+/**
+ * Resized copies written next to every uploaded product image, e.g. {@code 17_apple.png}
+ * gets {@code 17_apple_thumb.jpg}, {@code 17_apple_card.jpg} and {@code 17_apple_detail.jpg}.
+ */
+public enum ImageVariant {
+    THUMBNAIL("thumb", 160),  // รูปเล็กใน admin/ตะกร้า
+    CARD("card", 480),        // การ์ดสินค้าในหน้า listing
+    DETAIL("detail", 1200);   // หน้ารายละเอียดสินค้า
+
+    public static final String EXTENSION = ".jpg";
+
+    private final String suffix;
+    private final int maxSize;
+
+    ImageVariant(String suffix, int maxSize) {
+        this.suffix = suffix;
+        this.maxSize = maxSize;
+    }
+
+    // ด้านที่ยาวที่สุดของรูป (ไม่ขยายรูปที่เล็กกว่านี้)
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Path or file name of this variant for the given original, keeping the directory part.
+     */
+    public String of(String original) {
+        int slash = original.lastIndexOf('/');
+        int dot = original.lastIndexOf('.');
+        String base = dot > slash ? original.substring(0, dot) : original;
+        return base + "_" + suffix + EXTENSION;
+    }
+
+    public static boolean isVariant(String fileName) {
+        for (ImageVariant variant : values()) {
+            if (fileName.endsWith("_" + variant.suffix + EXTENSION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
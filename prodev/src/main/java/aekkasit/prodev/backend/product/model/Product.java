@@ -2,11 +2,23 @@ package aekkasit.prodev.backend.product.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_category", columnList = "category"),
+        @Index(name = "idx_products_price", columnList = "price"),
+        @Index(name = "idx_products_created_at_id", columnList = "createdAt, id")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,7 +36,10 @@ public class Product {
     @Column(columnDefinition = "TEXT")
     private String description;
 
+    // โหลดรูปของหลายสินค้าพร้อมกันใน query เดียว แทน 1 SELECT ต่อสินค้า
     @ElementCollection
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "product_images", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "image_path")
     private List<String> images;
@@ -32,4 +47,21 @@ public class Product {
     private String category;
 
     private LocalDateTime createdAt = LocalDateTime.now();
+
+    // URL ของรูปย่อแต่ละขนาดต่อรูป (ไฟล์สร้างตอน upload โดย ProductImageService) ให้ listing ใช้แทนรูปเต็ม
+    public List<Map<String, String>> getImageVariants() {
+        List<Map<String, String>> variants = new ArrayList<>();
+        if (images == null) {
+            return variants;
+        }
+        for (String image : images) {
+            Map<String, String> urls = new LinkedHashMap<>();
+            urls.put("original", image);
+            urls.put("thumbnail", ImageVariant.THUMBNAIL.of(image));
+            urls.put("card", ImageVariant.CARD.of(image));
+            urls.put("detail", ImageVariant.DETAIL.of(image));
+            variants.add(urls);
+        }
+        return variants;
+    }
 }
@@ -1,10 +1,28 @@
 package aekkasit.prodev.backend.product.repository;
 
+import aekkasit.prodev.backend.product.dto.StockCounts;
 import aekkasit.prodev.backend.product.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
-}
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+
+    // ตัวเลขสรุปของ weekly stock report ใน query เดียว
+    @Query("SELECT new aekkasit.prodev.backend.product.dto.StockCounts(" +
+            "COUNT(p), " +
+            "SUM(CASE WHEN p.quantity = 0 OR LOWER(p.statusStock) = 'out of stock' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN p.quantity > 0 AND p.quantity <= 10 THEN 1 ELSE 0 END)) " +
+            "FROM Product p")
+    StockCounts getStockCounts();
 
+    // รูปตั้งชื่อตาม content hash: สินค้าหลายตัวอาจใช้ไฟล์เดียวกัน ต้องเช็คก่อนลบ
+    @Query("SELECT COUNT(p) > 0 FROM Product p JOIN p.images i WHERE i = :image AND p.id <> :productId")
+    boolean isImageUsedByOtherProduct(@Param("image") String image, @Param("productId") Long productId);
+
+    @Query("SELECT COUNT(p) > 0 FROM Product p JOIN p.images i WHERE i = :image")
+    boolean isImageUsed(@Param("image") String image);
+}
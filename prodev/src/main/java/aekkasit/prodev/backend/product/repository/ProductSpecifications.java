@@ -0,0 +1,88 @@
+package aekkasit.prodev.backend.product.repository;
+
+import aekkasit.prodev.backend.product.dto.ProductCursor;
+import aekkasit.prodev.backend.product.model.Product;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+// เงื่อนไขค้นหาสินค้า ให้ MySQL เป็นคนกรองแทนการโหลดทั้งตารางมากรองใน JVM
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> all() {
+        return (root, query, cb) -> cb.conjunction();
+    }
+
+    // collation ของตาราง (utf8mb4_0900_ai_ci) ไม่สนตัวพิมพ์อยู่แล้ว ไม่ครอบ lower() ให้ใช้ index ของ category ได้
+    public static Specification<Product> categoryEquals(String category) {
+        return (root, query, cb) -> cb.equal(root.get("category"), category);
+    }
+
+    public static Specification<Product> priceAtLeast(Double minPrice) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+    }
+
+    public static Specification<Product> priceAtMost(Double maxPrice) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+    }
+
+    public static Specification<Product> inStock() {
+        return (root, query, cb) -> cb.greaterThan(root.get("quantity"), 0);
+    }
+
+    public static Specification<Product> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    // ลำดับที่ใช้กับ keyset pagination ต้องตรงกับเงื่อนไขใน after()
+    // created_at เป็น nullable และ MySQL เรียง NULL ไว้ก่อนเสมอเมื่อ ASC จึงเทียบเท่า COALESCE(created_at, ค่าต่ำสุด)
+    public static final Sort KEYSET_SORT = Sort.by("createdAt", "id");
+
+    /**
+     * Rows strictly after the cursor in {@link #KEYSET_SORT} order, where a null {@code createdAt}
+     * sorts before every timestamp. Spelled out with IS NULL branches instead of wrapping the
+     * column in COALESCE so the (created_at, id) index stays usable.
+     */
+    public static Specification<Product> after(ProductCursor cursor) {
+        return (root, query, cb) -> {
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            Path<Long> id = root.get("id");
+            if (cursor.getCreatedAt() == null) {
+                return cb.or(
+                        cb.isNotNull(createdAt),
+                        cb.and(cb.isNull(createdAt), cb.greaterThan(id, cursor.getId()))
+                );
+            }
+            return cb.or(
+                    cb.greaterThan(createdAt, cursor.getCreatedAt()),
+                    cb.and(
+                            cb.equal(createdAt, cursor.getCreatedAt()),
+                            cb.greaterThan(id, cursor.getId())
+                    )
+            );
+        };
+    }
+
+    /**
+     * Combines the optional search filters; {@code null} arguments and the "All" category are ignored.
+     */
+    public static Specification<Product> searchFilter(String category, Double minPrice, Double maxPrice) {
+        Specification<Product> spec = inStock();
+        if (category != null && !category.equalsIgnoreCase("All")) {
+            spec = spec.and(categoryEquals(category));
+        }
+        if (minPrice != null) {
+            spec = spec.and(priceAtLeast(minPrice));
+        }
+        if (maxPrice != null) {
+            spec = spec.and(priceAtMost(maxPrice));
+        }
+        return spec;
+    }
+}
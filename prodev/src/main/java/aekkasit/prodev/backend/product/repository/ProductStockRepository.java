@@ -0,0 +1,148 @@
+package aekkasit.prodev.backend.product.repository;
+
+import aekkasit.prodev.backend.product.model.Product;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Stock updates done directly in SQL so concurrent checkouts cannot oversell.
+ */
+@Repository
+public class ProductStockRepository {
+
+    // status_stock ต้องมาก่อน quantity: MySQL ประเมิน SET จากซ้ายไปขวาโดยใช้ค่าที่เพิ่งอัปเดต
+    static final String DECREMENT_SQL =
+            "UPDATE products SET " +
+            "status_stock = CASE WHEN quantity - ? <= 0 THEN 'Out of stock' ELSE status_stock END, " +
+            "quantity = quantity - ? " +
+            "WHERE id = ? AND quantity >= ?";
+
+    static final String LOCK_STOCK_SQL =
+            "SELECT id, quantity FROM products WHERE id IN (:ids) ORDER BY id FOR UPDATE";
+
+    static final String SELECT_STOCK_SQL =
+            "SELECT id, quantity, status_stock FROM products WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public ProductStockRepository(JdbcTemplate jdbcTemplate,
+                                  NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                  EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Locks the rows of every product in id order, checks that each has enough stock, then decrements
+     * them all in one JDBC batch. Nothing is written when any product is short.
+     * Must run inside the caller's transaction so the row locks last until it commits.
+     * Updated products are evicted from the second-level cache, which does not see plain JDBC writes.
+     *
+     * @return ids of products that did not have enough stock (or no longer exist)
+     */
+    public List<Long> decrementStock(Map<Long, Integer> quantitiesByProductId) {
+        if (quantitiesByProductId.isEmpty()) {
+            return List.of();
+        }
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(quantitiesByProductId).entrySet());
+
+        // FOR UPDATE เรียงตาม id: checkout ที่ชนกันรอกันแทนที่จะ deadlock และไม่มีใครลด stock ระหว่างตรวจกับ UPDATE
+        Map<Long, Integer> available = new HashMap<>();
+        namedParameterJdbcTemplate.query(LOCK_STOCK_SQL, new MapSqlParameterSource("ids", quantitiesByProductId.keySet()), rs -> {
+            available.put(rs.getLong("id"), rs.getInt("quantity"));
+        });
+
+        List<Long> insufficient = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : entries) {
+            Integer quantity = available.get(entry.getKey());
+            if (quantity == null || quantity < entry.getValue()) {
+                insufficient.add(entry.getKey());
+            }
+        }
+        if (!insufficient.isEmpty()) {
+            return insufficient;
+        }
+
+        jdbcTemplate.batchUpdate(DECREMENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> entry = entries.get(i);
+                ps.setInt(1, entry.getValue());
+                ps.setInt(2, entry.getValue());
+                ps.setLong(3, entry.getKey());
+                ps.setInt(4, entry.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+
+        // ไม่อ่านจำนวนแถวที่ได้: rewriteBatchedStatements เปิดอยู่ driver อาจคืน SUCCESS_NO_INFO; stock ตรวจแล้วใต้ lock ด้านบน
+        evictProducts(entries.stream().map(Map.Entry::getKey).toList());
+        return insufficient;
+    }
+
+    private void evictProducts(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        evictNow(productIds);
+
+        // transaction อื่นอาจโหลดค่าเก่า (ก่อน commit) กลับเข้า cache ระหว่างนี้ จึง evict ซ้ำหลัง commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(productIds);
+                }
+            });
+        }
+    }
+
+    private void evictNow(List<Long> productIds) {
+        Cache cache = entityManagerFactory.getCache();
+        for (Long id : productIds) {
+            cache.evict(Product.class, id);
+        }
+    }
+
+    /**
+     * Reads the current quantity and status of the given products, bypassing the persistence context.
+     */
+    public Map<Long, StockLevel> findStockLevels(Collection<Long> productIds) {
+        Map<Long, StockLevel> levels = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return levels;
+        }
+
+        namedParameterJdbcTemplate.query(SELECT_STOCK_SQL, new MapSqlParameterSource("ids", productIds), rs -> {
+            levels.put(rs.getLong("id"), new StockLevel(rs.getInt("quantity"), rs.getString("status_stock")));
+        });
+        return levels;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class StockLevel {
+        private int quantity;
+        private String statusStock;
+    }
+}
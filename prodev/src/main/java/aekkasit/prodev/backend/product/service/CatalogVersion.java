@@ -0,0 +1,78 @@
+package aekkasit.prodev.backend.product.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counter bumped whenever catalog data changes, used as the validator for HTTP caching of the
+ * public product endpoints.
+ * <p>
+ * The ETag also carries a random epoch chosen at startup: after a restart, or on another pod,
+ * the same counter value must not validate a response built from older data.
+ */
+@Component
+public class CatalogVersion {
+
+    private final Clock clock;
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicReference<Snapshot> current;
+
+    public CatalogVersion() {
+        this(Clock.systemUTC());
+    }
+
+    CatalogVersion(Clock clock) {
+        this.clock = clock;
+        this.current = new AtomicReference<>(snapshot(0, clock.instant().truncatedTo(ChronoUnit.SECONDS)));
+    }
+
+    /**
+     * Bumps the version, after commit when called inside a transaction so no request can pair the new
+     * version with data that is not visible yet.
+     */
+    public void bump() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpNow();
+                }
+            });
+        } else {
+            bumpNow();
+        }
+    }
+
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    private void bumpNow() {
+        Instant now = clock.instant().truncatedTo(ChronoUnit.SECONDS);
+        // Last-Modified ละเอียดแค่วินาที: ให้เพิ่มขึ้นทุกครั้งที่ bump ไม่อย่างนั้น 2 ครั้งในวินาทีเดียวจะได้ 304 ผิด
+        current.updateAndGet(s -> snapshot(s.getVersion() + 1,
+                now.isAfter(s.getLastModified()) ? now : s.getLastModified().plusSeconds(1)));
+    }
+
+    // strong ETag เช่น "k3x9a1-42"
+    private Snapshot snapshot(long version, Instant lastModified) {
+        return new Snapshot(version, lastModified, "\"" + epoch + "-" + version + "\"");
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+        private final long version;
+        private final Instant lastModified;
+        private final String etag;
+    }
+}
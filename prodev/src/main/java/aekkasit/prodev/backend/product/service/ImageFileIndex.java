@@ -0,0 +1,78 @@
+package aekkasit.prodev.backend.product.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which upload directory holds each product image, so a request does not have to probe
+ * every location. Only hits are remembered: a newly uploaded file is found on its first request.
+ */
+@Component
+public class ImageFileIndex {
+
+    private final List<Path> locations;
+    private final Map<String, Path> index = new ConcurrentHashMap<>();
+
+    public ImageFileIndex(@Value("${upload.dir}") String uploadDir,
+                          @Value("${product.images.serve-locations:/uploads/products,/app/uploads/products}") List<String> extraLocations) {
+        // โฟลเดอร์ที่แอปเขียนไฟล์ลงก่อน แล้วค่อยโฟลเดอร์เก่าที่ mount ไว้
+        List<Path> paths = new ArrayList<>();
+        paths.add(Paths.get(System.getProperty("user.dir")).resolve(uploadDir).toAbsolutePath().normalize());
+        for (String location : extraLocations) {
+            Path path = Paths.get(location).toAbsolutePath().normalize();
+            if (!paths.contains(path)) {
+                paths.add(path);
+            }
+        }
+        this.locations = List.copyOf(paths);
+    }
+
+    public Optional<Path> locate(String fileName) {
+        if (!isSafeName(fileName)) {
+            return Optional.empty();
+        }
+
+        Path cached = index.get(fileName);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        for (Path location : locations) {
+            Path candidate = location.resolve(fileName);
+            if (Files.isRegularFile(candidate)) {
+                index.put(fileName, candidate);
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // ไฟล์ถูกลบ/ย้ายไปแล้ว
+    public void forget(String fileName) {
+        index.remove(fileName);
+    }
+
+    List<Path> getLocations() {
+        return locations;
+    }
+
+    // ชื่อไฟล์ชั้นเดียวเท่านั้น กันออกนอกโฟลเดอร์ upload
+    static boolean isSafeName(String fileName) {
+        return fileName != null
+                && !fileName.isEmpty()
+                && !fileName.startsWith(".")
+                && !fileName.contains("..")
+                && !fileName.contains("/")
+                && !fileName.contains("\\")
+                && fileName.indexOf('\0') < 0;
+    }
+}
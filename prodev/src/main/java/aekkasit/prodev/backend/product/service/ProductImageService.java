@@ -0,0 +1,244 @@
+package aekkasit.prodev.backend.product.service;
+
+import aekkasit.prodev.backend.product.model.ImageVariant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Writes the resized {@link ImageVariant}s of uploaded product images as JPEG next to the original,
+ * so listings can load a few KB instead of the full camera image.
+ */
+@Service
+@Slf4j
+public class ProductImageService {
+
+    private final Path uploadPath;
+    private final float jpegQuality;
+    private final Executor imageProcessingExecutor;
+    private final int backfillMaxInFlight;
+
+    // รูปที่ส่งเข้า executor แล้วแต่ยังทำไม่เสร็จ: รอบถัดไปไม่ส่งซ้ำ
+    private final Set<Path> backfillInFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean backfillDone;
+
+    /**
+     * @param backfillMaxInFlight at most this many backfill images are queued or running at once; keep it
+     *                            at or below the executor's queue capacity so a submit is never rejected
+     */
+    public ProductImageService(@Value("${upload.dir}") String uploadDir,
+                               @Value("${product.images.jpeg-quality:0.8}") float jpegQuality,
+                               @Qualifier("imageProcessingExecutor") Executor imageProcessingExecutor,
+                               @Value("${product.images.processing.queue-capacity:500}") int backfillMaxInFlight) {
+        this.uploadPath = Paths.get(System.getProperty("user.dir")).resolve(uploadDir);
+        this.jpegQuality = jpegQuality;
+        this.imageProcessingExecutor = imageProcessingExecutor;
+        this.backfillMaxInFlight = backfillMaxInFlight;
+    }
+
+    /**
+     * Writes every variant of the given original image.
+     *
+     * @return false if the file is not an image ImageIO can read (no variants are written)
+     */
+    public boolean writeVariants(Path original) throws IOException {
+        BufferedImage source = read(original, ImageVariant.DETAIL.getMaxSize());
+        if (source == null) {
+            log.warn("Unsupported image, no variants written: {}", original);
+            return false;
+        }
+
+        String fileName = original.getFileName().toString();
+        for (ImageVariant variant : ImageVariant.values()) {
+            writeJpeg(scale(source, variant.getMaxSize()), original.resolveSibling(variant.of(fileName)));
+        }
+        return true;
+    }
+
+    public void deleteVariants(Path original) {
+        String fileName = original.getFileName().toString();
+        for (ImageVariant variant : ImageVariant.values()) {
+            try {
+                Files.deleteIfExists(original.resolveSibling(variant.of(fileName)));
+            } catch (IOException e) {
+                log.warn("Could not delete image variant of {}", original, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the missing variants of images uploaded before this pipeline existed, in the background.
+     * Each pass only tops the executor up to {@code backfillMaxInFlight} images and never waits for it;
+     * whatever is left (or rejected) is picked up by the next pass. Stops once a pass finds nothing left.
+     */
+    @Scheduled(initialDelayString = "${product.images.backfill.initial-delay-ms:10000}",
+            fixedDelayString = "${product.images.backfill.interval-ms:30000}")
+    public void backfillMissingVariants() {
+        if (backfillDone || !Files.isDirectory(uploadPath)) {
+            return;
+        }
+        boolean missing = false;
+        try (Stream<Path> files = Files.list(uploadPath)) {
+            Iterator<Path> originals = files.filter(Files::isRegularFile)
+                    .filter(p -> !ImageVariant.isVariant(p.getFileName().toString()))
+                    .filter(p -> !p.getFileName().toString().startsWith("."))
+                    .filter(this::hasMissingVariant)
+                    .iterator();
+            while (originals.hasNext()) {
+                missing = true;
+                if (backfillInFlight.size() >= backfillMaxInFlight) {
+                    break;
+                }
+                Path original = originals.next();
+                if (backfillInFlight.add(original) && !submitBackfill(original)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not scan {} for missing image variants", uploadPath, e);
+            return;
+        }
+        if (!missing && backfillInFlight.isEmpty()) {
+            backfillDone = true;
+            log.info("Image variant backfill finished");
+        }
+    }
+
+    private boolean submitBackfill(Path original) {
+        try {
+            imageProcessingExecutor.execute(() -> {
+                try {
+                    writeVariants(original);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not create image variants for {}", original, e);
+                } finally {
+                    backfillInFlight.remove(original);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // คิวเต็ม (หรือกำลังปิด): ไม่รอและไม่ทำเอง รอบถัดไปหยิบใหม่
+            backfillInFlight.remove(original);
+            return false;
+        }
+    }
+
+    private boolean hasMissingVariant(Path original) {
+        String fileName = original.getFileName().toString();
+        for (ImageVariant variant : ImageVariant.values()) {
+            if (!Files.exists(original.resolveSibling(variant.of(fileName)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decodes the image, subsampling while reading when it is much larger than needed so a
+     * large camera image never has to be held in memory at full resolution.
+     */
+    static BufferedImage read(Path file, int maxSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+
+                // เก็บความละเอียดไว้อย่างน้อย 2 เท่าของที่ต้องใช้ แล้วค่อยย่อให้เนียนใน scale()
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, longest / (maxSize * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales so the longest side is at most {@code maxSize} (never enlarges), halving step by step
+     * for large reductions, which looks much better than a single bilinear pass.
+     * Transparent areas become white since JPEG has no alpha.
+     */
+    static BufferedImage scale(BufferedImage source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage current = source;
+        int currentWidth = width;
+        int currentHeight = height;
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            current = draw(current, currentWidth, currentHeight);
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    // เขียนลงไฟล์ชั่วคราวแล้ว rename: คนที่กำลังโหลดรูปจะไม่เห็นไฟล์ที่เขียนไม่เสร็จ
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".variant-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
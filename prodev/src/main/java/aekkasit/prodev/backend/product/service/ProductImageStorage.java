@@ -0,0 +1,218 @@
+package aekkasit.prodev.backend.product.service;
+
+import aekkasit.prodev.backend.product.model.ImageVariant;
+import aekkasit.prodev.backend.product.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+/**
+ * Stores uploaded product images under the SHA-256 of their content.
+ * <p>
+ * Each upload is streamed to a temp file while hashing, then atomically renamed to
+ * {@code <sha256>.<ext>}; an identical image that already exists is reused instead of written
+ * twice. The images of one request are stored in parallel on the upload pool, which is separate from
+ * the background variant backfill so uploads never queue behind it.
+ * <p>
+ * Because files are shared by content, a removed image is not deleted right away: an upload of the
+ * same content may be reusing it while its product is not saved yet. {@link #deleteIfUnused} only
+ * marks the file; {@link #deleteOrphans} deletes it once the grace period has passed, the file was not
+ * reused in that time and no product references it. Pending deletes live in memory, so a restart
+ * just leaves those files in place.
+ */
+@Service
+@Slf4j
+public class ProductImageStorage {
+
+    public static final String URL_PREFIX = "/uploads/products/";
+
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("^[a-z0-9]{1,5}$");
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path uploadPath;
+    private final ProductImageService productImageService;
+    private final ProductRepository productRepository;
+    private final Executor imageUploadExecutor;
+    private final Duration deleteGrace;
+    // ชื่อไฟล์ที่รอลบ -> url ที่สินค้าเคยใช้ และเวลาที่ถูกเอาออก
+    private final Map<String, PendingDelete> pendingDeletes = new ConcurrentHashMap<>();
+    // lock ตามชื่อไฟล์: reuse ใน store กับการลบใน deleteOrphans ไม่ทับกัน
+    private final Object[] fileLocks = new Object[LOCK_STRIPES];
+
+    private record PendingDelete(String imageUrl, Instant removedAt) {
+    }
+
+    public ProductImageStorage(@Value("${upload.dir}") String uploadDir,
+                               ProductImageService productImageService,
+                               ProductRepository productRepository,
+                               @Qualifier("imageUploadExecutor") Executor imageUploadExecutor,
+                               @Value("${product.images.delete-grace:1h}") Duration deleteGrace) {
+        this.uploadPath = Paths.get(System.getProperty("user.dir")).resolve(uploadDir);
+        this.productImageService = productImageService;
+        this.productRepository = productRepository;
+        this.imageUploadExecutor = imageUploadExecutor;
+        this.deleteGrace = deleteGrace;
+        for (int i = 0; i < fileLocks.length; i++) {
+            fileLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Stores every non-empty file and returns their URLs in the order given.
+     */
+    public List<String> store(MultipartFile[] files) throws IOException {
+        List<CompletableFuture<String>> stored = new ArrayList<>();
+        if (files != null) {
+            for (MultipartFile file : files) {
+                if (!file.isEmpty()) {
+                    stored.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return store(file);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, imageUploadExecutor));
+                }
+            }
+        }
+
+        List<String> urls = new ArrayList<>();
+        try {
+            for (CompletableFuture<String> future : stored) {
+                urls.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+        return urls;
+    }
+
+    String store(MultipartFile file) throws IOException {
+        Files.createDirectories(uploadPath);
+        Path temp = Files.createTempFile(uploadPath, ".upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                in.transferTo(out);
+            }
+
+            String fileName = HexFormat.of().formatHex(digest.digest()) + extension(file.getOriginalFilename());
+            Path target = uploadPath.resolve(fileName);
+            synchronized (lockFor(fileName)) {
+                if (Files.exists(target)) {
+                    // รูปเดียวกันเคย upload แล้ว (สินค้าอื่นหรือรอบก่อน) ใช้ไฟล์เดิม
+                    // แตะเวลาไฟล์ไว้ deleteOrphans จะได้ไม่ลบก่อนสินค้าที่ใช้มันถูก save
+                    log.debug("Reusing existing image {}", fileName);
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                } else {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+
+            if (!Files.exists(target.resolveSibling(ImageVariant.DETAIL.of(fileName)))) {
+                productImageService.writeVariants(target);
+            }
+            return URL_PREFIX + fileName;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Marks an image removed from a product for deletion, unless another product still uses the same
+     * file. The file and its variants are deleted later by {@link #deleteOrphans}.
+     */
+    public void deleteIfUnused(String imageUrl, Long productId) {
+        String fileName = imageUrl.substring(imageUrl.lastIndexOf('/') + 1);
+        if (fileName.isEmpty() || productRepository.isImageUsedByOtherProduct(imageUrl, productId)) {
+            return;
+        }
+        pendingDeletes.put(fileName, new PendingDelete(imageUrl, Instant.now()));
+    }
+
+    /**
+     * Deletes marked images whose grace period is over, skipping any that an upload reused in the
+     * meantime or that a product references again.
+     */
+    @Scheduled(fixedDelayString = "${product.images.delete-sweep-interval-ms:600000}")
+    public void deleteOrphans() {
+        Instant due = Instant.now().minus(deleteGrace);
+        pendingDeletes.forEach((fileName, pending) -> {
+            if (pending.removedAt().isAfter(due)) {
+                return;
+            }
+            Path file = uploadPath.resolve(fileName);
+            synchronized (lockFor(fileName)) {
+                pendingDeletes.remove(fileName, pending);
+                try {
+                    if (Files.exists(file) && Files.getLastModifiedTime(file).toInstant().isAfter(due)) {
+                        // มี upload ใช้ไฟล์นี้ซ้ำเมื่อไม่นาน สินค้าของมันอาจยังไม่ถูก save
+                        return;
+                    }
+                    if (productRepository.isImageUsed(pending.imageUrl())) {
+                        return;
+                    }
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete image {}", file, e);
+                    return;
+                }
+                productImageService.deleteVariants(file);
+            }
+        });
+    }
+
+    private Object lockFor(String fileName) {
+        return fileLocks[Math.floorMod(fileName.hashCode(), fileLocks.length)];
+    }
+
+    // นามสกุลจากชื่อไฟล์เดิม (ตัวเล็ก, ตัวอักษร/ตัวเลขเท่านั้น) ไม่งั้นไม่ใส่
+    static String extension(String originalFilename) {
+        if (originalFilename == null) {
+            return "";
+        }
+        int dot = originalFilename.lastIndexOf('.');
+        if (dot < 0) {
+            return "";
+        }
+        String extension = originalFilename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return SAFE_EXTENSION.matcher(extension).matches() ? "." + extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
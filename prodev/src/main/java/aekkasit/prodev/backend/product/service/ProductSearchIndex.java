@@ -0,0 +1,217 @@
+package aekkasit.prodev.backend.product.service;
+
+import aekkasit.prodev.backend.product.model.Product;
+import aekkasit.prodev.backend.product.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import me.xdrop.fuzzywuzzy.FuzzySearch;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name and description words.
+ * <p>
+ * A keyword search keeps the semantics of the old full-scan search: every search term must match
+ * at least one word of the product, either exactly or with {@code FuzzySearch.ratio >= 70}.
+ * Instead of scoring every word of every product, a term is only scored against distinct
+ * vocabulary words whose length can still reach that ratio, and the matching words' postings
+ * give the candidate product ids.
+ * <p>
+ * A search returns at most {@link #MAX_MATCHES} ids, the best scored ones, so the {@code IN} list
+ * handed to the database stays bounded however broad the keyword is.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    static final int FUZZY_THRESHOLD = 70;
+
+    // id ที่ส่งให้ DB กรองต่อ (IN list) ไม่เกินนี้
+    public static final int MAX_MATCHES = 500;
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // word -> product ids ที่มีคำนี้
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    // word length -> distinct words of that length
+    private final Map<Integer, Set<String>> vocabularyByLength = new HashMap<>();
+
+    // product id -> words ที่ index ไว้ (ใช้ตอนลบ/อัปเดต)
+    private final Map<Long, Set<String>> documentWords = new HashMap<>();
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productRepository.findAll();
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            vocabularyByLength.clear();
+            documentWords.clear();
+            products.forEach(this::addDocument);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Product search index built: {} products, {} distinct words", products.size(), postings.size());
+    }
+
+    public void index(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of products whose words match every term of the keyword, in ascending id order,
+     * capped at {@link #MAX_MATCHES}.
+     */
+    public SortedSet<Long> search(String keyword) {
+        return search(keyword, MAX_MATCHES);
+    }
+
+    /**
+     * Like {@link #search(String)}, but when more than {@code maxMatches} products match, keeps the ones
+     * with the highest score (sum over terms of the best word ratio, 100 for an exact word), lower id first on ties.
+     */
+    public SortedSet<Long> search(String keyword, int maxMatches) {
+        String[] terms = keyword.toLowerCase().split("\\s+");
+
+        Map<Long, Integer> scores = null;
+        lock.readLock().lock();
+        try {
+            for (String term : terms) {
+                Map<Long, Integer> termScores = matchTerm(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((id, score) -> score + termScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (scores == null) {
+            return new TreeSet<>();
+        }
+        if (scores.size() <= maxMatches) {
+            return new TreeSet<>(scores.keySet());
+        }
+        SortedSet<Long> best = new TreeSet<>();
+        scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(maxMatches)
+                .forEach(e -> best.add(e.getKey()));
+        return best;
+    }
+
+    // product id -> ratio ที่ดีที่สุดของคำใน product นั้น
+    private Map<Long, Integer> matchTerm(String term) {
+        Map<Long, Integer> matches = new HashMap<>();
+
+        // 1️⃣ คำตรง
+        Set<Long> exact = postings.get(term);
+        if (exact != null) {
+            exact.forEach(id -> matches.put(id, 100));
+        }
+
+        // 2️⃣ fuzzy: ratio >= 70 needs the shorter word to be at least ~0.54x the longer one,
+        // so words outside [len/2, len*2] can never match and are skipped.
+        int length = term.length();
+        int minLength = (length + 1) / 2;
+        int maxLength = length * 2;
+        for (int l = minLength; l <= maxLength; l++) {
+            Set<String> words = vocabularyByLength.get(l);
+            if (words == null) {
+                continue;
+            }
+            for (String word : words) {
+                int ratio = FuzzySearch.ratio(term, word);
+                if (ratio >= FUZZY_THRESHOLD) {
+                    postings.get(word).forEach(id -> matches.merge(id, ratio, Math::max));
+                }
+            }
+        }
+
+        return matches;
+    }
+
+    private void addDocument(Product product) {
+        Set<String> words = tokenize(product);
+        documentWords.put(product.getId(), words);
+
+        for (String word : words) {
+            postings.computeIfAbsent(word, w -> {
+                vocabularyByLength.computeIfAbsent(w.length(), l -> new HashSet<>()).add(w);
+                return new HashSet<>();
+            }).add(product.getId());
+        }
+    }
+
+    private void removeDocument(Long productId) {
+        Set<String> words = documentWords.remove(productId);
+        if (words == null) {
+            return;
+        }
+
+        for (String word : words) {
+            Set<Long> ids = postings.get(word);
+            if (ids == null) {
+                continue;
+            }
+            ids.remove(productId);
+            if (ids.isEmpty()) {
+                postings.remove(word);
+                Set<String> sameLength = vocabularyByLength.get(word.length());
+                sameLength.remove(word);
+                if (sameLength.isEmpty()) {
+                    vocabularyByLength.remove(word.length());
+                }
+            }
+        }
+    }
+
+    // แยกคำแบบเดียวกับ search เดิม: lower case แล้ว split ด้วย \W+
+    static Set<String> tokenize(Product product) {
+        String name = product.getName() != null ? product.getName().toLowerCase() : "";
+        String desc = product.getDescription() != null ? product.getDescription().toLowerCase() : "";
+
+        Set<String> words = new HashSet<>();
+        words.addAll(Arrays.asList(name.split("\\W+")));
+        words.addAll(Arrays.asList(desc.split("\\W+")));
+        return words;
+    }
+}
@@ -0,0 +1,144 @@
+package aekkasit.prodev.backend.product.service;
+
+import aekkasit.prodev.backend.product.dto.StockCounts;
+import aekkasit.prodev.backend.product.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the weekly stock report as JSON directly to the response stream.
+ * <p>
+ * The counters come from one aggregate query. The product rows are read from a streamed
+ * {@code products LEFT JOIN product_images} result ordered by product id and written as soon as
+ * each product's rows are complete, so heap use does not grow with the catalog.
+ */
+@Service
+public class StockReportService {
+
+    static final String PRODUCT_ROWS_SQL =
+            "SELECT p.id, p.name, p.category, p.quantity, p.status_stock, p.price, p.created_at, pi.image_path " +
+            "FROM products p LEFT JOIN product_images pi ON pi.product_id = p.id " +
+            "ORDER BY p.id";
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public StockReportService(ProductRepository productRepository, ObjectMapper objectMapper, DataSource dataSource) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        // MySQL Connector/J ส่งผลลัพธ์ทีละแถว (ไม่ buffer ทั้ง result set) เมื่อ fetch size = Integer.MIN_VALUE
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    public void writeWeeklyReport(OutputStream out) throws IOException {
+        StockCounts counts = productRepository.getStockCounts();
+
+        try (JsonGenerator gen = objectMapper.createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            gen.writeStartObject();
+            gen.writeNumberField("totalProducts", counts.getTotalProducts());
+            gen.writeNumberField("outOfStock", counts.getOutOfStock());
+            gen.writeNumberField("lowStock", counts.getLowStock());
+
+            gen.writeArrayFieldStart("products");
+            ProductRowWriter rowWriter = new ProductRowWriter(gen);
+            try {
+                streamingJdbcTemplate.query(PRODUCT_ROWS_SQL, rowWriter);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            rowWriter.finish();
+            gen.writeEndArray();
+
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Groups consecutive join rows of the same product and writes one JSON object per product.
+     */
+    static class ProductRowWriter implements RowCallbackHandler {
+
+        private final JsonGenerator gen;
+
+        private Long id;
+        private String name;
+        private String category;
+        private Integer quantity;
+        private String statusStock;
+        private Double price;
+        private LocalDateTime createdAt;
+        private final List<String> images = new ArrayList<>();
+
+        ProductRowWriter(JsonGenerator gen) {
+            this.gen = gen;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowId = rs.getLong("id");
+
+            if (id == null || id != rowId) {
+                writeCurrent();
+                id = rowId;
+                name = rs.getString("name");
+                category = rs.getString("category");
+                quantity = rs.getObject("quantity", Integer.class);
+                statusStock = rs.getString("status_stock");
+                price = rs.getObject("price", Double.class);
+                createdAt = rs.getObject("created_at", LocalDateTime.class);
+                images.clear();
+            }
+
+            String imagePath = rs.getString("image_path");
+            if (imagePath != null) {
+                images.add(imagePath);
+            }
+        }
+
+        void finish() throws IOException {
+            try {
+                writeCurrent();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void writeCurrent() {
+            if (id == null) {
+                return;
+            }
+            try {
+                gen.writeStartObject();
+                gen.writeNumberField("id", id);
+                gen.writeStringField("name", name);
+                gen.writeStringField("category", category);
+                gen.writeObjectField("quantity", quantity);
+                gen.writeStringField("statusStock", statusStock);
+                gen.writeObjectField("price", price);
+                gen.writeObjectField("images", images);
+                gen.writeObjectField("createdAt", createdAt);
+                gen.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            id = null;
+        }
+    }
+}
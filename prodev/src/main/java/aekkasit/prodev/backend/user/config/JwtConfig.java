@@ -0,0 +1,26 @@
+package aekkasit.prodev.backend.user.config;
+
+import aekkasit.prodev.backend.user.security.JwtKeyRing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class JwtConfig {
+
+    @Bean
+    public JwtKeyRing jwtKeyRing(@Value("${jwt.active-kid:}") String activeKid,
+                                 @Value("${jwt.keys:}") String keys) {
+        if (keys.isBlank()) {
+            log.warn("jwt.keys is not set: using a random signing key, tokens will not survive a restart "
+                    + "or verify on other replicas");
+            return JwtKeyRing.random();
+        }
+
+        JwtKeyRing keyRing = JwtKeyRing.parse(activeKid, keys);
+        log.info("JWT key ring loaded: keys={}, active={}", keyRing.getKeyIds(), keyRing.getActiveKid());
+        return keyRing;
+    }
+}
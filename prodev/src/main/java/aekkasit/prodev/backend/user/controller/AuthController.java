@@ -1,30 +1,59 @@
 package aekkasit.prodev.backend.user.controller;
 
-import aekkasit.prodev.backend.user.dto.AuthResponse;
 import aekkasit.prodev.backend.user.dto.LoginRequest;
+import aekkasit.prodev.backend.user.dto.RefreshRequest;
 import aekkasit.prodev.backend.user.dto.RegisterRequest;
 import aekkasit.prodev.backend.user.service.AuthService;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 public class AuthController {
     private final AuthService authService;
 
+    // คืน CompletableFuture: request thread ว่างระหว่าง hash รหัสผ่าน
     @PostMapping("/register")
-    public ResponseEntity<AuthResponse> register(@RequestBody RegisterRequest request) {
-        AuthResponse response = authService.register(request);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody RegisterRequest request) {
+        try {
+            return authService.registerAsync(request).thenApply(ResponseEntity::ok);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody LoginRequest request) {
-        AuthResponse response = authService.login(request);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest request) {
+        try {
+            return authService.loginAsync(request).thenApply(ResponseEntity::ok);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
+    }
+
+    // คิว hash รหัสผ่านเต็ม: ให้ client ลองใหม่ แทนที่จะรอจน timeout
+    private ResponseEntity<?> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many login requests, please retry");
+    }
+
+    // -------- ขอ access token ใหม่ด้วย refresh token --------
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest request) {
+        try {
+            return ResponseEntity.ok(authService.refresh(request.getRefreshToken()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
     }
 
     // -------- ลบ user หลัง test / ลบ user ตาม id --------
@@ -11,4 +11,5 @@ public class AuthResponse {
     private String role;
     private String token;
     private Long id;
+    private String refreshToken;
 }
@@ -0,0 +1,8 @@
+package aekkasit.prodev.backend.user.dto;
+
+import lombok.Data;
+
+@Data
+public class RefreshRequest {
+    private String refreshToken;
+}
@@ -1,13 +1,21 @@
 package aekkasit.prodev.backend.user.repository;
 
 import aekkasit.prodev.backend.user.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+    // ผลของ lookup ด้วย username/email เก็บใน query cache (entity อยู่ใน second-level cache)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByUsername(String username);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByEmail(String email);
+
     boolean existsByEmail(String email);
     boolean existsByUsername(String username);
 }
@@ -1,12 +1,15 @@
 package aekkasit.prodev.backend.user.security;
 
 import aekkasit.prodev.backend.user.model.User;
-import aekkasit.prodev.backend.user.repository.UserRepository;
+import aekkasit.prodev.backend.user.security.JwtPrincipalCache.CachedPrincipal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -18,32 +21,26 @@ import java.io.IOException;
 
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserRepository userRepository;
+    private final JwtPrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String username = null;
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            if (jwtUtils.validateToken(token)) {
-                username = jwtUtils.getUsernameFromToken(token);
-                User user = userRepository.findByUsername(username)
-                        .orElseThrow(() -> new RuntimeException("User not found"));
-
-                System.out.println("JWT username: " + username);
-                System.out.println("User role: " + user.getRole());
-
+            String token = authHeader.substring(7);
+            // token ที่เคย verify แล้วไม่ต้อง parse/เช็ค signature ซ้ำ
+            CachedPrincipal principal = principalCache.get(token, this::authenticate);
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                        user,
+                        principal.getUser(),
                         null,
-                        List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().toUpperCase()))
+                        principal.getAuthorities()
                 );
                 SecurityContextHolder.getContext().setAuthentication(auth);
             }
@@ -51,4 +48,40 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    // สร้าง principal จาก claims ของ access token ล้วน ๆ (ไม่ query DB); คืน null ถ้า token ใช้ไม่ได้
+    private CachedPrincipal authenticate(String token) {
+        Claims claims;
+        try {
+            claims = jwtUtils.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+
+        // refresh token ใช้เรียก API ไม่ได้
+        if (!JwtUtils.TYPE_ACCESS.equals(claims.get(JwtUtils.CLAIM_TYPE, String.class))) {
+            return null;
+        }
+
+        Long userId = claims.get(JwtUtils.CLAIM_USER_ID, Long.class);
+        String role = claims.get(JwtUtils.CLAIM_ROLE, String.class);
+        if (userId == null || role == null) {
+            return null;
+        }
+
+        User user = User.builder()
+                .id(userId)
+                .username(claims.getSubject())
+                .role(role)
+                .build();
+
+        log.debug("JWT username: {}, role: {}", user.getUsername(), role);
+
+        return new CachedPrincipal(
+                user,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase())),
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null
+        );
+    }
 }
@@ -0,0 +1,98 @@
+package aekkasit.prodev.backend.user.security;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+
+import javax.crypto.SecretKey;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * HS512 signing keys identified by key id ({@code kid}).
+ * <p>
+ * New tokens are signed with the active key and carry its id in the JWS header; verification
+ * accepts any key in the ring. Every replica loads the same ring from configuration, so a token
+ * issued by one pod verifies on all of them and survives restarts. To rotate: add the new key,
+ * roll out, switch {@code jwt.active-kid} to it, roll out again, and drop the old key once the
+ * tokens it signed have expired.
+ */
+public class JwtKeyRing {
+
+    private static final int MIN_KEY_BYTES = 64; // HS512 ต้องการ key อย่างน้อย 512 bits
+
+    private final String activeKid;
+    private final Map<String, SecretKey> keys;
+
+    public JwtKeyRing(String activeKid, Map<String, SecretKey> keys) {
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("JWT key ring is empty");
+        }
+        if (!keys.containsKey(activeKid)) {
+            throw new IllegalStateException("Active JWT key id '" + activeKid + "' is not in the key ring " + keys.keySet());
+        }
+        this.activeKid = activeKid;
+        this.keys = Collections.unmodifiableMap(new LinkedHashMap<>(keys));
+    }
+
+    /**
+     * Parses {@code kid:base64Secret} pairs separated by commas, e.g. {@code 2025-01:AbC...,2025-06:XyZ...}.
+     * When only one key is configured, {@code activeKid} may be blank.
+     */
+    public static JwtKeyRing parse(String activeKid, String keysSpec) {
+        Map<String, SecretKey> keys = new LinkedHashMap<>();
+        for (String entry : keysSpec.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalStateException("JWT key entry must be 'kid:base64Secret'");
+            }
+            String kid = trimmed.substring(0, separator).trim();
+            byte[] secret;
+            try {
+                secret = Base64.getDecoder().decode(trimmed.substring(separator + 1).trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("JWT key '" + kid + "' is not valid Base64", e);
+            }
+            if (secret.length < MIN_KEY_BYTES) {
+                throw new IllegalStateException("JWT key '" + kid + "' must be at least 512 bits for HS512");
+            }
+            if (keys.put(kid, Keys.hmacShaKeyFor(secret)) != null) {
+                throw new IllegalStateException("Duplicate JWT key id '" + kid + "'");
+            }
+        }
+
+        String active = activeKid != null ? activeKid.trim() : "";
+        if (active.isEmpty() && keys.size() == 1) {
+            active = keys.keySet().iterator().next();
+        }
+        return new JwtKeyRing(active, keys);
+    }
+
+    // key สุ่มดอกเดียว ใช้ตอน dev/test เท่านั้น: token ใช้ข้าม instance หรือหลัง restart ไม่ได้
+    public static JwtKeyRing random() {
+        return new JwtKeyRing("local", Map.of("local", Keys.secretKeyFor(SignatureAlgorithm.HS512)));
+    }
+
+    public String getActiveKid() {
+        return activeKid;
+    }
+
+    public SecretKey getActiveKey() {
+        return keys.get(activeKid);
+    }
+
+    /** Returns the key for {@code kid}, or {@code null} if the ring does not contain it. */
+    public SecretKey getKey(String kid) {
+        return keys.get(kid);
+    }
+
+    public Set<String> getKeyIds() {
+        return keys.keySet();
+    }
+}
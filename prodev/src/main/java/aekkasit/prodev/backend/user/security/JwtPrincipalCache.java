@@ -0,0 +1,142 @@
+package aekkasit.prodev.backend.user.security;
+
+import aekkasit.prodev.backend.user.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Bounded cache from a verified JWT to its authenticated user.
+ * <p>
+ * An entry lives for at most {@code jwt.principal-cache.ttl} and never past the token's own
+ * {@code exp}, so an expired token is always re-verified (and rejected).
+ * <p>
+ * {@link #revokeUser(Long)} rejects every token issued to the user until then, whether it is cached
+ * or parsed again later: the revocation time is kept per user for one access-token lifetime, after
+ * which those tokens have expired anyway. Revocations live in memory and reach other pods through the
+ * cache invalidation bus; a pod that starts after a revocation does not know it, so there a revoked
+ * access token works until it expires ({@code jwt.access-expiration}).
+ */
+@Component
+public class JwtPrincipalCache {
+
+    private final Cache<String, CachedPrincipal> cache;
+    // user id -> token ที่ออกก่อนหรือพร้อมเวลานี้ใช้ไม่ได้
+    private final Cache<Long, Instant> revokedBefore;
+
+    public JwtPrincipalCache(@Value("${jwt.principal-cache.max-size:10000}") long maxSize,
+                             @Value("${jwt.principal-cache.ttl:5m}") Duration ttl,
+                             @Value("${jwt.access-expiration:900000}") long accessExpirationMs) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry(ttl))
+                .build();
+        this.revokedBefore = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(accessExpirationMs))
+                .build();
+    }
+
+    /**
+     * Returns the cached principal for the token, or computes it with {@code loader}.
+     * A {@code null} result from the loader (invalid token) is not cached.
+     */
+    public CachedPrincipal get(String token, Function<String, CachedPrincipal> loader) {
+        CachedPrincipal principal = cache.get(token, loader);
+        // เช็คทุกครั้ง ไม่ใช่แค่ตอน load: principal ที่ load ค้างอยู่ตอน revoke ก็ต้องใช้ไม่ได้
+        if (principal != null && isRevoked(principal)) {
+            cache.invalidate(token);
+            return null;
+        }
+        return principal;
+    }
+
+    /**
+     * Rejects every token issued to the user up to now, e.g. after the user is deleted.
+     */
+    public void revokeUser(Long userId) {
+        revokedBefore.put(userId, Instant.now());
+        cache.asMap().values().removeIf(p -> Objects.equals(p.getUser().getId(), userId));
+    }
+
+    private boolean isRevoked(CachedPrincipal principal) {
+        Instant revokedAt = revokedBefore.getIfPresent(principal.getUser().getId());
+        // iat มีความละเอียดระดับวินาที: token ที่ออกในวินาทีเดียวกับการ revoke ก็ถือว่าถูก revoke
+        return revokedAt != null
+                && (principal.getIssuedAt() == null || !principal.getIssuedAt().isAfter(revokedAt));
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    public static class CachedPrincipal {
+        private final User user;
+        private final List<GrantedAuthority> authorities;
+        private final Instant expiresAt;
+        private final Instant issuedAt;
+
+        public CachedPrincipal(User user, List<GrantedAuthority> authorities, Instant expiresAt) {
+            this(user, authorities, expiresAt, null);
+        }
+
+        public CachedPrincipal(User user, List<GrantedAuthority> authorities, Instant expiresAt, Instant issuedAt) {
+            this.user = user;
+            this.authorities = List.copyOf(authorities);
+            this.expiresAt = expiresAt;
+            this.issuedAt = issuedAt;
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        public List<GrantedAuthority> getAuthorities() {
+            return authorities;
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+
+        public Instant getIssuedAt() {
+            return issuedAt;
+        }
+    }
+
+    private static class TokenExpiry implements Expiry<String, CachedPrincipal> {
+        private final long ttlNanos;
+
+        TokenExpiry(Duration ttl) {
+            this.ttlNanos = ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String token, CachedPrincipal principal, long currentTime) {
+            if (principal.getExpiresAt() == null) {
+                return ttlNanos;
+            }
+            long untilExpiry = Duration.between(Instant.now(), principal.getExpiresAt()).toNanos();
+            return Math.max(0, Math.min(ttlNanos, untilExpiry));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, CachedPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, principal, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, CachedPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
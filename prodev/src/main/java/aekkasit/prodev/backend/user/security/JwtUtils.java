@@ -1,7 +1,9 @@
 package aekkasit.prodev.backend.user.security;
 
+import aekkasit.prodev.backend.user.model.User;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
@@ -10,33 +12,103 @@ import java.util.Date;
 @Component
 public class JwtUtils {
 
-    private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS512);
-    private long jwtExpirationMs = 86400000; // 1 วัน
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_TYPE = "typ";
+    public static final String TYPE_ACCESS = "access";
+    public static final String TYPE_REFRESH = "refresh";
 
-    public String generateToken(String username) {
-        return Jwts.builder()
-                .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(key, SignatureAlgorithm.HS512)
+    private final JwtKeyRing keyRing;
+    private final long accessExpirationMs;
+    private final long refreshExpirationMs;
+
+    // JwtParser เป็น immutable/thread-safe สร้างครั้งเดียวใช้ทุก request
+    private final JwtParser parser;
+
+    // key สุ่ม, access 15 นาที, refresh 1 วัน (ใช้ใน test)
+    public JwtUtils() {
+        this(JwtKeyRing.random(), 900000, 86400000);
+    }
+
+    @Autowired
+    public JwtUtils(JwtKeyRing keyRing,
+                    @Value("${jwt.access-expiration:900000}") long accessExpirationMs,
+                    @Value("${jwt.expiration:86400000}") long refreshExpirationMs) {
+        this.keyRing = keyRing;
+        this.accessExpirationMs = accessExpirationMs;
+        this.refreshExpirationMs = refreshExpirationMs;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveKey(header.getKeyId());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Short-lived token carrying everything the API needs to authorize a request
+     * ({@code sub}, {@code uid}, {@code role}), so requests are authenticated without a user lookup.
+     */
+    public String generateAccessToken(User user) {
+        return buildToken(user, TYPE_ACCESS, accessExpirationMs)
+                .claim(CLAIM_ROLE, user.getRole())
                 .compact();
     }
 
+    /**
+     * Long-lived token accepted only by {@code /api/auth/refresh}; the user is reloaded from the
+     * database there, so a role change reaches the next access token.
+     */
+    public String generateRefreshToken(User user) {
+        return buildToken(user, TYPE_REFRESH, refreshExpirationMs).compact();
+    }
+
+    /**
+     * Verifies the signature and expiry once and returns the claims.
+     *
+     * @throws JwtException if the token is invalid, expired or signed with an unknown key
+     * @throws IllegalArgumentException if the token is empty
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
     public String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+            parseClaims(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
+
+    private JwtBuilder buildToken(User user, String type, long expirationMs) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKid())
+                .setSubject(user.getUsername())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_TYPE, type)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expirationMs))
+                .signWith(keyRing.getActiveKey(), SignatureAlgorithm.HS512);
+    }
+
+    // token ที่ไม่มี kid ตรวจด้วย active key
+    private Key resolveKey(String kid) {
+        if (kid == null) {
+            return keyRing.getActiveKey();
+        }
+        Key key = keyRing.getKey(kid);
+        if (key == null) {
+            throw new JwtException("Unknown JWT key id: " + kid);
+        }
+        return key;
+    }
 }
@@ -1,10 +1,13 @@
 package aekkasit.prodev.backend.user.security;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -14,17 +17,34 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @RequiredArgsConstructor
+@Slf4j
 @EnableMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
 
+    /**
+     * New hashes are {@code {bcrypt}}-prefixed at the configured cost. Existing unprefixed hashes
+     * still match and are rehashed on the next successful login (see {@code AuthService.login}),
+     * as are hashes made with a lower cost after {@code security.password.bcrypt-strength} is raised.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        // hash เดิมใน DB ไม่มี prefix {bcrypt}
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        long start = System.nanoTime();
+        bcrypt.encode("calibration");
+        log.info("bcrypt strength {}: {} ms per hash", strength, (System.nanoTime() - start) / 1_000_000);
+
+        return encoder;
     }
 
     @Bean
@@ -44,8 +64,10 @@ public class SecurityConfig {
                         .requestMatchers("/api/orders/my").hasRole("USER")
                         .requestMatchers("/api/orders/*/receive").hasRole("USER")
                         .requestMatchers("/api/orders/*/reorder").hasRole("USER")
+                        .requestMatchers("/api/orders/checkouts/*/reorder", "/api/orders/history/checkouts").hasRole("USER")
                         .requestMatchers("/api/orders/pdf/**").hasRole("USER")
                         .requestMatchers("/api/orders/**").hasRole("ADMIN")
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
@@ -1,22 +1,57 @@
 package aekkasit.prodev.backend.user.service;
 
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import aekkasit.prodev.backend.cache.service.CacheInvalidationBus;
 import aekkasit.prodev.backend.user.dto.AuthResponse;
 import aekkasit.prodev.backend.user.dto.LoginRequest;
 import aekkasit.prodev.backend.user.dto.RegisterRequest;
 import aekkasit.prodev.backend.user.model.User;
 import aekkasit.prodev.backend.user.repository.UserRepository;
+import aekkasit.prodev.backend.user.security.JwtPrincipalCache;
 import aekkasit.prodev.backend.user.security.JwtUtils;
 
-import lombok.RequiredArgsConstructor;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Service
-@RequiredArgsConstructor
 public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
+    private final JwtPrincipalCache principalCache;
+    private final Executor passwordHashingExecutor;
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    public AuthService(UserRepository userRepository,
+                       PasswordEncoder passwordEncoder,
+                       JwtUtils jwtUtils,
+                       JwtPrincipalCache principalCache,
+                       @Qualifier("passwordHashingExecutor") Executor passwordHashingExecutor,
+                       CacheInvalidationBus cacheInvalidationBus) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.jwtUtils = jwtUtils;
+        this.principalCache = principalCache;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+
+    // -------- register/login รันบน passwordHashingExecutor (bcrypt ไม่กิน request thread) --------
+    // คิวเต็มจะโยน RejectedExecutionException ทันที
+    public CompletableFuture<AuthResponse> registerAsync(RegisterRequest request) {
+        return CompletableFuture.supplyAsync(() -> register(request), passwordHashingExecutor);
+    }
+
+    public CompletableFuture<AuthResponse> loginAsync(LoginRequest request) {
+        return CompletableFuture.supplyAsync(() -> login(request), passwordHashingExecutor);
+    }
 
     public AuthResponse register(RegisterRequest request) {
         if (userRepository.existsByEmail(request.getEmail()))
@@ -35,9 +70,7 @@ public class AuthService {
 
         userRepository.save(user);
 
-        String token = jwtUtils.generateToken(user.getUsername());
-
-        return new AuthResponse(user.getUsername(), user.getEmail(), user.getRole(), token, user.getId());
+        return authResponse(user);
     }
 
     public AuthResponse login(LoginRequest request) {
@@ -47,13 +80,47 @@ public class AuthService {
         if (!passwordEncoder.matches(request.getPassword(), user.getPassword()))
             throw new RuntimeException("Invalid password");
 
-        String token = jwtUtils.generateToken(user.getUsername());
+        // hash เก่า (ไม่มี prefix หรือ cost ต่ำกว่าที่ตั้งไว้) hash ใหม่ตอนที่รู้รหัสผ่านจริง
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            user.setPassword(passwordEncoder.encode(request.getPassword()));
+            userRepository.save(user);
+        }
+
+        return authResponse(user);
+    }
+
+    // -------- ออก access token ใหม่จาก refresh token (โหลด user ใหม่เพื่อให้ role ล่าสุด) --------
+    public AuthResponse refresh(String refreshToken) {
+        Claims claims;
+        try {
+            claims = jwtUtils.parseClaims(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new RuntimeException("Invalid refresh token");
+        }
+
+        if (!JwtUtils.TYPE_REFRESH.equals(claims.get(JwtUtils.CLAIM_TYPE, String.class))) {
+            throw new RuntimeException("Invalid refresh token");
+        }
+
+        Long userId = claims.get(JwtUtils.CLAIM_USER_ID, Long.class);
+        User user = (userId == null ? Optional.<User>empty() : userRepository.findById(userId))
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        return authResponse(user);
+    }
+
+    private AuthResponse authResponse(User user) {
+        String token = jwtUtils.generateAccessToken(user);
+        String refreshToken = jwtUtils.generateRefreshToken(user);
 
-        return new AuthResponse(user.getUsername(), user.getEmail(), user.getRole(), token, user.getId());
+        return new AuthResponse(user.getUsername(), user.getEmail(), user.getRole(), token, user.getId(), refreshToken);
     }
 
     // -------- ลบ user ตาม id --------
     public void deleteUserById(Long id) {
         userRepository.deleteById(id);
+        // token ทุกใบของ user นี้ใช้ไม่ได้ทันที ทั้งที่ cache ไว้และที่จะถูก parse ใหม่
+        principalCache.revokeUser(id);
+        cacheInvalidationBus.publish(CacheInvalidation.user(id));
     }
 }
@@ -0,0 +1,66 @@
+package aekkasit.prodev.backend.cache.repository;
+
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import aekkasit.prodev.backend.cache.model.CacheInvalidationRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CacheInvalidationBatchRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CacheInvalidationBatchRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        repository = new CacheInvalidationBatchRepository(jdbcTemplate);
+    }
+
+    private static CacheInvalidationRecord record(long entityId, Instant createdAt) {
+        return CacheInvalidationRecord.builder()
+                .kind(CacheInvalidation.Kind.PRODUCT_STOCK)
+                .entityId(entityId)
+                .origin("node-a")
+                .createdAt(createdAt)
+                .build();
+    }
+
+    @Test
+    void testInsertAll_OneBatchForAllRows() throws Exception {
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        repository.insertAll(List.of(record(1L, now), record(2L, now)));
+
+        ArgumentCaptor<BatchPreparedStatementSetter> setter = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(CacheInvalidationBatchRepository.INSERT_SQL), setter.capture());
+        assertEquals(2, setter.getValue().getBatchSize());
+
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, 1);
+        verify(ps).setString(1, "PRODUCT_STOCK");
+        verify(ps).setLong(2, 2L);
+        verify(ps).setString(3, "node-a");
+        verify(ps).setTimestamp(eq(4), eq(Timestamp.from(now)), any(Calendar.class));
+    }
+
+    @Test
+    void testInsertAll_NothingToWrite() {
+        repository.insertAll(List.of());
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,89 @@
+package aekkasit.prodev.backend.cache.service;
+
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import aekkasit.prodev.backend.product.model.Product;
+import aekkasit.prodev.backend.product.repository.ProductRepository;
+import aekkasit.prodev.backend.product.service.CatalogVersion;
+import aekkasit.prodev.backend.product.service.ProductSearchIndex;
+import aekkasit.prodev.backend.user.model.User;
+import aekkasit.prodev.backend.user.security.JwtPrincipalCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+
+class CacheInvalidationListenerTest {
+
+    private Cache cache;
+    private ProductRepository productRepository;
+    private ProductSearchIndex productSearchIndex;
+    private JwtPrincipalCache principalCache;
+    private CatalogVersion catalogVersion;
+    private InJvmCacheInvalidationBus otherPod;
+
+    @BeforeEach
+    void setUp() {
+        cache = mock(Cache.class);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+
+        productRepository = mock(ProductRepository.class);
+        productSearchIndex = mock(ProductSearchIndex.class);
+        principalCache = mock(JwtPrincipalCache.class);
+        catalogVersion = mock(CatalogVersion.class);
+
+        InJvmCacheInvalidationBus thisPod = new InJvmCacheInvalidationBus();
+        otherPod = thisPod.join();
+        new CacheInvalidationListener(thisPod, entityManagerFactory, productRepository, productSearchIndex,
+                principalCache, catalogVersion).register();
+    }
+
+    @Test
+    void testProductUpdatedElsewhere_EvictsAndReindexes() {
+        Product product = new Product();
+        product.setId(1L);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        otherPod.publish(CacheInvalidation.product(1L));
+
+        verify(cache).evictEntityData(Product.class, 1L);
+        verify(cache).evictCollectionData(CacheInvalidationListener.PRODUCT_IMAGES_ROLE, 1L);
+        verify(productSearchIndex).index(product);
+        verify(catalogVersion).bump();
+    }
+
+    @Test
+    void testProductDeletedElsewhere_RemovedFromIndex() {
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+
+        otherPod.publish(CacheInvalidation.product(1L));
+
+        verify(productSearchIndex).remove(1L);
+    }
+
+    @Test
+    void testStockChange_OnlyEvictsEntity() {
+        otherPod.publish(CacheInvalidation.productStock(2L));
+
+        verify(cache).evictEntityData(Product.class, 2L);
+        verify(catalogVersion).bump();
+        verifyNoInteractions(productRepository, productSearchIndex);
+    }
+
+    @Test
+    void testUserDeletedElsewhere_EvictsUserCaches() {
+        otherPod.publish(CacheInvalidation.user(3L));
+
+        verify(cache).evictEntityData(User.class, 3L);
+        verify(cache).evictQueryRegions();
+        verify(principalCache).revokeUser(3L);
+        verifyNoInteractions(catalogVersion);
+    }
+}
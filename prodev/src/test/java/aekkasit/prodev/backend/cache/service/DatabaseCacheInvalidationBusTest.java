@@ -0,0 +1,158 @@
+package aekkasit.prodev.backend.cache.service;
+
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import aekkasit.prodev.backend.cache.model.CacheInvalidationRecord;
+import aekkasit.prodev.backend.cache.repository.CacheInvalidationBatchRepository;
+import aekkasit.prodev.backend.cache.repository.CacheInvalidationRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class DatabaseCacheInvalidationBusTest {
+
+    // ตาราง cache_invalidations จำลองใน memory
+    private final List<CacheInvalidationRecord> table = new ArrayList<>();
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+    private CacheInvalidationRecordRepository repository;
+    private CacheInvalidationBatchRepository batchRepository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(CacheInvalidationRecordRepository.class);
+        batchRepository = mock(CacheInvalidationBatchRepository.class);
+        doAnswer(i -> {
+            for (CacheInvalidationRecord record : (List<CacheInvalidationRecord>) i.getArgument(0)) {
+                record.setId((long) table.size() + 1);
+                table.add(record);
+            }
+            return null;
+        }).when(batchRepository).insertAll(anyList());
+        when(repository.findByCreatedAtAfterOrderByIdAsc(any())).thenAnswer(i -> {
+            Instant since = i.getArgument(0);
+            return table.stream().filter(r -> r.getCreatedAt().isAfter(since)).toList();
+        });
+    }
+
+    private DatabaseCacheInvalidationBus bus() {
+        return new DatabaseCacheInvalidationBus(repository, batchRepository, Duration.ofSeconds(10), Duration.ofHours(1), clock);
+    }
+
+    @Test
+    void testPoll_DeliversOtherPodsRowsOnce() {
+        DatabaseCacheInvalidationBus podA = bus();
+        DatabaseCacheInvalidationBus podB = bus();
+        List<CacheInvalidation> receivedA = new ArrayList<>();
+        List<CacheInvalidation> receivedB = new ArrayList<>();
+        podA.subscribe(receivedA::add);
+        podB.subscribe(receivedB::add);
+
+        clock.advance(Duration.ofMillis(100));
+        podA.publish(CacheInvalidation.product(1L));
+        podA.publish(CacheInvalidation.user(9L));
+
+        clock.advance(Duration.ofSeconds(1));
+        podA.poll();
+        podB.poll();
+        // poll รอบถัดไปยังเห็นแถวเดิม (อยู่ใน lookback) แต่ต้องไม่ส่งซ้ำ
+        clock.advance(Duration.ofSeconds(1));
+        podB.poll();
+
+        assertTrue(receivedA.isEmpty());
+        assertEquals(List.of(CacheInvalidation.product(1L), CacheInvalidation.user(9L)), receivedB);
+    }
+
+    @Test
+    void testPublishAll_OneBatchForAllInvalidations() {
+        DatabaseCacheInvalidationBus podA = bus();
+        DatabaseCacheInvalidationBus podB = bus();
+        List<CacheInvalidation> received = new ArrayList<>();
+        podB.subscribe(received::add);
+
+        clock.advance(Duration.ofMillis(100));
+        podA.publishAll(List.of(CacheInvalidation.productStock(1L), CacheInvalidation.productStock(2L)));
+
+        verify(batchRepository, times(1)).insertAll(anyList());
+        verify(repository, never()).save(any());
+        assertEquals(2, table.size());
+
+        clock.advance(Duration.ofSeconds(1));
+        podB.poll();
+        assertEquals(List.of(CacheInvalidation.productStock(1L), CacheInvalidation.productStock(2L)), received);
+    }
+
+    @Test
+    void testPoll_PicksUpRowCommittedLateWithinLookback() {
+        DatabaseCacheInvalidationBus podA = bus();
+        DatabaseCacheInvalidationBus podB = bus();
+        List<CacheInvalidation> received = new ArrayList<>();
+        podB.subscribe(received::add);
+
+        // แถวได้ createdAt ตอน publish แต่ transaction ยาว: pod B poll ไปก่อนที่แถวจะ commit
+        clock.advance(Duration.ofSeconds(1));
+        Instant publishedAt = clock.instant();
+        clock.advance(Duration.ofSeconds(3));
+        podB.poll();
+        assertTrue(received.isEmpty());
+
+        table.add(CacheInvalidationRecord.builder()
+                .id(1L)
+                .kind(CacheInvalidation.Kind.PRODUCT_STOCK)
+                .entityId(4L)
+                .origin(podA.getNodeId())
+                .createdAt(publishedAt)
+                .build());
+        clock.advance(Duration.ofSeconds(1));
+        podB.poll();
+
+        assertEquals(List.of(CacheInvalidation.productStock(4L)), received);
+    }
+
+    @Test
+    void testPurge_DeletesRowsOlderThanRetention() {
+        DatabaseCacheInvalidationBus bus = bus();
+
+        bus.purge();
+
+        verify(repository).deleteByCreatedAtBefore(clock.instant().minus(Duration.ofHours(1)));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
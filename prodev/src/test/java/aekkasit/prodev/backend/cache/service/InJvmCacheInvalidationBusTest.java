@@ -0,0 +1,87 @@
+package aekkasit.prodev.backend.cache.service;
+
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InJvmCacheInvalidationBusTest {
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testPublish_DeliveredToPeersOnly() {
+        InJvmCacheInvalidationBus podA = new InJvmCacheInvalidationBus();
+        InJvmCacheInvalidationBus podB = podA.join();
+        List<CacheInvalidation> receivedA = new ArrayList<>();
+        List<CacheInvalidation> receivedB = new ArrayList<>();
+        podA.subscribe(receivedA::add);
+        podB.subscribe(receivedB::add);
+
+        podA.publish(CacheInvalidation.product(5L));
+
+        assertTrue(receivedA.isEmpty());
+        assertEquals(List.of(CacheInvalidation.product(5L)), receivedB);
+    }
+
+    @Test
+    void testPublishInTransaction_DeliveredAfterCommitOnly() {
+        InJvmCacheInvalidationBus podA = new InJvmCacheInvalidationBus();
+        InJvmCacheInvalidationBus podB = podA.join();
+        List<CacheInvalidation> received = new ArrayList<>();
+        podB.subscribe(received::add);
+
+        TransactionSynchronizationManager.initSynchronization();
+        podA.publish(CacheInvalidation.productStock(1L));
+        assertTrue(received.isEmpty());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(List.of(CacheInvalidation.productStock(1L)), received);
+    }
+
+    @Test
+    void testPublishAllInTransaction_OneSynchronization() {
+        InJvmCacheInvalidationBus podA = new InJvmCacheInvalidationBus();
+        InJvmCacheInvalidationBus podB = podA.join();
+        List<CacheInvalidation> received = new ArrayList<>();
+        podB.subscribe(received::add);
+
+        TransactionSynchronizationManager.initSynchronization();
+        podA.publishAll(List.of(CacheInvalidation.productStock(1L), CacheInvalidation.productStock(2L)));
+        assertTrue(received.isEmpty());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(List.of(CacheInvalidation.productStock(1L), CacheInvalidation.productStock(2L)), received);
+    }
+
+    @Test
+    void testFailingListener_DoesNotStopOthers() {
+        InJvmCacheInvalidationBus podA = new InJvmCacheInvalidationBus();
+        InJvmCacheInvalidationBus podB = podA.join();
+        List<CacheInvalidation> received = new ArrayList<>();
+        podB.subscribe(invalidation -> {
+            throw new IllegalStateException("boom");
+        });
+        podB.subscribe(received::add);
+
+        podA.publish(CacheInvalidation.user(2L));
+
+        assertEquals(List.of(CacheInvalidation.user(2L)), received);
+    }
+}
@@ -1,5 +1,6 @@
 package aekkasit.prodev.backend.cart.controller;
 
+import aekkasit.prodev.backend.cart.dto.CartItemOperation;
 import aekkasit.prodev.backend.cart.dto.CartResponse;
 import aekkasit.prodev.backend.cart.service.CartService;
 import aekkasit.prodev.backend.user.model.User;
@@ -10,6 +11,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -81,4 +83,21 @@ class CartControllerTest {
         assertEquals("Cart cleared", response.getBody());
         verify(cartService, times(1)).clearCart(user);
     }
+
+    @Test
+    void testApplyOperations() {
+        User user = new User();
+        CartResponse cartResponse = new CartResponse(List.of(), 0.0);
+        List<CartItemOperation> operations = List.of(
+                new CartItemOperation(CartItemOperation.Type.ADD, 1L, null, 2),
+                new CartItemOperation(CartItemOperation.Type.REMOVE, null, 5L, 0));
+
+        when(authentication.getPrincipal()).thenReturn(user);
+        when(cartService.applyOperations(user, operations)).thenReturn(cartResponse);
+
+        ResponseEntity<CartResponse> response = cartController.applyOperations(operations, authentication);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(cartResponse, response.getBody());
+    }
 }
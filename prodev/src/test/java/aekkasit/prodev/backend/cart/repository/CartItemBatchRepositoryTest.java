@@ -0,0 +1,65 @@
+package aekkasit.prodev.backend.cart.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CartItemBatchRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CartItemBatchRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        repository = new CartItemBatchRepository(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testInsert_OneBatchForAllLines() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(1L, 2);
+        quantities.put(2L, 1);
+
+        repository.insert(10L, quantities);
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(CartItemBatchRepository.INSERT_SQL), rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertArrayEquals(new Object[]{10L, 1L, 2}, rows.getValue().get(0));
+        assertArrayEquals(new Object[]{10L, 2L, 1}, rows.getValue().get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateAndDelete() {
+        repository.updateQuantities(Map.of(100L, 5));
+        repository.delete(List.of(101L, 102L));
+
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(CartItemBatchRepository.UPDATE_SQL), updates.capture());
+        assertArrayEquals(new Object[]{5, 100L}, updates.getValue().get(0));
+        ArgumentCaptor<List<Object[]>> deletes = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(CartItemBatchRepository.DELETE_SQL), deletes.capture());
+        assertEquals(2, deletes.getValue().size());
+    }
+
+    @Test
+    void testNothingToWrite_NoStatements() {
+        repository.insert(10L, Map.of());
+        repository.updateQuantities(Map.of());
+        repository.delete(List.of());
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -1,8 +1,12 @@
 package aekkasit.prodev.backend.cart.service;
 
+import aekkasit.prodev.backend.cart.dto.CartLine;
+import aekkasit.prodev.backend.cart.dto.CartItemOperation;
+import aekkasit.prodev.backend.cart.dto.CartItemResponse;
 import aekkasit.prodev.backend.cart.dto.CartResponse;
 import aekkasit.prodev.backend.cart.model.Cart;
 import aekkasit.prodev.backend.cart.model.CartItem;
+import aekkasit.prodev.backend.cart.repository.CartItemBatchRepository;
 import aekkasit.prodev.backend.cart.repository.CartItemRepository;
 import aekkasit.prodev.backend.cart.repository.CartRepository;
 import aekkasit.prodev.backend.cart.service.CartService;
@@ -11,8 +15,20 @@ import aekkasit.prodev.backend.product.repository.ProductRepository;
 import aekkasit.prodev.backend.user.model.User;
 import org.junit.jupiter.api.*;
 import org.mockito.*;
-
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -31,6 +47,9 @@ class CartServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private CartItemBatchRepository cartItemBatchRepository;
+
     private User user;
     private Product product;
     private AutoCloseable closeable;
@@ -50,6 +69,12 @@ class CartServiceTest {
         product.setCategory("Cat1");
     }
 
+    // แถวที่ findCartView คืนมาสำหรับ product
+    private CartItemResponse line(Long itemId, int qty) {
+        return new CartItemResponse(itemId, product.getName(), qty, product.getPrice(),
+                product.getImages().get(0), product.getQuantity(), product.getCategory());
+    }
+
     @AfterEach
     void tearDown() throws Exception {
         closeable.close();
@@ -82,16 +107,10 @@ class CartServiceTest {
             return item;
         });
 
-        // หลังจากเพิ่มแล้ว ให้ findByCartId return item ใหม่
-        when(cartItemRepository.findByCartId(cart.getId())).thenAnswer(i -> {
-            CartItem item = CartItem.builder()
-                    .id(1L)
-                    .cart(cart)
-                    .product(product)
-                    .quantity(2)
-                    .build();
-            return List.of(item);
-        });
+        when(cartItemRepository.findByCartIdAndProductId(cart.getId(), 1L)).thenReturn(Optional.empty());
+
+        // หลังจากเพิ่มแล้ว ให้ findCartView return item ใหม่
+        when(cartItemRepository.findCartView(1L)).thenReturn(List.of(line(1L, 2)));
 
         CartResponse response = cartService.addToCart(user, 1L, 2);
 
@@ -99,6 +118,44 @@ class CartServiceTest {
         assertEquals(1, response.getItems().size());
         assertEquals(2, response.getItems().get(0).getQuantity());
         assertEquals(200.0, response.getTotal());
+        verify(cartItemRepository).save(argThat((CartItem i) -> i.getQuantity() == 2 && i.getProduct() == product));
+        verify(cartItemRepository, never()).findByCartId(any());
+    }
+
+    @Test
+    void testAddToCart_ExistingItemOverStock() {
+        Cart cart = Cart.builder().id(1L).user(user).items(new ArrayList<>()).build();
+        CartItem existing = CartItem.builder().id(1L).cart(cart).product(product).quantity(9).build();
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(cartItemRepository.findByCartIdAndProductId(1L, 1L)).thenReturn(Optional.of(existing));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cartService.addToCart(user, 1L, 2));
+
+        assertEquals("Cannot add more than available stock", e.getMessage());
+        verify(cartItemRepository, never()).save(any());
+    }
+
+    @Test
+    void testGetCartResponse_SingleProjectionQuery() {
+        when(cartItemRepository.findCartView(1L)).thenReturn(List.of(line(1L, 2), line(2L, 3)));
+
+        CartResponse response = cartService.getCartResponse(user);
+
+        assertEquals(2, response.getItems().size());
+        assertEquals("img1.jpg", response.getItems().get(0).getImage());
+        assertEquals(500.0, response.getTotal());
+        verify(cartItemRepository, times(1)).findCartView(1L);
+        verifyNoMoreInteractions(cartItemRepository);
+        verifyNoInteractions(cartRepository, productRepository);
+    }
+
+    @Test
+    void testCartItemResponse_NullColumnsFromProjection() {
+        CartItemResponse line = new CartItemResponse(1L, "No image", 1, 10.0, null, null, "Cat1");
+
+        assertEquals("", line.getImage());
+        assertEquals(0, line.getStock());
     }
 
     @Test
@@ -107,8 +164,7 @@ class CartServiceTest {
         Cart cart = Cart.builder().user(user).items(new ArrayList<>(List.of(item))).build();
         item.setCart(cart);
 
-        when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
-        when(cartItemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(cartItemRepository.findByIdAndCartUserId(1L, 1L)).thenReturn(Optional.of(item));
 
         CartResponse response = cartService.updateQty(user, 1L, 0);
 
@@ -123,10 +179,9 @@ class CartServiceTest {
         Cart cart = Cart.builder().user(user).items(new ArrayList<>(List.of(item))).build();
         item.setCart(cart);
 
-        when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
-        when(cartItemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(cartItemRepository.findByIdAndCartUserId(1L, 1L)).thenReturn(Optional.of(item));
         when(cartItemRepository.save(item)).thenReturn(item);
-        when(cartItemRepository.findByCartId(cart.getId())).thenReturn(List.of(item));
+        when(cartItemRepository.findCartView(1L)).thenReturn(List.of(line(1L, 5)));
 
         CartResponse response = cartService.updateQty(user, 1L, 5);
 
@@ -135,6 +190,172 @@ class CartServiceTest {
         assertEquals(500.0, response.getTotal());
     }
 
+    @Test
+    void testUpdateQty_OtherUsersItem() {
+        when(cartItemRepository.findByIdAndCartUserId(1L, 1L)).thenReturn(Optional.empty());
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cartService.updateQty(user, 1L, 1));
+
+        assertEquals("Item not found", e.getMessage());
+        verify(cartItemRepository, never()).save(any());
+    }
+
+    @Test
+    void testWriteBehind_AddGoesToStoreAndViewUsesProduct() {
+        CartWriteBehindStore store = mock(CartWriteBehindStore.class);
+        CartService writeBehind = new CartService(cartRepository, cartItemRepository, productRepository,
+                cartItemBatchRepository, store);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(store.lines(user)).thenReturn(List.of(new CartLine(-1L, 1L, 3)));
+
+        CartResponse response = writeBehind.addToCart(user, 1L, 3);
+
+        verify(store).add(user, product, 3);
+        assertEquals(-1L, response.getItems().get(0).getId());
+        assertEquals("img1.jpg", response.getItems().get(0).getImage());
+        assertEquals(300.0, response.getTotal());
+        verifyNoInteractions(cartRepository, cartItemRepository);
+    }
+
+    @Test
+    void testWriteBehind_UpdateQtyChecksStock() {
+        CartWriteBehindStore store = mock(CartWriteBehindStore.class);
+        CartService writeBehind = new CartService(cartRepository, cartItemRepository, productRepository,
+                cartItemBatchRepository, store);
+        when(store.productIdOf(user, -1L)).thenReturn(Optional.of(1L));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> writeBehind.updateQty(user, -1L, 11));
+
+        assertEquals("Cannot set quantity higher than available stock", e.getMessage());
+        verify(store, never()).setQuantity(any(), any(), anyInt());
+    }
+
+    @Test
+    void testApplyOperations_OneStockQueryAndBatchedWrites() {
+        Product other = new Product();
+        other.setId(2L);
+        other.setName("Product B");
+        other.setQuantity(5);
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(Cart.builder().id(10L).user(user).build()));
+        // ในตะกร้ามี A x2 (item 100) และ C x1 (item 101)
+        when(cartItemBatchRepository.findLines(10L)).thenReturn(List.of(
+                new CartLine(100L, 1L, 2), new CartLine(101L, 3L, 1)));
+        when(productRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(product, other));
+        when(cartItemRepository.findCartView(1L)).thenReturn(List.of(line(100L, 5)));
+
+        cartService.applyOperations(user, List.of(
+                new CartItemOperation(CartItemOperation.Type.ADD, 1L, null, 1),
+                new CartItemOperation(CartItemOperation.Type.SET, null, 100L, 5),
+                new CartItemOperation(CartItemOperation.Type.ADD, 2L, null, 4),
+                new CartItemOperation(CartItemOperation.Type.REMOVE, 3L, null, 0)));
+
+        verify(productRepository, times(1)).findAllById(any());
+        verify(cartItemBatchRepository).insert(10L, Map.of(2L, 4));
+        verify(cartItemBatchRepository).updateQuantities(Map.of(100L, 5));
+        verify(cartItemBatchRepository).delete(List.of(101L));
+        verify(cartItemRepository, never()).save(any());
+    }
+
+    @Test
+    void testApplyOperations_NotEnoughStockWritesNothing() {
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(Cart.builder().id(10L).user(user).build()));
+        when(cartItemBatchRepository.findLines(10L)).thenReturn(List.of(new CartLine(100L, 1L, 8)));
+        when(productRepository.findAllById(List.of(1L))).thenReturn(List.of(product));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cartService.applyOperations(user,
+                List.of(new CartItemOperation(CartItemOperation.Type.ADD, 1L, null, 3))));
+
+        assertEquals("Not enough stock for product: Product A", e.getMessage());
+        verify(cartItemBatchRepository, never()).insert(any(), any());
+        verify(cartItemBatchRepository, never()).updateQuantities(any());
+    }
+
+    @Test
+    void testApplyOperations_UnknownItemId() {
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(Cart.builder().id(10L).user(user).build()));
+        when(cartItemBatchRepository.findLines(10L)).thenReturn(List.of());
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cartService.applyOperations(user,
+                List.of(new CartItemOperation(CartItemOperation.Type.SET, null, 999L, 1))));
+
+        assertEquals("Item not found", e.getMessage());
+    }
+
+    // store จริงที่โหลด cart 10 ของ user จาก DB (mock) พร้อมแถวที่ให้มา
+    @SuppressWarnings("unchecked")
+    private CartWriteBehindStore writeBehindStore(CartLine... persisted) {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(Cart.builder().id(10L).user(user).build()));
+        when(jdbcTemplate.query(eq(CartWriteBehindStore.LOAD_SQL), any(RowMapper.class), eq(10L)))
+                .thenReturn(List.of(persisted));
+        return new CartWriteBehindStore(cartRepository, jdbcTemplate, mock(NamedParameterJdbcTemplate.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), Duration.ofMinutes(30),
+                Clock.systemUTC());
+    }
+
+    @Test
+    void testApplyOperations_WriteBehindSetsAllAtOnce() {
+        CartWriteBehindStore store = writeBehindStore(new CartLine(5L, 1L, 1));
+        CartService writeBehind = new CartService(cartRepository, cartItemRepository, productRepository,
+                cartItemBatchRepository, store);
+        when(productRepository.findAllById(List.of(1L))).thenReturn(List.of(product));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        CartResponse response = writeBehind.applyOperations(user,
+                List.of(new CartItemOperation(CartItemOperation.Type.ADD, null, 5L, 2)));
+
+        assertEquals(3, store.lines(user).get(0).getQuantity());
+        assertEquals(300.0, response.getTotal());
+        verify(productRepository, times(1)).findAllById(any());
+        verifyNoInteractions(cartItemBatchRepository);
+    }
+
+    @Test
+    void testApplyOperations_WriteBehindNotEnoughStockWritesNothing() {
+        CartWriteBehindStore store = writeBehindStore(new CartLine(5L, 1L, 8));
+        CartService writeBehind = new CartService(cartRepository, cartItemRepository, productRepository,
+                cartItemBatchRepository, store);
+        when(productRepository.findAllById(List.of(1L))).thenReturn(List.of(product));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> writeBehind.applyOperations(user,
+                List.of(new CartItemOperation(CartItemOperation.Type.ADD, 1L, null, 3))));
+
+        assertEquals("Not enough stock for product: Product A", e.getMessage());
+        assertEquals(8, store.lines(user).get(0).getQuantity());
+    }
+
+    @Test
+    void testApplyOperations_WriteBehindKeepsConcurrentAdd() throws Exception {
+        CartWriteBehindStore store = writeBehindStore();
+        CartService writeBehind = new CartService(cartRepository, cartItemRepository, productRepository,
+                cartItemBatchRepository, store);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        CountDownLatch prefetched = new CountDownLatch(1);
+        CountDownLatch added = new CountDownLatch(1);
+        // addToCart เข้ามาหลัง applyOperations อ่าน snapshot แล้ว ระหว่างรอ query stock
+        when(productRepository.findAllById(List.of(1L))).thenAnswer(invocation -> {
+            prefetched.countDown();
+            assertTrue(added.await(5, TimeUnit.SECONDS));
+            return List.of(product);
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<CartResponse> apply = executor.submit(() -> writeBehind.applyOperations(user,
+                    List.of(new CartItemOperation(CartItemOperation.Type.ADD, 1L, null, 2))));
+            assertTrue(prefetched.await(5, TimeUnit.SECONDS));
+            writeBehind.addToCart(user, 1L, 1);
+            added.countDown();
+            apply.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // ทั้ง +1 และ +2 ต้องอยู่ ไม่มีฝั่งไหนเขียนทับ
+        assertEquals(3, store.lines(user).get(0).getQuantity());
+    }
+
     @Test
     void testClearCart() {
         CartItem item = CartItem.builder().id(1L).product(product).quantity(2).build();
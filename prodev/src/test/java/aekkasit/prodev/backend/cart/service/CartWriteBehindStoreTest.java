@@ -0,0 +1,409 @@
+package aekkasit.prodev.backend.cart.service;
+
+import aekkasit.prodev.backend.cart.dto.CartLine;
+import aekkasit.prodev.backend.cart.model.Cart;
+import aekkasit.prodev.backend.cart.repository.CartRepository;
+import aekkasit.prodev.backend.product.model.Product;
+import aekkasit.prodev.backend.user.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CartWriteBehindStoreTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final User user = User.builder().id(1L).username("john").build();
+    private CartWriteBehindStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = store(Duration.ofMinutes(30));
+        lenient().when(cartRepository.findByUser(user)).thenReturn(Optional.of(Cart.builder().id(10L).user(user).build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private CartWriteBehindStore store(Duration idleTimeout) {
+        return new CartWriteBehindStore(cartRepository, jdbcTemplate, namedParameterJdbcTemplate,
+                new TransactionTemplate(transactionManager), idleTimeout, Clock.systemUTC());
+    }
+
+    private static Product product(long id, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setQuantity(stock);
+        return product;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void persistedLines(CartLine... lines) {
+        when(jdbcTemplate.query(eq(CartWriteBehindStore.LOAD_SQL), any(RowMapper.class), eq(10L)))
+                .thenReturn(List.of(lines));
+    }
+
+    // จำลอง MySQL คืน id ของแถวที่ insert
+    private void generatedIds(long... ids) {
+        doAnswer(invocation -> {
+            KeyHolder keyHolder = invocation.getArgument(2);
+            for (long id : ids) {
+                keyHolder.getKeyList().add(Map.of("GENERATED_KEY", id));
+            }
+            return new int[ids.length];
+        }).when(namedParameterJdbcTemplate).batchUpdate(eq(CartWriteBehindStore.INSERT_SQL),
+                any(SqlParameterSource[].class), any(KeyHolder.class), any(String[].class));
+    }
+
+    @Test
+    void testAdd_CoalescedIntoOneInsertOnFlush() {
+        persistedLines();
+        generatedIds(100L);
+
+        store.add(user, product(7L, 10), 1);
+        store.add(user, product(7L, 10), 2);
+        verifyNoInteractions(namedParameterJdbcTemplate);
+
+        store.flush();
+
+        ArgumentCaptor<SqlParameterSource[]> params = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(namedParameterJdbcTemplate).batchUpdate(eq(CartWriteBehindStore.INSERT_SQL), params.capture(),
+                any(KeyHolder.class), any(String[].class));
+        assertEquals(1, params.getValue().length);
+        assertEquals(3, params.getValue()[0].getValue("quantity"));
+        assertEquals(10L, params.getValue()[0].getValue("cartId"));
+        // แถวได้ id จริงแล้ว
+        assertEquals(100L, store.lines(user).get(0).getId());
+
+        // ไม่มีอะไรค้าง รอบต่อไปไม่เขียนซ้ำ
+        store.flush();
+        verify(namedParameterJdbcTemplate, times(1)).batchUpdate(anyString(), any(SqlParameterSource[].class),
+                any(KeyHolder.class), any(String[].class));
+    }
+
+    @Test
+    void testAdd_OverStockRejected() {
+        persistedLines(new CartLine(5L, 7L, 9));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> store.add(user, product(7L, 10), 2));
+
+        assertEquals("Cannot add more than available stock", e.getMessage());
+        assertEquals(9, store.lines(user).get(0).getQuantity());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSetQuantity_UpdatesAndDeletesPersistedLines() {
+        persistedLines(new CartLine(5L, 7L, 1), new CartLine(6L, 8L, 1));
+
+        store.setQuantity(user, 7L, 4);
+        store.setQuantity(user, 8L, 0);
+        store.flush();
+
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(CartWriteBehindStore.UPDATE_SQL), updates.capture());
+        assertArrayEquals(new Object[]{4, 5L}, updates.getValue().get(0));
+        ArgumentCaptor<List<Object[]>> deletes = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(CartWriteBehindStore.DELETE_SQL), deletes.capture());
+        assertArrayEquals(new Object[]{6L}, deletes.getValue().get(0));
+
+        assertEquals(1, store.lines(user).size());
+    }
+
+    @Test
+    void testUpdateLines_SeesCurrentLinesAndWritesNothingOnError() {
+        persistedLines(new CartLine(5L, 7L, 2));
+
+        store.updateLines(user, lines -> Map.of(7L, lines.get(0).getQuantity() + 1, 8L, 1));
+        assertThrows(RuntimeException.class, () -> store.updateLines(user, lines -> {
+            throw new RuntimeException("Not enough stock for product: A");
+        }));
+
+        List<CartLine> lines = store.lines(user);
+        assertEquals(2, lines.size());
+        assertEquals(3, lines.get(0).getQuantity());
+        assertEquals(-8L, lines.get(1).getId());
+    }
+
+    @Test
+    void testAddThenRemoveBeforeFlush_NoWrites() {
+        persistedLines();
+
+        store.add(user, product(7L, 10), 1);
+        assertEquals(Optional.of(7L), store.productIdOf(user, -7L));
+        store.setQuantity(user, 7L, 0);
+        store.flush();
+
+        verifyNoInteractions(namedParameterJdbcTemplate);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertTrue(store.lines(user).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedFlush_RetriedNextInterval() {
+        persistedLines(new CartLine(5L, 7L, 1));
+        when(jdbcTemplate.batchUpdate(eq(CartWriteBehindStore.UPDATE_SQL), anyList()))
+                .thenThrow(new TransientDataAccessResourceException("connection reset"))
+                .thenReturn(new int[]{1});
+
+        store.setQuantity(user, 7L, 2);
+        store.flush();
+        store.flush();
+        store.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(CartWriteBehindStore.UPDATE_SQL), anyList());
+    }
+
+    @Test
+    void testFlushUser_WritesPendingChanges() {
+        persistedLines(new CartLine(5L, 7L, 1));
+
+        store.setQuantity(user, 7L, 3);
+        store.flush(user);
+
+        verify(jdbcTemplate).batchUpdate(eq(CartWriteBehindStore.UPDATE_SQL), anyList());
+    }
+
+    @Test
+    void testClear_DropsMemoryAndDeletesRows() {
+        persistedLines(new CartLine(5L, 7L, 1));
+        store.setQuantity(user, 7L, 3);
+
+        store.clear(user);
+
+        verify(jdbcTemplate).update(CartWriteBehindStore.CLEAR_SQL, 10L);
+        // ของที่ค้างก่อน clear ไม่ถูกเขียนทีหลัง
+        store.flush();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        // cart ว่างพร้อมใช้ต่อ ไม่ต้องโหลดแถวเดิมซ้ำ
+        assertTrue(store.lines(user).isEmpty());
+        verify(jdbcTemplate, times(1)).query(eq(CartWriteBehindStore.LOAD_SQL), any(RowMapper.class), eq(10L));
+    }
+
+    // จบ transaction ของ checkout ที่เรียก clear
+    private static void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testClear_RolledBack_ReloadsRows() {
+        persistedLines(new CartLine(5L, 7L, 1));
+        store.lines(user);
+        TransactionSynchronizationManager.initSynchronization();
+
+        store.clear(user);
+        assertTrue(store.lines(user).isEmpty());
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // แถวที่ลบกลับมาแล้ว memory ต้องไม่ว่างค้างไว้
+        List<CartLine> lines = store.lines(user);
+        assertEquals(1, lines.size());
+        assertEquals(5L, lines.get(0).getId());
+        assertEquals(1, lines.get(0).getQuantity());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testClear_ChangedBeforeCommit_FlushedBeforeEvicted() {
+        persistedLines(new CartLine(5L, 7L, 1));
+        generatedIds(6L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        store.clear(user);
+        store.setQuantity(user, 8L, 2);
+        // transaction ของ clear ยังไม่จบ: ยังไม่เขียน
+        store.flush();
+        verifyNoInteractions(namedParameterJdbcTemplate);
+
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(1, store.size());
+
+        store.flush();
+        ArgumentCaptor<SqlParameterSource[]> params = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(namedParameterJdbcTemplate).batchUpdate(eq(CartWriteBehindStore.INSERT_SQL), params.capture(),
+                any(KeyHolder.class), any(String[].class));
+        assertEquals(8L, params.getValue()[0].getValue("productId"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testClear_ChangedBeforeRollback_WritesOntoRestoredRow() {
+        persistedLines(new CartLine(5L, 7L, 1));
+        TransactionSynchronizationManager.initSynchronization();
+
+        store.clear(user);
+        store.setQuantity(user, 7L, 4);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        store.flush(user);
+
+        // แก้แถวเดิมที่กลับมา ไม่ insert แถวซ้ำ
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(CartWriteBehindStore.UPDATE_SQL), updates.capture());
+        assertArrayEquals(new Object[]{4, 5L}, updates.getValue().get(0));
+        verifyNoInteractions(namedParameterJdbcTemplate);
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLoad_DoesNotBlockOtherUsers() throws Exception {
+        // id 17 ตกช่องเดียวกับ id 1 ใน ConcurrentHashMap ขนาดเริ่มต้น
+        User other = User.builder().id(17L).username("jane").build();
+        when(cartRepository.findByUser(other)).thenReturn(Optional.of(Cart.builder().id(20L).user(other).build()));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.query(eq(CartWriteBehindStore.LOAD_SQL), any(RowMapper.class), eq(10L))).thenAnswer(i -> {
+            loading.countDown();
+            release.await();
+            return List.of();
+        });
+        when(jdbcTemplate.query(eq(CartWriteBehindStore.LOAD_SQL), any(RowMapper.class), eq(20L)))
+                .thenReturn(List.of(new CartLine(50L, 8L, 1)));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<CartLine>> slowLoad = executor.submit(() -> store.lines(user));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            List<CartLine> lines = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> store.lines(other));
+            assertEquals(1, lines.size());
+
+            release.countDown();
+            assertTrue(slowLoad.get(5, TimeUnit.SECONDS).isEmpty());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushUser_NotBlockedByPeriodicFlushOfOtherCarts() throws Exception {
+        User other = User.builder().id(2L).username("jane").build();
+        when(cartRepository.findByUser(other)).thenReturn(Optional.of(Cart.builder().id(20L).user(other).build()));
+        persistedLines(new CartLine(5L, 7L, 1));
+        when(jdbcTemplate.query(eq(CartWriteBehindStore.LOAD_SQL), any(RowMapper.class), eq(20L)))
+                .thenReturn(List.of(new CartLine(50L, 8L, 1)));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(i -> {
+            List<Object[]> rows = i.getArgument(1);
+            if (rows.get(0)[1].equals(5L)) {
+                // flush รอบเวลาค้างอยู่ที่ cart ของ user แรก
+                writing.countDown();
+                release.await();
+            }
+            return new int[rows.size()];
+        }).when(jdbcTemplate).batchUpdate(eq(CartWriteBehindStore.UPDATE_SQL), anyList());
+
+        store.setQuantity(user, 7L, 2);
+        store.lines(other);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> periodic = executor.submit(() -> store.flush());
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            store.setQuantity(other, 8L, 3);
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> store.flush(other));
+
+            ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+            verify(jdbcTemplate, times(2)).batchUpdate(eq(CartWriteBehindStore.UPDATE_SQL), updates.capture());
+            assertArrayEquals(new Object[]{3, 50L}, updates.getAllValues().get(1).get(0));
+
+            release.countDown();
+            periodic.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testIdleCleanCartsEvicted() {
+        store = store(Duration.ZERO);
+        persistedLines(new CartLine(5L, 7L, 1));
+
+        store.lines(user);
+        store.flush();
+        assertEquals(0, store.size());
+
+        // โหลดใหม่จาก DB
+        store.lines(user);
+        verify(jdbcTemplate, times(2)).query(eq(CartWriteBehindStore.LOAD_SQL), any(RowMapper.class), eq(10L));
+    }
+
+    @Test
+    void testShutdown_FlushesPendingChanges() {
+        persistedLines(new CartLine(5L, 7L, 1));
+        store.setQuantity(user, 7L, 2);
+
+        store.shutdown();
+
+        verify(jdbcTemplate).batchUpdate(eq(CartWriteBehindStore.UPDATE_SQL), anyList());
+    }
+
+    @Test
+    void testNewCartCreatedOnFirstUse() {
+        User newUser = User.builder().id(2L).username("jane").build();
+        when(cartRepository.findByUser(newUser)).thenReturn(Optional.empty());
+        when(cartRepository.save(any(Cart.class))).thenAnswer(i -> {
+            Cart cart = i.getArgument(0);
+            cart.setId(11L);
+            return cart;
+        });
+
+        assertTrue(store.lines(newUser).isEmpty());
+        verify(cartRepository).save(argThat((Cart c) -> c.getUser() == newUser && c.getItems() instanceof ArrayList));
+    }
+}
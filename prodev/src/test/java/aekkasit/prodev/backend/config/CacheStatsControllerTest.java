@@ -0,0 +1,57 @@
+package aekkasit.prodev.backend.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CacheStatsControllerTest {
+
+    private Statistics statistics;
+    private CacheStatsController controller;
+
+    @BeforeEach
+    void setUp() {
+        statistics = mock(Statistics.class);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.getStatistics()).thenReturn(statistics);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        controller = new CacheStatsController(entityManagerFactory);
+    }
+
+    @Test
+    void testStats_DisabledReportedWithoutCounters() {
+        when(statistics.isStatisticsEnabled()).thenReturn(false);
+
+        Map<String, Object> body = controller.getStats().getBody();
+
+        assertNotNull(body);
+        assertEquals(false, body.get("enabled"));
+        assertTrue(body.containsKey("message"));
+        assertFalse(body.containsKey("secondLevel"));
+        verify(statistics, never()).getSecondLevelCacheHitCount();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStats_EnabledReturnsCounters() {
+        when(statistics.isStatisticsEnabled()).thenReturn(true);
+        when(statistics.getSecondLevelCacheHitCount()).thenReturn(3L);
+        when(statistics.getSecondLevelCacheMissCount()).thenReturn(1L);
+        when(statistics.getSecondLevelCacheRegionNames()).thenReturn(new String[0]);
+
+        Map<String, Object> body = controller.getStats().getBody();
+
+        assertNotNull(body);
+        assertEquals(true, body.get("enabled"));
+        Map<String, Object> secondLevel = (Map<String, Object>) body.get("secondLevel");
+        assertEquals(0.75, secondLevel.get("hitRatio"));
+    }
+}
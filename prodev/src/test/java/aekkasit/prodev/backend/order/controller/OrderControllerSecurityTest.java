@@ -0,0 +1,99 @@
+package aekkasit.prodev.backend.order.controller;
+
+import aekkasit.prodev.backend.cart.dto.CartResponse;
+import aekkasit.prodev.backend.cart.service.CartService;
+import aekkasit.prodev.backend.order.service.OrderService;
+import aekkasit.prodev.backend.order.service.ReceiptService;
+import aekkasit.prodev.backend.product.service.CatalogVersion;
+import aekkasit.prodev.backend.user.model.User;
+import aekkasit.prodev.backend.user.security.JwtPrincipalCache;
+import aekkasit.prodev.backend.user.security.JwtPrincipalCache.CachedPrincipal;
+import aekkasit.prodev.backend.user.security.JwtUtils;
+import aekkasit.prodev.backend.user.security.SecurityConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// ยิงผ่าน security filter chain จริง: path rule ใน SecurityConfig ต้องเปิดให้ USER
+@WebMvcTest(OrderController.class)
+@Import(SecurityConfig.class)
+class OrderControllerSecurityTest {
+
+    private static final String USER_TOKEN = "Bearer user-token";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private OrderService orderService;
+
+    @MockitoBean
+    private ReceiptService receiptService;
+
+    @MockitoBean
+    private CartService cartService;
+
+    @MockitoBean
+    private JwtUtils jwtUtils;
+
+    @MockitoBean
+    private JwtPrincipalCache principalCache;
+
+    @MockitoBean
+    private CatalogVersion catalogVersion;
+
+    private final User user = User.builder().id(1L).username("john").role("USER").build();
+
+    @BeforeEach
+    void setUp() {
+        when(principalCache.get(eq("user-token"), any())).thenReturn(
+                new CachedPrincipal(user, List.of(new SimpleGrantedAuthority("ROLE_USER")), null));
+    }
+
+    @Test
+    void testCheckoutHistory_AllowedForUser() throws Exception {
+        when(orderService.getCheckoutHistory(user)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/orders/history/checkouts").header("Authorization", USER_TOKEN))
+                .andExpect(status().isOk());
+
+        verify(orderService).getCheckoutHistory(user);
+    }
+
+    @Test
+    void testReorderCheckout_AllowedForUser() throws Exception {
+        when(orderService.reorderCheckout(user, 42L)).thenReturn(new CartResponse(List.of(), 0));
+
+        mockMvc.perform(post("/api/orders/checkouts/42/reorder").header("Authorization", USER_TOKEN))
+                .andExpect(status().isOk());
+
+        verify(orderService).reorderCheckout(user, 42L);
+    }
+
+    @Test
+    void testReorderCheckout_RejectedWithoutToken() throws Exception {
+        mockMvc.perform(post("/api/orders/checkouts/42/reorder"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void testAllOrders_StillAdminOnly() throws Exception {
+        mockMvc.perform(get("/api/orders").header("Authorization", USER_TOKEN))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -1,14 +1,19 @@
 package aekkasit.prodev.backend.order.controller;
 
+import aekkasit.prodev.backend.cart.dto.CartResponse;
 import aekkasit.prodev.backend.cart.model.CartItem;
+import aekkasit.prodev.backend.cart.service.CartService;
 import aekkasit.prodev.backend.coupon.service.CouponService;
 import aekkasit.prodev.backend.order.model.Order;
+import aekkasit.prodev.backend.order.model.OrderReceipt;
 import aekkasit.prodev.backend.order.service.OrderService;
+import aekkasit.prodev.backend.order.service.ReceiptService;
 import aekkasit.prodev.backend.product.model.Product;
 import aekkasit.prodev.backend.user.model.User;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 
@@ -29,6 +34,12 @@ class OrderControllerTest {
     @Mock
     private CouponService couponService;
 
+    @Mock
+    private ReceiptService receiptService;
+
+    @Mock
+    private CartService cartService;
+
     @Mock
     private Authentication authentication;
 
@@ -94,6 +105,11 @@ class OrderControllerTest {
         assertEquals(2, responseOrder.getQuantity());
         assertEquals("image1.jpg", responseOrder.getImage());
         assertEquals(100.0, responseOrder.getPrice());
+
+        // write-behind cart ถูกเขียนลง DB ก่อนเข้า checkout
+        InOrder inOrder = inOrder(cartService, orderService);
+        inOrder.verify(cartService).flush(user);
+        inOrder.verify(orderService).checkout(user, "testCouponCode");
     }
 
 
@@ -180,4 +196,66 @@ class OrderControllerTest {
         assertEquals(404, response.getStatusCode().value());
         verify(orderService, never()).deleteOrder(anyLong());
     }
+
+    @Test
+    void testDownloadReceipt_Ready() {
+        User user = new User();
+        user.setId(1L);
+        OrderReceipt receipt = OrderReceipt.builder()
+                .id(5L).user(user).status(OrderReceipt.Status.READY).pdf(new byte[]{1, 2}).build();
+        when(receiptService.getReceipt(5L, user)).thenReturn(Optional.of(receipt));
+
+        ResponseEntity<?> response = orderController.downloadReceipt(5L, user);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(MediaType.APPLICATION_PDF, response.getHeaders().getContentType());
+        assertArrayEquals(new byte[]{1, 2}, (byte[]) response.getBody());
+    }
+
+    @Test
+    void testDownloadReceipt_PendingReturnsAccepted() {
+        User user = new User();
+        user.setId(1L);
+        OrderReceipt receipt = OrderReceipt.builder().id(5L).user(user).status(OrderReceipt.Status.PENDING).build();
+        when(receiptService.getReceipt(5L, user)).thenReturn(Optional.of(receipt));
+
+        ResponseEntity<?> response = orderController.downloadReceipt(5L, user);
+
+        assertEquals(202, response.getStatusCode().value());
+    }
+
+    @Test
+    void testDownloadReceipt_NotFound() {
+        User user = new User();
+        user.setId(1L);
+        when(receiptService.getReceipt(5L, user)).thenReturn(Optional.empty());
+
+        ResponseEntity<?> response = orderController.downloadReceipt(5L, user);
+
+        assertEquals(404, response.getStatusCode().value());
+    }
+
+    @Test
+    void testReorderCheckout() {
+        User user = new User();
+        user.setId(1L);
+        CartResponse cart = new CartResponse(List.of(), 0);
+        when(orderService.reorderCheckout(user, 20L)).thenReturn(cart);
+
+        ResponseEntity<?> response = orderController.reorderCheckout(20L, user);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertSame(cart, response.getBody());
+    }
+
+    @Test
+    void testReorderCheckout_NotEnoughStock() {
+        User user = new User();
+        when(orderService.reorderCheckout(user, 20L)).thenThrow(new RuntimeException("Not enough stock for product: Cola"));
+
+        ResponseEntity<?> response = orderController.reorderCheckout(20L, user);
+
+        assertEquals(400, response.getStatusCode().value());
+        assertEquals("Not enough stock for product: Cola", response.getBody());
+    }
 }
@@ -0,0 +1,80 @@
+package aekkasit.prodev.backend.order.repository;
+
+import aekkasit.prodev.backend.order.model.Order;
+import aekkasit.prodev.backend.order.model.OrderCheckout;
+import aekkasit.prodev.backend.product.model.Product;
+import aekkasit.prodev.backend.user.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderLineBatchRepositoryTest {
+
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private OrderLineBatchRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        namedParameterJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        repository = new OrderLineBatchRepository(namedParameterJdbcTemplate);
+    }
+
+    private static Order line(long productId, int qty) {
+        Product product = new Product();
+        product.setId(productId);
+        return Order.builder()
+                .name("P" + productId)
+                .quantity(qty)
+                .price(10.0)
+                .status(Order.Status.PENDING)
+                .user(User.builder().id(1L).build())
+                .product(product)
+                .receiptId(7L)
+                .checkout(OrderCheckout.builder().id(3L).build())
+                .build();
+    }
+
+    @Test
+    void testInsert_OneBatchAndIdsFromGeneratedKeys() {
+        when(namedParameterJdbcTemplate.batchUpdate(eq(OrderLineBatchRepository.INSERT_SQL),
+                any(SqlParameterSource[].class), any(KeyHolder.class), any(String[].class)))
+                .thenAnswer(invocation -> {
+                    // MySQL คืน key ชื่อ GENERATED_KEY
+                    KeyHolder keyHolder = invocation.getArgument(2);
+                    keyHolder.getKeyList().add(Map.of("GENERATED_KEY", 100L));
+                    keyHolder.getKeyList().add(Map.of("GENERATED_KEY", 101L));
+                    return new int[]{1, 1};
+                });
+
+        List<Order> orders = repository.insert(List.of(line(1L, 2), line(2L, 1)));
+
+        ArgumentCaptor<SqlParameterSource[]> params = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(namedParameterJdbcTemplate, times(1)).batchUpdate(eq(OrderLineBatchRepository.INSERT_SQL),
+                params.capture(), any(KeyHolder.class), any(String[].class));
+        assertEquals(2, params.getValue().length);
+        assertEquals(2L, params.getValue()[1].getValue("productId"));
+        assertEquals("PENDING", params.getValue()[1].getValue("status"));
+        assertEquals(3L, params.getValue()[0].getValue("checkoutId"));
+
+        assertEquals(100L, orders.get(0).getId());
+        assertEquals(101L, orders.get(1).getId());
+        assertTrue(orders.stream().allMatch(o -> o.getCreatedAt() != null));
+    }
+
+    @Test
+    void testInsert_NoLines_NoStatement() {
+        assertTrue(repository.insert(List.of()).isEmpty());
+        verifyNoInteractions(namedParameterJdbcTemplate);
+    }
+}
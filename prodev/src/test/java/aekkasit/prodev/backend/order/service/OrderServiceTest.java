@@ -1,11 +1,33 @@
 package aekkasit.prodev.backend.order.service;
 
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import aekkasit.prodev.backend.cache.service.CacheInvalidationBus;
+import aekkasit.prodev.backend.cart.dto.CartItemOperation;
+import aekkasit.prodev.backend.cart.dto.CartResponse;
+import aekkasit.prodev.backend.cart.model.Cart;
+import aekkasit.prodev.backend.cart.model.CartItem;
+import aekkasit.prodev.backend.cart.repository.CartItemRepository;
+import aekkasit.prodev.backend.coupon.service.CouponService;
+import aekkasit.prodev.backend.cart.service.CartService;
+import aekkasit.prodev.backend.order.dto.CheckoutSummary;
+import aekkasit.prodev.backend.order.dto.ReceiptLine;
+import aekkasit.prodev.backend.order.event.ReceiptRequestedEvent;
 import aekkasit.prodev.backend.order.model.Order;
+import aekkasit.prodev.backend.order.model.OrderCheckout;
+import aekkasit.prodev.backend.order.model.OrderReceipt;
+import aekkasit.prodev.backend.order.repository.OrderCheckoutRepository;
+import aekkasit.prodev.backend.order.repository.OrderLineBatchRepository;
+import aekkasit.prodev.backend.order.repository.OrderReceiptRepository;
 import aekkasit.prodev.backend.order.repository.OrderRepository;
+import aekkasit.prodev.backend.product.model.Product;
+import aekkasit.prodev.backend.product.repository.ProductStockRepository;
+import aekkasit.prodev.backend.product.service.CatalogVersion;
 import aekkasit.prodev.backend.user.model.User;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -20,6 +42,46 @@ class OrderServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private ProductStockRepository productStockRepository;
+
+    @Mock
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private CouponService couponService;
+
+    @Mock
+    private OrderReceiptRepository orderReceiptRepository;
+
+    @Mock
+    private OrderCheckoutRepository orderCheckoutRepository;
+
+    @Mock
+    private OrderLineBatchRepository orderLineBatchRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private static CartItem cartItem(long productId, String name, int stock, int qty) {
+        Product product = new Product();
+        product.setId(productId);
+        product.setName(name);
+        product.setQuantity(stock);
+        product.setStatusStock("In stock");
+        product.setImages(new ArrayList<>());
+        return CartItem.builder().product(product).quantity(qty).build();
+    }
+
     @Test
     void testCreateOrder() {
         Order order = new Order();
@@ -98,6 +160,34 @@ class OrderServiceTest {
         verify(orderRepository, times(1)).save(order); // verify save แทน delete
     }
 
+    @Test
+    void testReceiveOrder_PrincipalFromTokenMatchesById() {
+        // principal จาก JWT มีแค่ id/username/role
+        User principal = User.builder().id(1L).username("john").role("USER").build();
+        User owner = User.builder().id(1L).username("john").email("john@example.com").password("hash").role("USER").build();
+        Order order = new Order();
+        order.setUser(owner);
+        order.setStatus(Order.Status.FULFILLED);
+
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.save(order)).thenReturn(order);
+
+        assertTrue(orderService.receiveOrder(1L, principal).isPresent());
+    }
+
+    @Test
+    void testReceiveOrder_OtherUsersOrder() {
+        User principal = User.builder().id(2L).username("jane").role("USER").build();
+        Order order = new Order();
+        order.setUser(User.builder().id(1L).username("john").build());
+        order.setStatus(Order.Status.FULFILLED);
+
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+
+        assertTrue(orderService.receiveOrder(1L, principal).isEmpty());
+        verify(orderRepository, never()).save(any());
+    }
+
     @Test
     void testReceiveOrder_NotFulfilledOrWrongUser() {
         User user = new User();
@@ -113,4 +203,169 @@ class OrderServiceTest {
         assertTrue(result.isEmpty());
         verify(orderRepository, never()).delete(any());
     }
+
+    @Test
+    void testReduceStock_AllRowsUpdated() {
+        List<CartItem> items = List.of(cartItem(1L, "Cola", 5, 2), cartItem(2L, "Chips", 3, 3));
+        when(productStockRepository.decrementStock(Map.of(1L, 2, 2L, 3))).thenReturn(List.of());
+        when(productStockRepository.findStockLevels(Set.of(1L, 2L))).thenReturn(Map.of(
+                1L, new ProductStockRepository.StockLevel(3, "In stock"),
+                2L, new ProductStockRepository.StockLevel(0, "Out of stock")
+        ));
+
+        List<Product> updated = orderService.reduceStock(items);
+
+        assertEquals(2, updated.size());
+        assertEquals(3, updated.get(0).getQuantity());
+        assertEquals("Out of stock", updated.get(1).getStatusStock());
+        // entity เดิมใน cart ต้องไม่ถูกแก้
+        assertEquals(5, items.get(0).getProduct().getQuantity());
+        // pod อื่นได้รับแจ้งให้ทิ้ง cache ของสินค้าทั้งสอง
+        verify(cacheInvalidationBus).publishAll(
+                List.of(CacheInvalidation.productStock(1L), CacheInvalidation.productStock(2L)));
+        verify(cacheInvalidationBus, never()).publish(any());
+        verify(catalogVersion).bump();
+    }
+
+    @Test
+    void testReduceStock_NotEnoughStockThrows() {
+        List<CartItem> items = List.of(cartItem(1L, "Cola", 5, 2), cartItem(2L, "Chips", 1, 3));
+        when(productStockRepository.decrementStock(anyMap())).thenReturn(List.of(2L));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> orderService.reduceStock(items));
+
+        assertEquals("Not enough stock for product: Chips", e.getMessage());
+        verify(productStockRepository, never()).findStockLevels(any());
+        verify(cacheInvalidationBus, never()).publishAll(any());
+        verify(catalogVersion, never()).bump();
+    }
+
+    private static Order order(long id, Long receiptId, Product product, int qty, double price) {
+        return Order.builder().id(id).receiptId(receiptId).product(product).quantity(qty).price(price).build();
+    }
+
+    private static OrderCheckout checkout(long id, Long receiptId, LocalDateTime createdAt, double total, Order... lines) {
+        OrderCheckout checkout = OrderCheckout.builder().id(id).receiptId(receiptId).createdAt(createdAt)
+                .subtotal(total).total(total).build();
+        for (Order line : lines) {
+            line.setCheckout(checkout);
+            checkout.getLines().add(line);
+        }
+        return checkout;
+    }
+
+    @Test
+    void testGetCheckoutHistory_StoredHeaderTotals() {
+        User user = User.builder().id(1L).build();
+        LocalDateTime now = LocalDateTime.now();
+        // ยอดหัว checkout มีคูปองแล้ว (18.0) ไม่ใช่ราคา x จำนวน (20.0)
+        OrderCheckout latest = checkout(5L, 20L, now, 18.0, order(3L, 20L, null, 1, 10.0), order(2L, 20L, null, 2, 5.0));
+        latest.setCouponCode("SAVE10");
+        latest.setCouponDiscount(10);
+        latest.setSubtotal(20.0);
+        OrderCheckout older = checkout(4L, 10L, now.minusDays(1), 7.0, order(1L, 10L, null, 1, 7.0));
+        Order legacy = order(0L, null, null, 1, 3.0);
+        legacy.setCreatedAt(now.minusDays(2));
+        when(orderCheckoutRepository.findByUserIdOrderByCreatedAtDesc(1L)).thenReturn(List.of(latest, older));
+        when(orderRepository.findByUserAndCheckoutIsNullOrderByCreatedAtDesc(user)).thenReturn(List.of(legacy));
+
+        List<CheckoutSummary> checkouts = orderService.getCheckoutHistory(user);
+
+        assertEquals(3, checkouts.size());
+        assertEquals(5L, checkouts.get(0).getCheckoutId());
+        assertEquals(20L, checkouts.get(0).getReceiptId());
+        assertEquals(2, checkouts.get(0).getOrders().size());
+        assertEquals(18.0, checkouts.get(0).getTotal());
+        assertEquals("SAVE10", checkouts.get(0).getCouponCode());
+        assertEquals(4L, checkouts.get(1).getCheckoutId());
+        assertNull(checkouts.get(2).getCheckoutId());
+        assertEquals(3.0, checkouts.get(2).getTotal());
+        verify(orderRepository, never()).findByUserOrderByCreatedAtDesc(any());
+    }
+
+    @Test
+    void testReorderCheckout_OneBatchOfOperations() {
+        User user = User.builder().id(1L).build();
+        Product cola = cartItem(1L, "Cola", 5, 1).getProduct();
+        Product chips = cartItem(2L, "Chips", 5, 1).getProduct();
+        when(orderCheckoutRepository.findByIdAndUserId(5L, 1L)).thenReturn(Optional.of(checkout(5L, 20L, null, 26.0,
+                order(3L, 20L, cola, 2, 10.0),
+                order(4L, 20L, chips, 1, 5.0),
+                order(5L, 20L, cola, 1, 10.0),
+                order(6L, 20L, null, 1, 1.0))));
+        CartResponse cart = new CartResponse(List.of(), 0);
+        when(cartService.applyOperations(eq(user), anyList())).thenReturn(cart);
+
+        assertSame(cart, orderService.reorderCheckout(user, 5L));
+
+        verify(cartService).applyOperations(user, List.of(
+                new CartItemOperation(CartItemOperation.Type.ADD, 1L, null, 3),
+                new CartItemOperation(CartItemOperation.Type.ADD, 2L, null, 1)));
+        verify(cartService, never()).addToCart(any(), any(), anyInt());
+    }
+
+    @Test
+    void testReorderCheckout_OtherUsersCheckout() {
+        User user = User.builder().id(2L).build();
+        when(orderCheckoutRepository.findByIdAndUserId(5L, 2L)).thenReturn(Optional.empty());
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> orderService.reorderCheckout(user, 5L));
+
+        assertEquals("Order not found", e.getMessage());
+        verifyNoInteractions(cartService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCheckout_HeaderAndLinesSavedInOneBatch() {
+        User user = User.builder().id(1L).username("john").build();
+        CartItem cola = cartItem(1L, "Cola", 5, 2);
+        cola.getProduct().setPrice(10.0);
+        CartItem chips = cartItem(2L, "Chips", 5, 1);
+        chips.getProduct().setPrice(30.0);
+        when(cartService.getCart(user)).thenReturn(Cart.builder().id(10L).build());
+        when(cartItemRepository.findByCartId(10L)).thenReturn(List.of(cola, chips));
+        when(productStockRepository.decrementStock(anyMap())).thenReturn(List.of());
+        when(productStockRepository.findStockLevels(any())).thenReturn(Map.of(
+                1L, new ProductStockRepository.StockLevel(3, "In stock"),
+                2L, new ProductStockRepository.StockLevel(4, "In stock")));
+        when(couponService.getCouponDiscount("SAVE10", 1L)).thenReturn(10.0);
+        when(orderReceiptRepository.save(any())).thenReturn(OrderReceipt.builder().id(7L).build());
+        when(orderCheckoutRepository.save(any())).thenAnswer(i -> {
+            OrderCheckout checkout = i.getArgument(0);
+            checkout.setId(3L);
+            return checkout;
+        });
+        when(orderLineBatchRepository.insert(anyList())).thenAnswer(i -> i.getArgument(0));
+
+        Map<String, Object> result = orderService.checkout(user, "SAVE10");
+
+        ArgumentCaptor<OrderCheckout> checkout = ArgumentCaptor.forClass(OrderCheckout.class);
+        verify(orderCheckoutRepository).save(checkout.capture());
+        assertEquals(7L, checkout.getValue().getReceiptId());
+        assertEquals(2, checkout.getValue().getItemCount());
+        assertEquals(50.0, checkout.getValue().getSubtotal());
+        assertEquals(45.0, checkout.getValue().getTotal(), 1e-9);
+        assertEquals("SAVE10", checkout.getValue().getCouponCode());
+
+        // order ทุกบรรทัดบันทึกเป็น JDBC batch เดียว
+        ArgumentCaptor<List<Order>> orders = ArgumentCaptor.forClass(List.class);
+        verify(orderLineBatchRepository).insert(orders.capture());
+        verifyNoInteractions(orderRepository);
+        assertEquals(2, orders.getValue().size());
+        assertTrue(orders.getValue().stream().allMatch(o -> o.getCheckout().getId() == 3L && o.getReceiptId() == 7L));
+        assertEquals(orders.getValue(), checkout.getValue().getLines());
+        assertEquals(3L, result.get("checkoutId"));
+        // flush ทำที่ controller ก่อนเข้า transaction
+        verify(cartService, never()).flush(user);
+        verify(cartService).clearCart(user);
+
+        // ใบเสร็จได้ค่าที่ copy ไว้ ไม่ใช่ CartItem/User entity
+        ArgumentCaptor<ReceiptRequestedEvent> event = ArgumentCaptor.forClass(ReceiptRequestedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(7L, event.getValue().getReceiptId());
+        assertEquals("john", event.getValue().getUsername());
+        assertEquals(List.of(new ReceiptLine("Cola", null, 2, 10.0), new ReceiptLine("Chips", null, 1, 30.0)),
+                event.getValue().getLines());
+    }
 }
@@ -0,0 +1,57 @@
+package aekkasit.prodev.backend.order.service;
+
+import aekkasit.prodev.backend.order.dto.ReceiptLine;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptPdfTemplateTest {
+
+    private final ReceiptPdfTemplate template = new ReceiptPdfTemplate(2);
+
+    private static List<ReceiptLine> lines(int count) {
+        List<ReceiptLine> lines = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            lines.add(new ReceiptLine("Product " + i, "Snacks", i % 5 + 1, 9.99 * i));
+        }
+        return lines;
+    }
+
+    private static void assertPdf(byte[] pdf) {
+        assertNotNull(pdf);
+        assertTrue(pdf.length > 0);
+        assertEquals("%PDF", new String(pdf, 0, 4, StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void testRender_OneTwentyAndTwoHundredLines() {
+        for (int count : new int[]{1, 20, 200}) {
+            assertPdf(template.render(lines(count), "john", 10, "SAVE10"));
+        }
+    }
+
+    @Test
+    void testRender_ReusesBufferWithoutLeakingPreviousContent() {
+        byte[] large = template.render(lines(200), "john", 0, null);
+        byte[] small = template.render(lines(1), "john", 0, null);
+        byte[] smallAgain = template.render(lines(1), "john", 0, null);
+
+        assertPdf(large);
+        assertPdf(small);
+        assertTrue(small.length < large.length);
+        // PDF มี timestamp/ID จึงเทียบแค่ขนาดโดยประมาณ
+        assertTrue(Math.abs(small.length - smallAgain.length) < 64);
+    }
+
+    @Test
+    void testFormatMoney_MatchesStringFormat() {
+        for (double amount : new double[]{0, 0.5, 1.005, 12.345, 99.99, 1234.5, 1e7 / 3}) {
+            assertEquals(String.format(Locale.ROOT, "%.2f", amount), ReceiptPdfTemplate.formatMoney(amount));
+        }
+    }
+}
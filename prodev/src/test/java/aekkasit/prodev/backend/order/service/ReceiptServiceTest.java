@@ -0,0 +1,178 @@
+package aekkasit.prodev.backend.order.service;
+
+import aekkasit.prodev.backend.order.dto.ReceiptLine;
+import aekkasit.prodev.backend.order.event.ReceiptRequestedEvent;
+import aekkasit.prodev.backend.order.model.Order;
+import aekkasit.prodev.backend.order.model.OrderCheckout;
+import aekkasit.prodev.backend.order.model.OrderReceipt;
+import aekkasit.prodev.backend.order.repository.OrderCheckoutRepository;
+import aekkasit.prodev.backend.order.repository.OrderReceiptRepository;
+import aekkasit.prodev.backend.order.repository.OrderRepository;
+import aekkasit.prodev.backend.user.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReceiptServiceTest {
+
+    @Mock
+    private OrderReceiptRepository orderReceiptRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderCheckoutRepository orderCheckoutRepository;
+
+    @Mock
+    private OrderService orderService;
+
+    // งานที่ส่งเข้า executor (รันเองใน test)
+    private final List<Runnable> submitted = new ArrayList<>();
+    private ReceiptService receiptService;
+
+    private final User user = User.builder().id(1L).username("john").build();
+    private final List<ReceiptLine> lines = List.of(new ReceiptLine("Cola", "Drinks", 2, 10.0));
+
+    @BeforeEach
+    void setUp() {
+        receiptService = service(submitted::add);
+    }
+
+    private ReceiptService service(TaskExecutor executor) {
+        return new ReceiptService(orderReceiptRepository, orderRepository, orderCheckoutRepository, orderService,
+                executor, Duration.ofMinutes(1));
+    }
+
+    private ReceiptRequestedEvent event() {
+        return new ReceiptRequestedEvent(5L, "john", lines, 10, "SAVE10");
+    }
+
+    private OrderReceipt pendingReceipt() {
+        OrderReceipt receipt = OrderReceipt.builder().id(5L).user(user).status(OrderReceipt.Status.PENDING).build();
+        when(orderReceiptRepository.findById(5L)).thenReturn(Optional.of(receipt));
+        return receipt;
+    }
+
+    @Test
+    void testOnReceiptRequested_RendersOnExecutorAndStoresPdf() {
+        OrderReceipt receipt = pendingReceipt();
+        when(orderService.generateReceiptPdf(lines, "john", 10, "SAVE10")).thenReturn(new byte[]{1, 2, 3});
+
+        receiptService.onReceiptRequested(event());
+        // thread ที่ commit แค่ส่งงาน ไม่ render เอง
+        verifyNoInteractions(orderService);
+
+        submitted.forEach(Runnable::run);
+
+        assertEquals(OrderReceipt.Status.READY, receipt.getStatus());
+        assertArrayEquals(new byte[]{1, 2, 3}, receipt.getPdf());
+        assertNotNull(receipt.getCompletedAt());
+        verify(orderReceiptRepository, times(1)).save(receipt);
+    }
+
+    @Test
+    void testOnReceiptRequested_MarksFailed() {
+        OrderReceipt receipt = pendingReceipt();
+        when(orderService.generateReceiptPdf(lines, "john", 10, "SAVE10"))
+                .thenThrow(new RuntimeException("Failed to generate PDF"));
+
+        receiptService.onReceiptRequested(event());
+        submitted.forEach(Runnable::run);
+
+        assertEquals(OrderReceipt.Status.FAILED, receipt.getStatus());
+        assertNull(receipt.getPdf());
+        verify(orderReceiptRepository, times(1)).save(receipt);
+    }
+
+    @Test
+    void testOnReceiptRequested_QueueFullLeavesPending() {
+        receiptService = service(task -> {
+            throw new TaskRejectedException("queue full");
+        });
+
+        assertDoesNotThrow(() -> receiptService.onReceiptRequested(event()));
+
+        verifyNoInteractions(orderService, orderReceiptRepository);
+    }
+
+    @Test
+    void testGenerate_SkipsReceiptAlreadyDone() {
+        OrderReceipt receipt = pendingReceipt();
+        receipt.setStatus(OrderReceipt.Status.READY);
+
+        receiptService.generate(event());
+
+        verifyNoInteractions(orderService);
+        verify(orderReceiptRepository, never()).save(any());
+    }
+
+    @Test
+    void testRetryPending_RebuildsLinesFromOrders() {
+        OrderReceipt receipt = pendingReceipt();
+        when(orderReceiptRepository.findRetryCandidates(eq(OrderReceipt.Status.PENDING), any(), any()))
+                .thenReturn(List.of(receipt));
+        when(orderReceiptRepository.claimForRetry(eq(5L), eq(OrderReceipt.Status.PENDING), any(), any())).thenReturn(1);
+        when(orderRepository.findByUserIdAndReceiptId(1L, 5L)).thenReturn(List.of(
+                Order.builder().name("Cola").category("Drinks").quantity(2).price(10.0).build()));
+        when(orderCheckoutRepository.findByReceiptId(5L)).thenReturn(Optional.of(
+                OrderCheckout.builder().couponCode("SAVE10").couponDiscount(10).build()));
+        when(orderService.generateReceiptPdf(lines, "john", 10, "SAVE10")).thenReturn(new byte[]{1});
+
+        receiptService.retryPending();
+        submitted.forEach(Runnable::run);
+
+        assertEquals(OrderReceipt.Status.READY, receipt.getStatus());
+    }
+
+    @Test
+    void testRetryPending_ClaimedElsewhereNotSubmitted() {
+        OrderReceipt receipt = OrderReceipt.builder().id(5L).user(user).status(OrderReceipt.Status.PENDING).build();
+        when(orderReceiptRepository.findRetryCandidates(eq(OrderReceipt.Status.PENDING), any(), any()))
+                .thenReturn(List.of(receipt));
+        // pod อื่น (หรือรอบก่อน) claim ไปแล้ว
+        when(orderReceiptRepository.claimForRetry(eq(5L), eq(OrderReceipt.Status.PENDING), any(), any())).thenReturn(0);
+
+        receiptService.retryPending();
+
+        assertTrue(submitted.isEmpty());
+        verifyNoInteractions(orderRepository, orderCheckoutRepository);
+    }
+
+    @Test
+    void testRetryPending_ClaimWindowIsRetryAfter() {
+        when(orderReceiptRepository.findRetryCandidates(eq(OrderReceipt.Status.PENDING), any(), any()))
+                .thenReturn(List.of(OrderReceipt.builder().id(5L).user(user).build()));
+
+        receiptService.retryPending();
+
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(orderReceiptRepository).claimForRetry(eq(5L), eq(OrderReceipt.Status.PENDING), now.capture(), cutoff.capture());
+        assertEquals(Duration.ofMinutes(1), Duration.between(cutoff.getValue(), now.getValue()));
+    }
+
+    @Test
+    void testGetReceipt_ScopedToUser() {
+        when(orderReceiptRepository.findByIdAndUserId(5L, 1L)).thenReturn(Optional.empty());
+
+        assertTrue(receiptService.getReceipt(5L, user).isEmpty());
+    }
+}
@@ -0,0 +1,71 @@
+package aekkasit.prodev.backend.product.config;
+
+import aekkasit.prodev.backend.product.service.CatalogVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.CacheControl;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogHttpCacheInterceptorTest {
+
+    private CatalogVersion catalogVersion;
+    private CatalogHttpCacheInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        catalogVersion = new CatalogVersion();
+        interceptor = new CatalogHttpCacheInterceptor(catalogVersion,
+                CacheControl.maxAge(Duration.ofSeconds(10)).cachePublic().mustRevalidate());
+    }
+
+    @Test
+    void testFirstRequest_SetsValidatorsAndContinues() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/all");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, null));
+        assertEquals(catalogVersion.snapshot().getEtag(), response.getHeader("ETag"));
+        assertNotNull(response.getHeader("Last-Modified"));
+        assertEquals("max-age=10, must-revalidate, public", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void testMatchingEtag_Answers304WithoutReachingController() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/1");
+        request.addHeader("If-None-Match", catalogVersion.snapshot().getEtag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(request, response, null));
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    void testStaleEtagAfterBump_Continues() {
+        String oldEtag = catalogVersion.snapshot().getEtag();
+        catalogVersion.bump();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/search");
+        request.addHeader("If-None-Match", oldEtag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, null));
+        assertEquals(200, response.getStatus());
+        assertEquals(catalogVersion.snapshot().getEtag(), response.getHeader("ETag"));
+    }
+
+    @Test
+    void testNonGetRequest_Untouched() {
+        MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/api/products/1");
+        request.addHeader("If-None-Match", catalogVersion.snapshot().getEtag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, null));
+        assertNull(response.getHeader("ETag"));
+        assertNull(response.getHeader("Cache-Control"));
+    }
+}
@@ -1,14 +1,29 @@
 package aekkasit.prodev.backend.product.controller;
 
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import aekkasit.prodev.backend.cache.service.CacheInvalidationBus;
+import aekkasit.prodev.backend.product.dto.ProductCursor;
+import aekkasit.prodev.backend.product.dto.ProductPageResponse;
+import aekkasit.prodev.backend.product.dto.ProductSummary;
 import aekkasit.prodev.backend.product.model.Product;
 import aekkasit.prodev.backend.product.repository.ProductRepository;
+import aekkasit.prodev.backend.product.service.CatalogVersion;
+import aekkasit.prodev.backend.product.service.ProductImageStorage;
+import aekkasit.prodev.backend.product.service.ProductSearchIndex;
+import aekkasit.prodev.backend.product.service.StockReportService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,19 +38,28 @@ class ProductControllerTest {
     @Mock
     private ProductRepository productRepository;
 
-    // กำหนดค่า uploadDir สำหรับ test
-    private void setUploadDir() {
-        ReflectionTestUtils.setField(productController, "uploadDir", "uploads/products");
-    }
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private StockReportService stockReportService;
+
+    @Mock
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Mock
+    private ProductImageStorage productImageStorage;
 
     @Test
     void testAddProduct_Success() throws Exception {
-        setUploadDir();
-
         MockMultipartFile file = new MockMultipartFile(
                 "images", "test.jpg", "image/jpeg", "dummy content".getBytes()
         );
 
+        when(productImageStorage.store(any())).thenReturn(List.of("/uploads/products/" + "a".repeat(64) + ".jpg"));
         when(productRepository.save(any(Product.class))).thenAnswer(i -> i.getArguments()[0]);
 
         ResponseEntity<?> response = productController.addProduct(
@@ -49,7 +73,30 @@ class ProductControllerTest {
         assertEquals("Product1", savedProduct.getName());
         assertEquals(10, savedProduct.getQuantity());
         assertNotNull(savedProduct.getImages());
-        assertEquals(1, savedProduct.getImages().size());
+        assertEquals(List.of("/uploads/products/" + "a".repeat(64) + ".jpg"), savedProduct.getImages());
+        verify(productSearchIndex, times(1)).index(savedProduct);
+        verify(cacheInvalidationBus, times(1)).publish(CacheInvalidation.product(savedProduct.getId()));
+        verify(catalogVersion, times(1)).bump();
+    }
+
+    @Test
+    void testUpdateProduct_RemovedImageDeletedAfterSave() throws Exception {
+        Product product = new Product();
+        product.setId(1L);
+        product.setImages(new ArrayList<>(List.of("/uploads/products/a.jpg", "/uploads/products/b.jpg")));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        ResponseEntity<?> response = productController.updateProduct(
+                1L, null, null, null, null, null, null, null, "[\"/uploads/products/a.jpg\"]"
+        );
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(List.of("/uploads/products/a.jpg"), product.getImages());
+        // ลบไฟล์หลัง save เท่านั้น (ถ้าไม่มีสินค้าอื่นใช้อยู่)
+        InOrder inOrder = inOrder(productRepository, productImageStorage);
+        inOrder.verify(productRepository).save(product);
+        inOrder.verify(productImageStorage).deleteIfUnused("/uploads/products/b.jpg", 1L);
+        verify(productImageStorage, never()).deleteIfUnused(eq("/uploads/products/a.jpg"), any());
     }
 
     @Test
@@ -92,12 +139,16 @@ class ProductControllerTest {
     @Test
     void testDeleteProduct_Success() {
         Product product = new Product();
+        product.setId(1L);
         product.setImages(new ArrayList<>());
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
 
         ResponseEntity<?> response = productController.deleteProduct(1L);
 
         verify(productRepository, times(1)).delete(product);
+        verify(productSearchIndex, times(1)).remove(1L);
+        verify(cacheInvalidationBus, times(1)).publish(CacheInvalidation.product(1L));
+        verify(catalogVersion, times(1)).bump();
         assertEquals(200, response.getStatusCode().value());
     }
 
@@ -108,33 +159,137 @@ class ProductControllerTest {
         ResponseEntity<?> response = productController.deleteProduct(1L);
 
         assertEquals(404, response.getStatusCode().value());
+        verify(catalogVersion, never()).bump();
     }
 
     @Test
     void testSearchProducts_FilterAndPagination() {
         // Mock ข้อมูลสินค้า
-        Product p1 = new Product(); p1.setName("Be Nice"); p1.setPrice(50.0); p1.setCategory("Motivational"); p1.setImages(new ArrayList<>()); p1.setQuantity(10);
-        Product p2 = new Product(); p2.setName("Banana"); p2.setPrice(30.0); p2.setCategory("Fruit"); p2.setImages(new ArrayList<>()); p2.setQuantity(5);
-        Product p3 = new Product(); p3.setName("Carrot"); p3.setPrice(20.0); p3.setCategory("Vegetable"); p3.setImages(new ArrayList<>()); p3.setQuantity(0);
+        Product p1 = new Product(); p1.setId(1L); p1.setName("Be Nice"); p1.setPrice(50.0); p1.setCategory("Motivational"); p1.setImages(new ArrayList<>()); p1.setQuantity(10);
+        Product p2 = new Product(); p2.setId(2L); p2.setName("Banana"); p2.setPrice(30.0); p2.setCategory("Fruit"); p2.setImages(new ArrayList<>()); p2.setQuantity(5);
+        Product p3 = new Product(); p3.setId(3L); p3.setName("Carrot"); p3.setPrice(20.0); p3.setCategory("Vegetable"); p3.setImages(new ArrayList<>()); p3.setQuantity(0);
 
         List<Product> allProducts = Arrays.asList(p1, p2, p3);
         when(productRepository.findAll()).thenReturn(allProducts);
 
+        // category/price/stock ถูกกรองใน DB: mock ให้คืนเฉพาะ p1
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+        when(productRepository.findAll(ArgumentMatchers.<Specification<Product>>any(), pageableCaptor.capture()))
+                .thenAnswer(i -> new PageImpl<>(List.of(p1), i.getArgument(1), 1));
+
+        // ใช้ index จริงแทน mock เพื่อทดสอบ fuzzy match
+        ProductSearchIndex searchIndex = new ProductSearchIndex(productRepository);
+        searchIndex.rebuild();
+        ProductController controller = new ProductController(productRepository, searchIndex, stockReportService, cacheInvalidationBus, catalogVersion, productImageStorage);
+
         // ทดสอบการกรองพร้อมการค้นหาที่ทนทานต่อการสะกดผิด (คำว่า "be nace" ควรจะตรงกับ "Be Nice")
-        @SuppressWarnings("unchecked")
-        ResponseEntity<?> response = productController.searchProducts(
-                "Motivational", 25.0, 60.0, "be nace", 1, 10 // คำสะกดผิด "be nace"
+        ResponseEntity<?> response = controller.searchProducts(
+                "Motivational", 25.0, 60.0, "be nace", 1, 10, "full" // คำสะกดผิด "be nace"
         );
 
         @SuppressWarnings("unchecked")
         Map<String, Object> result = (Map<String, Object>) response.getBody();
         assertNotNull(result);
-        assertEquals(1, result.get("total")); // ✅ ควรมีแค่ p1 ที่ตรงกับ "be nice"
+        assertEquals(1L, result.get("total")); // ✅ ควรมีแค่ p1 ที่ตรงกับ "be nice"
 
         @SuppressWarnings("unchecked")
         List<Product> items = (List<Product>) result.get("items");
         assertNotNull(items);
         assertEquals(1, items.size());
         assertTrue(items.stream().allMatch(p -> p.getCategory().equalsIgnoreCase("Motivational")));
+
+        // page 1 -> offset 0, limit 10
+        assertEquals(0, pageableCaptor.getValue().getPageNumber());
+        assertEquals(10, pageableCaptor.getValue().getPageSize());
+    }
+
+    @Test
+    void testSearchProducts_KeywordWithoutMatchSkipsQuery() {
+        when(productSearchIndex.search("zzz")).thenReturn(new TreeSet<>());
+
+        ResponseEntity<?> response = productController.searchProducts(null, null, null, "zzz", 1, 8, "full");
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> result = (Map<String, Object>) response.getBody();
+        assertNotNull(result);
+        assertEquals(0L, result.get("total"));
+        verify(productRepository, never()).findAll(ArgumentMatchers.<Specification<Product>>any(), any(Pageable.class));
+    }
+
+    @Test
+    void testGetAllProductsPage_ReturnsNextCursor() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 10, 0);
+        List<Product> rows = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Product p = new Product();
+            p.setId(id);
+            p.setCreatedAt(now.plusMinutes(id));
+            p.setImages(new ArrayList<>());
+            rows.add(p);
+        }
+        // limit 2 -> repository ถูกขอ 3 แถว
+        when(productRepository.findBy(ArgumentMatchers.<Specification<Product>>any(), any())).thenReturn(rows);
+
+        ResponseEntity<?> response = productController.getAllProductsPage(null, 2, "full");
+
+        assertEquals(200, response.getStatusCode().value());
+        ProductPageResponse<?> page = (ProductPageResponse<?>) Objects.requireNonNull(response.getBody());
+        assertEquals(2, page.getItems().size());
+        assertNotNull(page.getNextCursor());
+
+        ProductCursor next = ProductCursor.decode(page.getNextCursor());
+        assertEquals(2L, next.getId());
+        assertEquals(now.plusMinutes(2), next.getCreatedAt());
+    }
+
+    @Test
+    void testGetAllProductsPage_LastPageHasNoCursor() {
+        Product p = new Product();
+        p.setId(1L);
+        p.setImages(new ArrayList<>());
+        when(productRepository.findBy(ArgumentMatchers.<Specification<Product>>any(), any())).thenReturn(List.of(p));
+
+        ResponseEntity<?> response = productController.getAllProductsPage(null, 2, "full");
+
+        ProductPageResponse<?> page = (ProductPageResponse<?>) Objects.requireNonNull(response.getBody());
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetAllProductsPage_InvalidCursor() {
+        ResponseEntity<?> response = productController.getAllProductsPage("not-a-cursor", 10, "full");
+
+        assertEquals(400, response.getStatusCode().value());
+    }
+
+    @Test
+    void testGetAllProductsPage_SummaryView() {
+        Product p = new Product();
+        p.setId(1L);
+        p.setName("Cola");
+        p.setDescription("long description");
+        p.setImages(List.of("/uploads/products/cola1.jpeg", "/uploads/products/cola2.jpeg"));
+        when(productRepository.findBy(ArgumentMatchers.<Specification<Product>>any(), any())).thenReturn(List.of(p));
+
+        ResponseEntity<?> response = productController.getAllProductsPage(null, 10, "summary");
+
+        ProductPageResponse<?> page = (ProductPageResponse<?>) Objects.requireNonNull(response.getBody());
+        ProductSummary summary = (ProductSummary) page.getItems().get(0);
+        assertEquals("Cola", summary.getName());
+        assertEquals("/uploads/products/cola1.jpeg", summary.getImage());
+        assertEquals("/uploads/products/cola1_card.jpg", summary.getImageCard());
+    }
+
+    @Test
+    void testGetWeeklyStockReport_StreamsFromService() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = productController.getWeeklyStockReport();
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Objects.requireNonNull(response.getBody()).writeTo(out);
+        verify(stockReportService, times(1)).writeWeeklyReport(out);
     }
 }
@@ -0,0 +1,164 @@
+package aekkasit.prodev.backend.product.controller;
+
+import aekkasit.prodev.backend.product.service.ImageFileIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductImageControllerTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    @TempDir
+    Path uploadDir;
+
+    private ProductImageController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new ProductImageController(
+                new ImageFileIndex(uploadDir.toString(), List.of()),
+                Duration.ofDays(1),
+                DataSize.ofMegabytes(1),
+                DataSize.ofKilobytes(4),
+                DataSize.ofKilobytes(8));
+    }
+
+    private static byte[] bytes(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private MockHttpServletResponse get(String fileName, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.serveImage(fileName, request, response);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String fileName) {
+        return new MockHttpServletRequest("GET", "/uploads/products/" + fileName);
+    }
+
+    @Test
+    void testSmallFile_ServedWithValidators() throws Exception {
+        byte[] data = bytes(1000);
+        Files.write(uploadDir.resolve("1_cola_thumb.jpg"), data);
+
+        MockHttpServletResponse response = get("1_cola_thumb.jpg", request("1_cola_thumb.jpg"));
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(data, response.getContentAsByteArray());
+        assertEquals("image/jpeg", response.getContentType());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals("max-age=86400, public", response.getHeader("Cache-Control"));
+        assertNotNull(response.getHeader("ETag"));
+    }
+
+    @Test
+    void testContentHashName_Immutable() throws Exception {
+        Files.write(uploadDir.resolve(HASH + ".png"), bytes(10));
+
+        MockHttpServletResponse response = get(HASH + ".png", request(HASH + ".png"));
+
+        assertEquals("max-age=31536000, public, immutable", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void testMatchingEtag_NotModified() throws Exception {
+        Files.write(uploadDir.resolve("a.jpg"), bytes(100));
+        String etag = get("a.jpg", request("a.jpg")).getHeader("ETag");
+
+        MockHttpServletRequest request = request("a.jpg");
+        request.addHeader("If-None-Match", etag);
+        MockHttpServletResponse response = get("a.jpg", request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testRange_PartialContent() throws Exception {
+        byte[] data = bytes(20_000); // ใหญ่กว่า hot cache: อ่านด้วย FileChannel
+        Files.write(uploadDir.resolve("big.jpg"), data);
+
+        MockHttpServletRequest request = request("big.jpg");
+        request.addHeader("Range", "bytes=100-199");
+        MockHttpServletResponse response = get("big.jpg", request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-199/20000", response.getHeader("Content-Range"));
+        assertEquals(100, response.getContentLengthLong());
+        assertArrayEquals(Arrays.copyOfRange(data, 100, 200), response.getContentAsByteArray());
+    }
+
+    @Test
+    void testRange_FromHotCache() throws Exception {
+        byte[] data = bytes(1000);
+        Files.write(uploadDir.resolve("small.jpg"), data);
+
+        MockHttpServletRequest request = request("small.jpg");
+        request.addHeader("Range", "bytes=-10");
+        MockHttpServletResponse response = get("small.jpg", request);
+
+        assertEquals(206, response.getStatus());
+        assertArrayEquals(Arrays.copyOfRange(data, 990, 1000), response.getContentAsByteArray());
+    }
+
+    @Test
+    void testRange_Unsatisfiable() throws Exception {
+        Files.write(uploadDir.resolve("a.jpg"), bytes(100));
+
+        MockHttpServletRequest request = request("a.jpg");
+        request.addHeader("Range", "bytes=500-600");
+        MockHttpServletResponse response = get("a.jpg", request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */100", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void testLargeFile_HandedToSendfile() throws Exception {
+        Path file = Files.write(uploadDir.resolve("big.jpg"), bytes(20_000));
+
+        MockHttpServletRequest request = request("big.jpg");
+        request.setAttribute(ProductImageController.SENDFILE_SUPPORTED_ATTR, Boolean.TRUE);
+        MockHttpServletResponse response = get("big.jpg", request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(20_000, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute(ProductImageController.SENDFILE_FILENAME_ATTR));
+        assertEquals(0L, request.getAttribute(ProductImageController.SENDFILE_START_ATTR));
+        assertEquals(20_000L, request.getAttribute(ProductImageController.SENDFILE_END_ATTR));
+    }
+
+    @Test
+    void testDeletedFile_NotFoundAndForgotten() throws Exception {
+        Path file = Files.write(uploadDir.resolve("a.jpg"), bytes(100));
+        assertEquals(200, get("a.jpg", request("a.jpg")).getStatus());
+
+        Files.delete(file);
+
+        assertEquals(404, get("a.jpg", request("a.jpg")).getStatus());
+    }
+
+    @Test
+    void testPathTraversal_NotFound() throws Exception {
+        assertEquals(404, get("..", request("..")).getStatus());
+        assertEquals(404, get("../secret.txt", request("../secret.txt")).getStatus());
+    }
+}
@@ -0,0 +1,37 @@
+package aekkasit.prodev.backend.product.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCursorTest {
+
+    @Test
+    void testEncodeDecode_RoundTrip() {
+        ProductCursor cursor = new ProductCursor(LocalDateTime.of(2025, 9, 7, 3, 23, 26, 590702000), 1L);
+
+        assertEquals(cursor, ProductCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void testEncodeDecode_NullCreatedAt() {
+        ProductCursor cursor = new ProductCursor(null, 42L);
+
+        String raw = new String(Base64.getUrlDecoder().decode(cursor.encode()), StandardCharsets.UTF_8);
+        assertEquals("|42", raw);
+        assertEquals(cursor, ProductCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void testDecode_Garbage() {
+        String token = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("null|42".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(token));
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode("not-a-cursor"));
+    }
+}
@@ -0,0 +1,90 @@
+package aekkasit.prodev.backend.product.repository;
+
+import aekkasit.prodev.backend.product.model.Product;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductStockRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private Cache cache;
+    private ProductStockRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        namedParameterJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        cache = mock(Cache.class);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        repository = new ProductStockRepository(jdbcTemplate, namedParameterJdbcTemplate, entityManagerFactory);
+    }
+
+    // แถวที่ SELECT ... FOR UPDATE คืนมา
+    private void stockInDb(Map<Long, Integer> quantities) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn(entry.getKey());
+                when(rs.getInt("quantity")).thenReturn(entry.getValue());
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(namedParameterJdbcTemplate).query(eq(ProductStockRepository.LOCK_STOCK_SQL),
+                any(SqlParameterSource.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void testDecrementStock_EnoughStock_EvictsAllEvenWithoutRowCounts() {
+        stockInDb(Map.of(1L, 5, 2L, 5, 3L, 5));
+        // rewriteBatchedStatements: driver คืน SUCCESS_NO_INFO แทนจำนวนแถว
+        when(jdbcTemplate.batchUpdate(eq(ProductStockRepository.DECREMENT_SQL), any(BatchPreparedStatementSetter.class)))
+                .thenReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+
+        List<Long> insufficient = repository.decrementStock(Map.of(3L, 1, 1L, 2, 2L, 5));
+
+        assertTrue(insufficient.isEmpty());
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(ProductStockRepository.DECREMENT_SQL), any(BatchPreparedStatementSetter.class));
+        verify(cache).evict(Product.class, 1L);
+        verify(cache).evict(Product.class, 2L);
+        verify(cache).evict(Product.class, 3L);
+    }
+
+    @Test
+    void testDecrementStock_ShortProduct_NothingWritten() {
+        // product 2 มี 4 แต่ขอ 5, product 4 ไม่มีแล้ว
+        stockInDb(Map.of(1L, 5, 2L, 4, 3L, 5));
+
+        List<Long> insufficient = repository.decrementStock(Map.of(3L, 1, 1L, 2, 2L, 5, 4L, 1));
+
+        assertEquals(List.of(2L, 4L), insufficient);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+        verifyNoInteractions(cache);
+    }
+
+    @Test
+    void testDecrementStock_NothingRequested_NoStatements() {
+        assertTrue(repository.decrementStock(Map.of()).isEmpty());
+        verifyNoInteractions(jdbcTemplate, namedParameterJdbcTemplate, cache);
+    }
+}
@@ -0,0 +1,60 @@
+package aekkasit.prodev.backend.product.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogVersionTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00.400Z");
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testBump_ChangesEtagAndLastModified() {
+        CatalogVersion catalogVersion = new CatalogVersion(Clock.fixed(NOW, ZoneOffset.UTC));
+        CatalogVersion.Snapshot before = catalogVersion.snapshot();
+
+        catalogVersion.bump();
+        CatalogVersion.Snapshot after = catalogVersion.snapshot();
+
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertNotEquals(before.getEtag(), after.getEtag());
+        // strong ETag (ไม่มี W/)
+        assertTrue(after.getEtag().startsWith("\"") && after.getEtag().endsWith("\""));
+        // bump ในวินาทีเดียวกัน Last-Modified ยังต้องเพิ่มขึ้น
+        assertTrue(after.getLastModified().isAfter(before.getLastModified()));
+        assertEquals(0, after.getLastModified().getNano());
+    }
+
+    @Test
+    void testEtag_DiffersBetweenInstances() {
+        // หลัง restart หรือคนละ pod version เดียวกันต้องไม่ได้ ETag เดียวกัน
+        Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+        assertNotEquals(new CatalogVersion(clock).snapshot().getEtag(), new CatalogVersion(clock).snapshot().getEtag());
+    }
+
+    @Test
+    void testBumpInTransaction_AppliedAfterCommit() {
+        CatalogVersion catalogVersion = new CatalogVersion(Clock.fixed(NOW, ZoneOffset.UTC));
+
+        TransactionSynchronizationManager.initSynchronization();
+        catalogVersion.bump();
+        assertEquals(0, catalogVersion.snapshot().getVersion());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(1, catalogVersion.snapshot().getVersion());
+    }
+}
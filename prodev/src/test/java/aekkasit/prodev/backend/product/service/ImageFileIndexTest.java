@@ -0,0 +1,48 @@
+package aekkasit.prodev.backend.product.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageFileIndexTest {
+
+    @TempDir
+    Path uploadDir;
+
+    @TempDir
+    Path legacyDir;
+
+    @Test
+    void testLocate_SearchesLocationsInOrderAndRemembersHit() throws Exception {
+        ImageFileIndex index = new ImageFileIndex(uploadDir.toString(), List.of(legacyDir.toString()));
+        Files.writeString(legacyDir.resolve("old.jpg"), "old");
+        Files.writeString(uploadDir.resolve("new.jpg"), "new");
+
+        assertEquals(Optional.of(legacyDir.resolve("old.jpg")), index.locate("old.jpg"));
+        assertEquals(Optional.of(uploadDir.resolve("new.jpg")), index.locate("new.jpg"));
+
+        // ครั้งต่อไปใช้ตำแหน่งที่จำไว้ ไม่ probe ใหม่
+        Files.writeString(uploadDir.resolve("old.jpg"), "shadow");
+        assertEquals(Optional.of(legacyDir.resolve("old.jpg")), index.locate("old.jpg"));
+
+        index.forget("old.jpg");
+        assertEquals(Optional.of(uploadDir.resolve("old.jpg")), index.locate("old.jpg"));
+    }
+
+    @Test
+    void testLocate_MissingAndUnsafeNames() {
+        ImageFileIndex index = new ImageFileIndex(uploadDir.toString(), List.of());
+
+        assertTrue(index.locate("missing.jpg").isEmpty());
+        assertFalse(ImageFileIndex.isSafeName("../etc/passwd"));
+        assertFalse(ImageFileIndex.isSafeName(".hidden"));
+        assertFalse(ImageFileIndex.isSafeName("a\\b.jpg"));
+        assertTrue(ImageFileIndex.isSafeName("17_apple_card.jpg"));
+    }
+}
@@ -0,0 +1,162 @@
+package aekkasit.prodev.backend.product.service;
+
+import aekkasit.prodev.backend.product.model.ImageVariant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductImageServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private final List<Runnable> submitted = new ArrayList<>();
+    private ProductImageService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProductImageService(uploadDir.toString(), 0.8f, submitted::add, 500);
+    }
+
+    private Path png(String name, int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < width; x += 7) {
+            for (int y = 0; y < height; y += 5) {
+                image.setRGB(x, y, 0xff000000 | (x * 31 + y * 17));
+            }
+        }
+        Path file = uploadDir.resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+
+    @Test
+    void testWriteVariants_ResizedJpegsNextToOriginal() throws Exception {
+        Path original = png("17_apple.png", 3000, 1500);
+
+        assertTrue(service.writeVariants(original));
+
+        for (ImageVariant variant : ImageVariant.values()) {
+            Path file = uploadDir.resolve(variant.of("17_apple.png"));
+            BufferedImage written = ImageIO.read(file.toFile());
+            assertNotNull(written, variant.name());
+            assertEquals(variant.getMaxSize(), written.getWidth(), variant.name());
+            assertEquals(variant.getMaxSize() / 2, written.getHeight(), variant.name());
+        }
+        assertTrue(Files.size(uploadDir.resolve("17_apple_thumb.jpg")) < Files.size(original));
+        // ไม่เหลือไฟล์ชั่วคราว
+        try (var files = Files.list(uploadDir)) {
+            assertEquals(4, files.count());
+        }
+    }
+
+    @Test
+    void testWriteVariants_SmallImageNotEnlarged() throws Exception {
+        Path original = png("tiny.png", 100, 80);
+
+        assertTrue(service.writeVariants(original));
+
+        BufferedImage detail = ImageIO.read(uploadDir.resolve("tiny_detail.jpg").toFile());
+        assertEquals(100, detail.getWidth());
+        assertEquals(80, detail.getHeight());
+    }
+
+    @Test
+    void testWriteVariants_NotAnImage() throws Exception {
+        Path original = Files.writeString(uploadDir.resolve("notes.jpg"), "dummy content");
+
+        assertFalse(service.writeVariants(original));
+        assertFalse(Files.exists(uploadDir.resolve("notes_thumb.jpg")));
+    }
+
+    @Test
+    void testDeleteVariants() throws Exception {
+        Path original = png("a.png", 400, 400);
+        service.writeVariants(original);
+
+        service.deleteVariants(original);
+
+        try (var files = Files.list(uploadDir)) {
+            assertEquals(List.of(original), files.toList());
+        }
+    }
+
+    @Test
+    void testBackfill_OnlyOriginalsMissingVariants() throws Exception {
+        Path done = png("done.png", 300, 300);
+        service.writeVariants(done);
+        png("old.png", 300, 300);
+
+        service.backfillMissingVariants();
+        assertEquals(1, submitted.size());
+        submitted.get(0).run();
+
+        assertTrue(Files.exists(uploadDir.resolve("old_card.jpg")));
+    }
+
+    @Test
+    void testBackfill_BoundedPerPass_RestPickedUpNextPass() throws Exception {
+        service = new ProductImageService(uploadDir.toString(), 0.8f, submitted::add, 2);
+        png("a.png", 50, 50);
+        png("b.png", 50, 50);
+        png("c.png", 50, 50);
+
+        service.backfillMissingVariants();
+        assertEquals(2, submitted.size());
+        // ยังทำไม่เสร็จ: ไม่ส่งเพิ่มและไม่ส่งซ้ำ
+        service.backfillMissingVariants();
+        assertEquals(2, submitted.size());
+
+        submitted.forEach(Runnable::run);
+        service.backfillMissingVariants();
+        assertEquals(3, submitted.size());
+
+        submitted.get(2).run();
+        service.backfillMissingVariants();
+        service.backfillMissingVariants();
+        assertEquals(3, submitted.size());
+        try (var files = Files.list(uploadDir)) {
+            assertEquals(12, files.count());
+        }
+    }
+
+    @Test
+    void testBackfill_RejectedNotRunOnCallerAndRetriedNextPass() throws Exception {
+        List<Runnable> accepted = new ArrayList<>();
+        boolean[] full = {true};
+        service = new ProductImageService(uploadDir.toString(), 0.8f, task -> {
+            if (full[0]) {
+                throw new RejectedExecutionException("queue full");
+            }
+            accepted.add(task);
+        }, 500);
+        png("old.png", 50, 50);
+
+        service.backfillMissingVariants();
+        assertFalse(Files.exists(uploadDir.resolve("old_card.jpg")));
+
+        full[0] = false;
+        service.backfillMissingVariants();
+        assertEquals(1, accepted.size());
+        accepted.get(0).run();
+        assertTrue(Files.exists(uploadDir.resolve("old_card.jpg")));
+    }
+
+    @Test
+    void testVariantNames() {
+        assertEquals("/uploads/products/17_a.b_thumb.jpg", ImageVariant.THUMBNAIL.of("/uploads/products/17_a.b.png"));
+        assertEquals("/uploads/products/noext_card.jpg", ImageVariant.CARD.of("/uploads/products/noext"));
+        assertTrue(ImageVariant.isVariant("17_a_detail.jpg"));
+        assertFalse(ImageVariant.isVariant("17_a.jpg"));
+    }
+}
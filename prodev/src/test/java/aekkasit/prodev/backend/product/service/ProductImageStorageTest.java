@@ -0,0 +1,156 @@
+package aekkasit.prodev.backend.product.service;
+
+import aekkasit.prodev.backend.product.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImageStorageTest {
+
+    @TempDir
+    Path uploadDir;
+
+    @Mock
+    private ProductImageService productImageService;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductImageStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = storage(Duration.ZERO);
+    }
+
+    private ProductImageStorage storage(Duration deleteGrace) {
+        return new ProductImageStorage(uploadDir.toString(), productImageService, productRepository, Runnable::run,
+                deleteGrace);
+    }
+
+    private static MockMultipartFile image(String name, String content) {
+        return new MockMultipartFile("images", name, "image/jpeg", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(String content) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash);
+    }
+
+    @Test
+    void testStore_NamedByContentHash() throws Exception {
+        List<String> urls = storage.store(new MultipartFile[]{image("apple.JPG", "apple"), image("pear.png", "pear")});
+
+        assertEquals(List.of(
+                "/uploads/products/" + sha256("apple") + ".jpg",
+                "/uploads/products/" + sha256("pear") + ".png"
+        ), urls);
+        assertEquals("apple", Files.readString(uploadDir.resolve(sha256("apple") + ".jpg")));
+        verify(productImageService, times(2)).writeVariants(any());
+        // ไม่เหลือไฟล์ชั่วคราว
+        try (var files = Files.list(uploadDir)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void testStore_SameContentReusesFile() throws Exception {
+        String first = storage.store(new MultipartFile[]{image("a.jpg", "same")}).get(0);
+        String second = storage.store(new MultipartFile[]{image("b.jpg", "same")}).get(0);
+
+        assertEquals(first, second);
+        try (var files = Files.list(uploadDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testStore_SkipsEmptyAndNull() throws Exception {
+        assertTrue(storage.store(null).isEmpty());
+        assertTrue(storage.store(new MultipartFile[]{image("empty.jpg", "")}).isEmpty());
+        verifyNoInteractions(productImageService);
+    }
+
+    @Test
+    void testExtension_Sanitized() {
+        assertEquals(".jpg", ProductImageStorage.extension("photo.JPG"));
+        assertEquals("", ProductImageStorage.extension("../../etc/passwd"));
+        assertEquals("", ProductImageStorage.extension("evil.j/pg"));
+        assertEquals("", ProductImageStorage.extension("noext"));
+        assertEquals("", ProductImageStorage.extension(null));
+    }
+
+    @Test
+    void testDeleteIfUnused_KeepsSharedFile() throws Exception {
+        String url = storage.store(new MultipartFile[]{image("a.jpg", "shared")}).get(0);
+        Path file = uploadDir.resolve(url.substring(url.lastIndexOf('/') + 1));
+        when(productRepository.isImageUsedByOtherProduct(url, 1L)).thenReturn(true);
+
+        storage.deleteIfUnused(url, 1L);
+
+        assertTrue(Files.exists(file));
+        verify(productImageService, never()).deleteVariants(any());
+    }
+
+    @Test
+    void testDeleteOrphans_DeletesFileAndVariants() throws Exception {
+        String url = storage.store(new MultipartFile[]{image("a.jpg", "alone")}).get(0);
+        Path file = uploadDir.resolve(url.substring(url.lastIndexOf('/') + 1));
+        when(productRepository.isImageUsedByOtherProduct(url, 1L)).thenReturn(false);
+        when(productRepository.isImageUsed(url)).thenReturn(false);
+
+        storage.deleteIfUnused(url, 1L);
+        assertTrue(Files.exists(file));
+        storage.deleteOrphans();
+
+        assertFalse(Files.exists(file));
+        verify(productImageService).deleteVariants(file);
+    }
+
+    @Test
+    void testDeleteOrphans_WaitsForGracePeriod() throws Exception {
+        storage = storage(Duration.ofHours(1));
+        String url = storage.store(new MultipartFile[]{image("a.jpg", "alone")}).get(0);
+        Path file = uploadDir.resolve(url.substring(url.lastIndexOf('/') + 1));
+        when(productRepository.isImageUsedByOtherProduct(url, 1L)).thenReturn(false);
+
+        storage.deleteIfUnused(url, 1L);
+        storage.deleteOrphans();
+
+        assertTrue(Files.exists(file));
+        verify(productRepository, never()).isImageUsed(any());
+    }
+
+    @Test
+    void testDeleteOrphans_KeepsImageReusedByConcurrentUpload() throws Exception {
+        String url = storage.store(new MultipartFile[]{image("a.jpg", "shared")}).get(0);
+        Path file = uploadDir.resolve(url.substring(url.lastIndexOf('/') + 1));
+        when(productRepository.isImageUsedByOtherProduct(url, 1L)).thenReturn(false);
+        storage.deleteIfUnused(url, 1L);
+
+        // upload รูปเดียวกันให้สินค้าอื่น ซึ่ง save ก่อน sweep
+        storage.store(new MultipartFile[]{image("b.jpg", "shared")});
+        when(productRepository.isImageUsed(url)).thenReturn(true);
+        storage.deleteOrphans();
+
+        assertTrue(Files.exists(file));
+        verify(productImageService, never()).deleteVariants(any());
+    }
+}
@@ -0,0 +1,121 @@
+package aekkasit.prodev.backend.product.service;
+
+import aekkasit.prodev.backend.product.model.Product;
+import aekkasit.prodev.backend.product.repository.ProductRepository;
+import me.xdrop.fuzzywuzzy.FuzzySearch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        index = new ProductSearchIndex(productRepository);
+    }
+
+    private static Product product(long id, String name, String description) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setDescription(description);
+        p.setImages(new ArrayList<>());
+        return p;
+    }
+
+    @Test
+    void testSearch_ExactAndTypoTolerant() {
+        when(productRepository.findAll()).thenReturn(List.of(
+                product(1L, "Be Nice", "Motivational poster"),
+                product(2L, "Banana", "Fresh fruit"),
+                product(3L, "Carrot", null)
+        ));
+        index.rebuild();
+
+        assertEquals(Set.of(1L), index.search("be nace"));
+        assertEquals(Set.of(2L), index.search("bananna"));
+        assertEquals(Set.of(1L), index.search("POSTER"));
+        assertTrue(index.search("nothing matches here").isEmpty());
+    }
+
+    @Test
+    void testSearch_CappedToBestScored() {
+        when(productRepository.findAll()).thenReturn(List.of(
+                product(3L, "Banan", null),
+                product(2L, "Bananas", null),
+                product(1L, "Banana", null)
+        ));
+        index.rebuild();
+
+        assertEquals(Set.of(1L, 2L, 3L), index.search("banana"));
+        // ตรงทั้งคำ (100) > bananas (92) > banan (91)
+        assertEquals(Set.of(1L, 2L), index.search("banana", 2));
+        assertEquals(Set.of(1L), index.search("banana", 1));
+    }
+
+    @Test
+    void testIndexAndRemove_UpdatesPostings() {
+        when(productRepository.findAll()).thenReturn(new ArrayList<>());
+        index.rebuild();
+
+        Product p = product(7L, "Green Tea", "Organic");
+        index.index(p);
+        assertEquals(Set.of(7L), index.search("tea"));
+
+        // อัปเดตชื่อ: คำเก่าต้องหายไป
+        p.setName("Black Coffee");
+        index.index(p);
+        assertTrue(index.search("green").isEmpty());
+        assertEquals(Set.of(7L), index.search("coffee"));
+
+        index.remove(7L);
+        assertTrue(index.search("coffee").isEmpty());
+    }
+
+    @Test
+    void testSearch_MatchesFullScanSemantics() {
+        String[] vocabulary = {"apple", "apples", "banana", "carrot", "milk", "organic", "fresh", "tea",
+                "green", "juice", "bread", "butter", "cheese", "coffee", "rice", "noodle", "snack", "chips"};
+        Random random = new Random(42);
+
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            products.add(product(id, randomText(random, vocabulary, 2), randomText(random, vocabulary, 5)));
+        }
+        when(productRepository.findAll()).thenReturn(products);
+        index.rebuild();
+
+        for (String keyword : List.of("aple", "organik milk", "coffe", "te", "bred butter", "chip", "x", "fresh grean")) {
+            Set<Long> expected = products.stream()
+                    .filter(p -> fullScanMatches(p, keyword))
+                    .map(Product::getId)
+                    .collect(Collectors.toSet());
+            assertEquals(expected, index.search(keyword), "keyword: " + keyword);
+        }
+    }
+
+    private static String randomText(Random random, String[] vocabulary, int words) {
+        StringJoiner joiner = new StringJoiner(" ");
+        for (int i = 0; i < words; i++) {
+            joiner.add(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return joiner.toString();
+    }
+
+    // เงื่อนไขเดียวกับ search แบบ scan ทุกสินค้าเดิม
+    private static boolean fullScanMatches(Product p, String keyword) {
+        List<String> words = new ArrayList<>(ProductSearchIndex.tokenize(p));
+        return Arrays.stream(keyword.toLowerCase().split("\\s+"))
+                .allMatch(term -> words.contains(term)
+                        || words.stream().anyMatch(w -> FuzzySearch.ratio(term, w) >= 70));
+    }
+}
@@ -0,0 +1,73 @@
+package aekkasit.prodev.backend.product.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StockReportServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private static ResultSet row(long id, String name, String imagePath) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("name")).thenReturn(name);
+        when(rs.getString("category")).thenReturn("Food");
+        when(rs.getObject("quantity", Integer.class)).thenReturn(5);
+        when(rs.getString("status_stock")).thenReturn("In stock");
+        when(rs.getObject("price", Double.class)).thenReturn(20.0);
+        when(rs.getObject("created_at", LocalDateTime.class)).thenReturn(LocalDateTime.of(2025, 9, 7, 3, 23));
+        when(rs.getString("image_path")).thenReturn(imagePath);
+        return rs;
+    }
+
+    @Test
+    void testProductRowWriter_GroupsJoinRowsPerProduct() throws Exception {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator gen = objectMapper.createGenerator(json)) {
+            gen.writeStartArray();
+            StockReportService.ProductRowWriter writer = new StockReportService.ProductRowWriter(gen);
+
+            // สินค้า 1 มี 2 รูป, สินค้า 2 ไม่มีรูป (LEFT JOIN ได้ image_path = null)
+            writer.processRow(row(1L, "Cola", "/uploads/products/cola1.jpeg"));
+            writer.processRow(row(1L, "Cola", "/uploads/products/cola2.jpeg"));
+            writer.processRow(row(2L, "Chips", null));
+            writer.finish();
+
+            gen.writeEndArray();
+        }
+
+        JsonNode products = objectMapper.readTree(json.toString());
+        assertEquals(2, products.size());
+
+        assertEquals(1, products.get(0).get("id").asLong());
+        assertEquals("Cola", products.get(0).get("name").asText());
+        assertEquals(2, products.get(0).get("images").size());
+        assertEquals("/uploads/products/cola2.jpeg", products.get(0).get("images").get(1).asText());
+
+        assertEquals(2, products.get(1).get("id").asLong());
+        assertEquals(0, products.get(1).get("images").size());
+        assertEquals(5, products.get(1).get("quantity").asInt());
+    }
+
+    @Test
+    void testProductRowWriter_EmptyResultWritesNothing() throws Exception {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator gen = objectMapper.createGenerator(json)) {
+            gen.writeStartArray();
+            new StockReportService.ProductRowWriter(gen).finish();
+            gen.writeEndArray();
+        }
+
+        assertEquals("[]", json.toString());
+    }
+}
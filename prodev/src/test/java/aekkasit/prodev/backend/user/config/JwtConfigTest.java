@@ -0,0 +1,28 @@
+package aekkasit.prodev.backend.user.config;
+
+import aekkasit.prodev.backend.user.security.JwtKeyRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtConfigTest {
+
+    @Test
+    void testJwtKeyRing_FromConfiguration() {
+        String secret = Base64.getEncoder().encodeToString(new byte[64]);
+
+        JwtKeyRing ring = new JwtConfig().jwtKeyRing("main", "main:" + secret);
+
+        assertEquals("main", ring.getActiveKid());
+        assertNotNull(ring.getActiveKey());
+    }
+
+    @Test
+    void testJwtKeyRing_RandomWhenNotConfigured() {
+        JwtKeyRing ring = new JwtConfig().jwtKeyRing("", "");
+
+        assertNotNull(ring.getActiveKey());
+    }
+}
@@ -8,8 +8,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -29,10 +33,10 @@ class AuthControllerTest {
         request.setEmail("test@example.com");
         request.setPassword("password");
 
-        AuthResponse mockResponse = new AuthResponse("testuser", "test@example.com", "USER", "jwtToken", 1L);
-        when(authService.register(request)).thenReturn(mockResponse);
+        AuthResponse mockResponse = new AuthResponse("testuser", "test@example.com", "USER", "jwtToken", 1L, "refreshToken");
+        when(authService.registerAsync(request)).thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        ResponseEntity<AuthResponse> responseEntity = authController.register(request);
+        ResponseEntity<?> responseEntity = authController.register(request).join();
 
         assertEquals(200, responseEntity.getStatusCode().value());
         assertEquals(mockResponse, responseEntity.getBody());
@@ -44,12 +48,53 @@ class AuthControllerTest {
         request.setEmail("test@example.com");
         request.setPassword("password");
 
-        AuthResponse mockResponse = new AuthResponse("testuser", "test@example.com", "USER", "jwtToken", 1L);
-        when(authService.login(request)).thenReturn(mockResponse);
+        AuthResponse mockResponse = new AuthResponse("testuser", "test@example.com", "USER", "jwtToken", 1L, "refreshToken");
+        when(authService.loginAsync(request)).thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        ResponseEntity<?> responseEntity = authController.login(request).join();
+
+        assertEquals(200, responseEntity.getStatusCode().value());
+        assertEquals(mockResponse, responseEntity.getBody());
+    }
+
+    @Test
+    void testRefresh_Success() {
+        RefreshRequest request = new RefreshRequest();
+        request.setRefreshToken("refreshToken");
+
+        AuthResponse mockResponse = new AuthResponse("testuser", "test@example.com", "USER", "newToken", 1L, "newRefresh");
+        when(authService.refresh("refreshToken")).thenReturn(mockResponse);
 
-        ResponseEntity<AuthResponse> responseEntity = authController.login(request);
+        ResponseEntity<?> responseEntity = authController.refresh(request);
 
         assertEquals(200, responseEntity.getStatusCode().value());
         assertEquals(mockResponse, responseEntity.getBody());
     }
+
+    @Test
+    void testRefresh_InvalidToken_Unauthorized() {
+        RefreshRequest request = new RefreshRequest();
+        request.setRefreshToken("bad");
+
+        when(authService.refresh("bad")).thenThrow(new RuntimeException("Invalid refresh token"));
+
+        ResponseEntity<?> responseEntity = authController.refresh(request);
+
+        assertEquals(401, responseEntity.getStatusCode().value());
+        assertEquals("Invalid refresh token", responseEntity.getBody());
+    }
+
+    @Test
+    void testLogin_HashingQueueFull_ServiceUnavailable() {
+        LoginRequest request = new LoginRequest();
+        request.setEmail("test@example.com");
+        request.setPassword("password");
+
+        when(authService.loginAsync(request)).thenThrow(new RejectedExecutionException("queue full"));
+
+        ResponseEntity<?> responseEntity = authController.login(request).join();
+
+        assertEquals(503, responseEntity.getStatusCode().value());
+        assertEquals("1", responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
 }
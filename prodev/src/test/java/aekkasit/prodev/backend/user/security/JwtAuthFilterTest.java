@@ -1,23 +1,23 @@
 package aekkasit.prodev.backend.user.security;
 
 import aekkasit.prodev.backend.user.model.User;
-import aekkasit.prodev.backend.user.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
-import java.io.IOException;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.Date;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,9 +27,6 @@ class JwtAuthFilterTest {
     @Mock
     private JwtUtils jwtUtils;
 
-    @Mock
-    private UserRepository userRepository;
-
     @Mock
     private FilterChain filterChain;
 
@@ -39,36 +36,48 @@ class JwtAuthFilterTest {
     @Mock
     private HttpServletResponse response;
 
-    @InjectMocks
+    private JwtPrincipalCache principalCache;
     private JwtAuthFilter jwtAuthFilter;
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
+        principalCache = new JwtPrincipalCache(100, Duration.ofMinutes(5), 900_000);
+        jwtAuthFilter = new JwtAuthFilter(jwtUtils, principalCache);
         SecurityContextHolder.clearContext();
     }
 
+    private static Claims claims(String type, Long userId, String username, String role, long expiresInMs) {
+        Claims claims = Jwts.claims()
+                .setSubject(username)
+                .setIssuedAt(new Date(System.currentTimeMillis() - 10_000))
+                .setExpiration(new Date(System.currentTimeMillis() + expiresInMs));
+        claims.put(JwtUtils.CLAIM_TYPE, type);
+        claims.put(JwtUtils.CLAIM_USER_ID, userId);
+        if (role != null) {
+            claims.put(JwtUtils.CLAIM_ROLE, role);
+        }
+        return claims;
+    }
+
     @Test
     void testValidJwtSetsAuthentication() throws Exception {
         // Arrange
         String token = "valid-token";
-        String username = "john";
-        User user = new User();
-        user.setUsername("john");
-        user.setRole("ADMIN");
 
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtUtils.validateToken(token)).thenReturn(true);
-        when(jwtUtils.getUsernameFromToken(token)).thenReturn(username);
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        when(jwtUtils.parseClaims(token)).thenReturn(claims(JwtUtils.TYPE_ACCESS, 1L, "john", "ADMIN", 60_000));
 
         // Act
         jwtAuthFilter.doFilterInternal(request, response, filterChain);
 
-        // Assert
+        // Assert: principal มาจาก claims ล้วน ๆ
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         assertNotNull(auth);
-        assertEquals("john", ((User) auth.getPrincipal()).getUsername());
+        User principal = (User) auth.getPrincipal();
+        assertEquals("john", principal.getUsername());
+        assertEquals(1L, principal.getId());
+        assertEquals("ADMIN", principal.getRole());
         assertTrue(auth.getAuthorities().stream()
                 .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
 
@@ -88,11 +97,65 @@ class JwtAuthFilterTest {
     @Test
     void testInvalidTokenDoesNotAuthenticate() throws Exception {
         when(request.getHeader("Authorization")).thenReturn("Bearer invalid-token");
-        when(jwtUtils.validateToken(anyString())).thenReturn(false);
+        when(jwtUtils.parseClaims(anyString())).thenThrow(new JwtException("bad signature"));
 
         jwtAuthFilter.doFilterInternal(request, response, filterChain);
 
         assertNull(SecurityContextHolder.getContext().getAuthentication());
         verify(filterChain, times(1)).doFilter(request, response);
     }
+
+    @Test
+    void testRefreshTokenDoesNotAuthenticate() throws Exception {
+        when(request.getHeader("Authorization")).thenReturn("Bearer refresh-token");
+        when(jwtUtils.parseClaims("refresh-token")).thenReturn(claims(JwtUtils.TYPE_REFRESH, 1L, "john", null, 60_000));
+
+        jwtAuthFilter.doFilterInternal(request, response, filterChain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
+    @Test
+    void testRepeatedToken_ParsedOnce() throws Exception {
+        when(request.getHeader("Authorization")).thenReturn("Bearer cached-token");
+        when(jwtUtils.parseClaims("cached-token")).thenReturn(claims(JwtUtils.TYPE_ACCESS, 1L, "john", "USER", 60_000));
+
+        for (int i = 0; i < 3; i++) {
+            SecurityContextHolder.clearContext();
+            jwtAuthFilter.doFilterInternal(request, response, filterChain);
+            assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        }
+
+        verify(jwtUtils, times(1)).parseClaims("cached-token");
+    }
+
+    @Test
+    void testInvalidToken_NotCached() throws Exception {
+        when(request.getHeader("Authorization")).thenReturn("Bearer invalid-token");
+        when(jwtUtils.parseClaims("invalid-token")).thenThrow(new JwtException("expired"));
+
+        jwtAuthFilter.doFilterInternal(request, response, filterChain);
+        jwtAuthFilter.doFilterInternal(request, response, filterChain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(jwtUtils, times(2)).parseClaims("invalid-token");
+    }
+
+    @Test
+    void testRevokedUser_TokenRejectedAfterReparse() throws Exception {
+        when(request.getHeader("Authorization")).thenReturn("Bearer john-token");
+        when(jwtUtils.parseClaims("john-token")).thenReturn(claims(JwtUtils.TYPE_ACCESS, 1L, "john", "USER", 60_000));
+        jwtAuthFilter.doFilterInternal(request, response, filterChain);
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+
+        principalCache.revokeUser(1L);
+        // สองรอบ: รอบแรก parse ใหม่ (cache ถูกล้าง) รอบสองต้องไม่ได้ principal ที่เพิ่ง parse ไป
+        for (int i = 0; i < 2; i++) {
+            SecurityContextHolder.clearContext();
+            jwtAuthFilter.doFilterInternal(request, response, filterChain);
+            assertNull(SecurityContextHolder.getContext().getAuthentication());
+        }
+        verify(jwtUtils, atLeast(2)).parseClaims("john-token");
+    }
 }
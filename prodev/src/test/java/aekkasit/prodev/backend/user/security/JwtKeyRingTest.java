@@ -0,0 +1,47 @@
+package aekkasit.prodev.backend.user.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyRingTest {
+
+    static String secret(int bytes, int seed) {
+        byte[] key = new byte[bytes];
+        for (int i = 0; i < bytes; i++) {
+            key[i] = (byte) (i * 31 + seed);
+        }
+        return Base64.getEncoder().encodeToString(key);
+    }
+
+    @Test
+    void testParse_MultipleKeysWithActiveKid() {
+        JwtKeyRing ring = JwtKeyRing.parse("k2", "k1:" + secret(64, 1) + ", k2:" + secret(64, 2));
+
+        assertEquals("k2", ring.getActiveKid());
+        assertEquals(Set.of("k1", "k2"), ring.getKeyIds());
+        assertNotNull(ring.getKey("k1"));
+        assertNull(ring.getKey("k3"));
+    }
+
+    @Test
+    void testParse_SingleKeyBecomesActive() {
+        JwtKeyRing ring = JwtKeyRing.parse("", "only:" + secret(64, 1));
+
+        assertEquals("only", ring.getActiveKid());
+    }
+
+    @Test
+    void testParse_InvalidConfiguration() {
+        assertThrows(IllegalStateException.class, () -> JwtKeyRing.parse("k1", "k1:" + secret(32, 1)));
+        assertThrows(IllegalStateException.class, () -> JwtKeyRing.parse("k1", "k1:not*base64"));
+        assertThrows(IllegalStateException.class, () -> JwtKeyRing.parse("k9", "k1:" + secret(64, 1)));
+        assertThrows(IllegalStateException.class,
+                () -> JwtKeyRing.parse("", "k1:" + secret(64, 1) + ",k2:" + secret(64, 2)));
+        assertThrows(IllegalStateException.class,
+                () -> JwtKeyRing.parse("k1", "k1:" + secret(64, 1) + ",k1:" + secret(64, 2)));
+    }
+}
@@ -0,0 +1,90 @@
+package aekkasit.prodev.backend.user.security;
+
+import aekkasit.prodev.backend.user.model.User;
+import aekkasit.prodev.backend.user.security.JwtPrincipalCache.CachedPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtPrincipalCacheTest {
+
+    private static CachedPrincipal principal(long userId, Instant expiresAt) {
+        User user = User.builder().id(userId).username("user" + userId).role("USER").build();
+        return new CachedPrincipal(user, List.of(new SimpleGrantedAuthority("ROLE_USER")), expiresAt);
+    }
+
+    @Test
+    void testGet_LoadsOncePerToken() {
+        JwtPrincipalCache cache = new JwtPrincipalCache(100, Duration.ofMinutes(5), 900_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            cache.get("token", t -> {
+                loads.incrementAndGet();
+                return principal(1L, Instant.now().plusSeconds(60));
+            });
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testGet_ExpiredTokenIsNotKept() {
+        JwtPrincipalCache cache = new JwtPrincipalCache(100, Duration.ofMinutes(5), 900_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            cache.get("token", t -> {
+                loads.incrementAndGet();
+                return principal(1L, Instant.now().minusSeconds(1));
+            });
+        }
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGet_NullIsNotCached() {
+        JwtPrincipalCache cache = new JwtPrincipalCache(100, Duration.ofMinutes(5), 900_000);
+
+        assertNull(cache.get("bad-token", t -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testRevokeUser_RemovesOnlyThatUsersTokens() {
+        JwtPrincipalCache cache = new JwtPrincipalCache(100, Duration.ofMinutes(5), 900_000);
+        Instant exp = Instant.now().plusSeconds(60);
+        cache.get("a1", t -> principal(1L, exp));
+        cache.get("a2", t -> principal(1L, exp));
+        cache.get("b1", t -> principal(2L, exp));
+
+        cache.revokeUser(1L);
+
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("b1", t -> fail("should be cached")));
+    }
+
+    @Test
+    void testRevokeUser_ReparsedTokenStillRejected() {
+        JwtPrincipalCache cache = new JwtPrincipalCache(100, Duration.ofMinutes(5), 900_000);
+        Instant exp = Instant.now().plusSeconds(60);
+        Instant issued = Instant.now().minusSeconds(10);
+        cache.get("a1", t -> new CachedPrincipal(principal(1L, exp).getUser(), List.of(), exp, issued));
+
+        cache.revokeUser(1L);
+
+        // token เดิมถูก verify ใหม่ได้ principal เดิม ก็ยังต้องใช้ไม่ได้
+        assertNull(cache.get("a1", t -> new CachedPrincipal(principal(1L, exp).getUser(), List.of(), exp, issued)));
+        assertEquals(0, cache.size());
+        // token ที่ออกหลัง revoke ใช้ได้
+        Instant later = Instant.now().plusSeconds(1);
+        assertNotNull(cache.get("a2", t -> new CachedPrincipal(principal(1L, exp).getUser(), List.of(), exp, later)));
+    }
+}
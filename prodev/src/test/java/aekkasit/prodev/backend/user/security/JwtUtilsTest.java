@@ -1,17 +1,26 @@
 package aekkasit.prodev.backend.user.security;
 
+import aekkasit.prodev.backend.user.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.junit.jupiter.api.Test;
 
+import java.util.Base64;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class JwtUtilsTest {
 
+    private static User user() {
+        return User.builder().id(7L).username("testuser").role("USER").build();
+    }
+
     @Test
     void testGenerateTokenAndValidateToken() {
         JwtUtils jwtUtils = new JwtUtils();
 
         // สร้าง token จริง
-        String token = jwtUtils.generateToken("testuser");
+        String token = jwtUtils.generateAccessToken(user());
         assertNotNull(token);
 
         // ตรวจสอบ validateToken
@@ -30,4 +39,64 @@ public class JwtUtilsTest {
         String invalidToken = "this.is.not.a.valid.token";
         assertFalse(jwtUtils.validateToken(invalidToken));
     }
+
+    @Test
+    void testParseClaims_ReturnsSubjectAndExpiry() {
+        JwtUtils jwtUtils = new JwtUtils();
+
+        String token = jwtUtils.generateAccessToken(user());
+        Claims claims = jwtUtils.parseClaims(token);
+
+        assertEquals("testuser", claims.getSubject());
+        assertNotNull(claims.getExpiration());
+        assertThrows(JwtException.class, () -> jwtUtils.parseClaims(token + "x"));
+    }
+
+    @Test
+    void testAccessAndRefreshTokenClaims() {
+        JwtUtils jwtUtils = new JwtUtils(JwtKeyRing.random(), 60_000, 3_600_000);
+
+        Claims access = jwtUtils.parseClaims(jwtUtils.generateAccessToken(user()));
+        assertEquals(JwtUtils.TYPE_ACCESS, access.get(JwtUtils.CLAIM_TYPE, String.class));
+        assertEquals(7L, access.get(JwtUtils.CLAIM_USER_ID, Long.class));
+        assertEquals("USER", access.get(JwtUtils.CLAIM_ROLE, String.class));
+
+        Claims refresh = jwtUtils.parseClaims(jwtUtils.generateRefreshToken(user()));
+        assertEquals(JwtUtils.TYPE_REFRESH, refresh.get(JwtUtils.CLAIM_TYPE, String.class));
+        assertEquals(7L, refresh.get(JwtUtils.CLAIM_USER_ID, Long.class));
+        assertNull(refresh.get(JwtUtils.CLAIM_ROLE));
+
+        // access token อายุสั้นกว่า refresh token
+        assertTrue(access.getExpiration().before(refresh.getExpiration()));
+    }
+
+    @Test
+    void testTokenVerifiesOnAnotherInstanceWithSameKeyRing() {
+        String keys = "k1:" + JwtKeyRingTest.secret(64, 1);
+        JwtUtils replicaA = new JwtUtils(JwtKeyRing.parse("k1", keys), 60_000, 60_000);
+        JwtUtils replicaB = new JwtUtils(JwtKeyRing.parse("k1", keys), 60_000, 60_000);
+
+        String token = replicaA.generateAccessToken(user());
+
+        assertEquals("testuser", replicaB.getUsernameFromToken(token));
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+        assertTrue(header.contains("\"kid\":\"k1\""));
+    }
+
+    @Test
+    void testRotation_OldTokensStillVerifyUntilKeyIsRemoved() {
+        String oldKey = "old:" + JwtKeyRingTest.secret(64, 1);
+        String newKey = "new:" + JwtKeyRingTest.secret(64, 2);
+
+        String oldToken = new JwtUtils(JwtKeyRing.parse("old", oldKey), 60_000, 60_000).generateRefreshToken(user());
+
+        // สลับ active เป็น key ใหม่ แต่ยังเก็บ key เก่าไว้ verify
+        JwtUtils rotated = new JwtUtils(JwtKeyRing.parse("new", oldKey + "," + newKey), 60_000, 60_000);
+        assertTrue(rotated.validateToken(oldToken));
+        assertTrue(rotated.validateToken(rotated.generateRefreshToken(user())));
+
+        // ลบ key เก่าออกแล้ว token เก่าใช้ไม่ได้
+        JwtUtils oldKeyRemoved = new JwtUtils(JwtKeyRing.parse("new", newKey), 60_000, 60_000);
+        assertFalse(oldKeyRemoved.validateToken(oldToken));
+    }
 }
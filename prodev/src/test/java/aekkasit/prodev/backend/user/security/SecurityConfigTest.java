@@ -3,6 +3,8 @@ package aekkasit.prodev.backend.user.security;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -23,7 +25,24 @@ class SecurityConfigTest {
 
     @Test
     void testPasswordEncoder() {
-        assertNotNull(securityConfig.passwordEncoder());
+        assertNotNull(securityConfig.passwordEncoder(4));
+    }
+
+    @Test
+    void testPasswordEncoder_MatchesLegacyHashAndFlagsUpgrade() {
+        PasswordEncoder encoder = securityConfig.passwordEncoder(5);
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(encoder.matches("secret", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+
+        String current = encoder.encode("secret");
+        assertTrue(current.startsWith("{bcrypt}"));
+        assertTrue(encoder.matches("secret", current));
+        assertFalse(encoder.upgradeEncoding(current));
+
+        // ขึ้น cost แล้ว hash เดิมต้อง upgrade
+        assertTrue(securityConfig.passwordEncoder(6).upgradeEncoding(current));
     }
 
     @Test
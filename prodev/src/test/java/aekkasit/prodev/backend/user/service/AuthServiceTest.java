@@ -1,9 +1,15 @@
 package aekkasit.prodev.backend.user.service;
 
+import aekkasit.prodev.backend.cache.event.CacheInvalidation;
+import aekkasit.prodev.backend.cache.service.CacheInvalidationBus;
 import aekkasit.prodev.backend.user.dto.*;
 import aekkasit.prodev.backend.user.model.User;
 import aekkasit.prodev.backend.user.repository.UserRepository;
+import aekkasit.prodev.backend.user.security.JwtPrincipalCache;
 import aekkasit.prodev.backend.user.security.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -11,7 +17,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -31,6 +40,12 @@ class AuthServiceTest {
     @Mock
     private JwtUtils jwtUtils;
 
+    @Mock
+    private JwtPrincipalCache principalCache;
+
+    @Mock
+    private CacheInvalidationBus cacheInvalidationBus;
+
     @Test
     void testRegister_NewUser_Success() {
         RegisterRequest request = new RegisterRequest();
@@ -42,7 +57,8 @@ class AuthServiceTest {
         when(userRepository.existsByUsername(request.getUsername())).thenReturn(false);
         when(userRepository.count()).thenReturn(0L);
         when(passwordEncoder.encode("password")).thenReturn("encodedPassword");
-        when(jwtUtils.generateToken("testuser")).thenReturn("jwtToken");
+        when(jwtUtils.generateAccessToken(any(User.class))).thenReturn("jwtToken");
+        when(jwtUtils.generateRefreshToken(any(User.class))).thenReturn("refreshToken");
 
         AuthResponse response = authService.register(request);
 
@@ -82,7 +98,8 @@ class AuthServiceTest {
 
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
         when(passwordEncoder.matches("password", "encodedPassword")).thenReturn(true);
-        when(jwtUtils.generateToken("testuser")).thenReturn("jwtToken");
+        when(jwtUtils.generateAccessToken(any(User.class))).thenReturn("jwtToken");
+        when(jwtUtils.generateRefreshToken(any(User.class))).thenReturn("refreshToken");
 
         AuthResponse response = authService.login(request);
 
@@ -90,6 +107,7 @@ class AuthServiceTest {
         assertEquals("test@example.com", response.getEmail());
         assertEquals("USER", response.getRole());
         assertEquals("jwtToken", response.getToken());
+        assertEquals("refreshToken", response.getRefreshToken());
         assertEquals(1L, response.getId());
     }
 
@@ -113,4 +131,108 @@ class AuthServiceTest {
         RuntimeException exception = assertThrows(RuntimeException.class, () -> authService.login(request));
         assertEquals("Invalid password", exception.getMessage());
     }
+
+    @Test
+    void testDeleteUserById_EvictsCachedTokens() {
+        authService.deleteUserById(3L);
+
+        verify(userRepository).deleteById(3L);
+        verify(principalCache).revokeUser(3L);
+        verify(cacheInvalidationBus).publish(CacheInvalidation.user(3L));
+    }
+
+    private static Claims claims(String type, Long userId) {
+        Claims claims = Jwts.claims().setSubject("testuser");
+        claims.put(JwtUtils.CLAIM_TYPE, type);
+        claims.put(JwtUtils.CLAIM_USER_ID, userId);
+        return claims;
+    }
+
+    @Test
+    void testRefresh_ReloadsUserAndIssuesNewTokens() {
+        User user = User.builder().id(1L).username("testuser").email("test@example.com").role("ADMIN").build();
+
+        when(jwtUtils.parseClaims("refresh")).thenReturn(claims(JwtUtils.TYPE_REFRESH, 1L));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(jwtUtils.generateAccessToken(user)).thenReturn("newAccess");
+        when(jwtUtils.generateRefreshToken(user)).thenReturn("newRefresh");
+
+        AuthResponse response = authService.refresh("refresh");
+
+        // role ล่าสุดจาก DB
+        assertEquals("ADMIN", response.getRole());
+        assertEquals("newAccess", response.getToken());
+        assertEquals("newRefresh", response.getRefreshToken());
+    }
+
+    @Test
+    void testRefresh_RejectsAccessToken() {
+        when(jwtUtils.parseClaims("access")).thenReturn(claims(JwtUtils.TYPE_ACCESS, 1L));
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> authService.refresh("access"));
+        assertEquals("Invalid refresh token", exception.getMessage());
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void testRefresh_InvalidOrExpiredToken() {
+        when(jwtUtils.parseClaims("expired")).thenThrow(new JwtException("expired"));
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> authService.refresh("expired"));
+        assertEquals("Invalid refresh token", exception.getMessage());
+    }
+
+    @Test
+    void testRefresh_DeletedUser() {
+        when(jwtUtils.parseClaims("refresh")).thenReturn(claims(JwtUtils.TYPE_REFRESH, 9L));
+        when(userRepository.findById(9L)).thenReturn(Optional.empty());
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> authService.refresh("refresh"));
+        assertEquals("User not found", exception.getMessage());
+    }
+
+    @Test
+    void testLogin_LegacyHash_RehashedOnSuccess() {
+        LoginRequest request = new LoginRequest();
+        request.setEmail("test@example.com");
+        request.setPassword("password");
+
+        User user = User.builder().id(1L).username("testuser").email("test@example.com")
+                .password("$2a$10$legacy").role("USER").build();
+
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("password", "$2a$10$legacy")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("$2a$10$legacy")).thenReturn(true);
+        when(passwordEncoder.encode("password")).thenReturn("{bcrypt}$2a$12$new");
+
+        authService.login(request);
+
+        assertEquals("{bcrypt}$2a$12$new", user.getPassword());
+        verify(userRepository).save(user);
+    }
+
+    @Test
+    void testLoginAsync_RunsOnHashingExecutor() {
+        List<Runnable> submitted = new ArrayList<>();
+        AuthService service = new AuthService(userRepository, passwordEncoder, jwtUtils, principalCache, submitted::add, cacheInvalidationBus);
+
+        LoginRequest request = new LoginRequest();
+        request.setEmail("test@example.com");
+        request.setPassword("password");
+        User user = User.builder().id(1L).username("testuser").email("test@example.com")
+                .password("encodedPassword").role("USER").build();
+
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("password", "encodedPassword")).thenReturn(true);
+        when(jwtUtils.generateAccessToken(user)).thenReturn("jwtToken");
+
+        CompletableFuture<AuthResponse> future = service.loginAsync(request);
+
+        // ยังไม่ได้ hash บน thread ที่เรียก
+        assertFalse(future.isDone());
+        verify(passwordEncoder, never()).matches(any(), any());
+
+        submitted.forEach(Runnable::run);
+        assertEquals("jwtToken", future.join().getToken());
+    }
 }